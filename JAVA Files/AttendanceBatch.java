@@ -0,0 +1,228 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The AttendanceBatch class applies check-ins from turnstile and kiosk feeds in bulk,
+ * without any dialogs, and reports what happened in a Summary.
+ *
+ * Key Features:
+ * - Accepts member IDs directly or a feed with one scan per line: "ID" or "ID,timestamp"
+ * - Scans are grouped by member, so each member is updated once per batch
+ * - Loyalty points and upgrade eligibility are applied once on the batch total
+ * - Unknown IDs, inactive members and unreadable lines are counted, not shown as errors
+ *
+ * Implementation Details:
+ * - Scans are counted in an IntIndex from member ID to a slot in a counts array
+ * - Each member receives MemberService.markAttendance(id, visits), which applies the
+ *   service's checks and fires a single ATTENDANCE change, so the journal and the member
+ *   table see one update per member
+ * - Timestamps are ISO-8601 local date-times; they are only used to report the time span
+ *   covered by the batch, the feed is applied in one go
+ *
+ * Usage:
+ * AttendanceBatch batch = new AttendanceBatch();
+ * batch.addFile(feedFile);
+ * AttendanceBatch.Summary summary = service.importCheckIns(batch);
+ */
+public class AttendanceBatch {
+    private final IntIndex slots = new IntIndex();
+    private int[] ids = new int[64];
+    private int[] counts = new int[64];
+    private int scans;
+    private int malformed;
+    private LocalDateTime firstScan;
+    private LocalDateTime lastScan;
+
+    /**
+     * Outcome of applying a batch.
+     */
+    public static class Summary {
+        public final int scans;
+        public final int members;
+        public final int visitsRecorded;
+        public final int unknownScans;
+        public final int inactiveScans;
+        public final int malformedLines;
+        public final int newlyEligible;
+        public final LocalDateTime firstScan;
+        public final LocalDateTime lastScan;
+
+        Summary(int scans, int members, int visitsRecorded, int unknownScans, int inactiveScans,
+                int malformedLines, int newlyEligible, LocalDateTime firstScan, LocalDateTime lastScan) {
+            this.scans = scans;
+            this.members = members;
+            this.visitsRecorded = visitsRecorded;
+            this.unknownScans = unknownScans;
+            this.inactiveScans = inactiveScans;
+            this.malformedLines = malformedLines;
+            this.newlyEligible = newlyEligible;
+            this.firstScan = firstScan;
+            this.lastScan = lastScan;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append("Scans: ").append(scans)
+                .append("\nMembers checked in: ").append(members)
+                .append("\nVisits recorded: ").append(visitsRecorded);
+            if (unknownScans > 0) {
+                text.append("\nUnknown member IDs: ").append(unknownScans);
+            }
+            if (inactiveScans > 0) {
+                text.append("\nInactive members: ").append(inactiveScans);
+            }
+            if (malformedLines > 0) {
+                text.append("\nUnreadable lines: ").append(malformedLines);
+            }
+            if (newlyEligible > 0) {
+                text.append("\nNewly eligible for upgrade: ").append(newlyEligible);
+            }
+            if (firstScan != null) {
+                text.append("\nCovering: ").append(firstScan).append(" to ").append(lastScan);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Counts one scan for the member.
+     */
+    public void add(int memberId) {
+        int slot = slots.get(memberId);
+        if (slot < 0) {
+            slot = slots.size();
+            if (slot == ids.length) {
+                ids = Arrays.copyOf(ids, slot << 1);
+                counts = Arrays.copyOf(counts, slot << 1);
+            }
+            slots.put(memberId, slot);
+            ids[slot] = memberId;
+        }
+        counts[slot]++;
+        scans++;
+    }
+
+    public void add(int memberId, LocalDateTime scannedAt) {
+        add(memberId);
+        if (firstScan == null || scannedAt.isBefore(firstScan)) {
+            firstScan = scannedAt;
+        }
+        if (lastScan == null || scannedAt.isAfter(lastScan)) {
+            lastScan = scannedAt;
+        }
+    }
+
+    public void addAll(int[] memberIds) {
+        for (int id : memberIds) {
+            add(id);
+        }
+    }
+
+    /**
+     * Reads a feed with one scan per line. Blank lines and lines starting with '#'
+     * are ignored; other lines that cannot be read are counted in the summary.
+     */
+    public void addFeed(Reader feed) throws IOException {
+        BufferedReader reader = new BufferedReader(feed);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            addLine(line.trim());
+        }
+    }
+
+    public void addFile(File file) throws IOException {
+        try (Reader reader = new FileReader(file)) {
+            addFeed(reader);
+        }
+    }
+
+    private void addLine(String line) {
+        if (line.isEmpty() || line.charAt(0) == '#') {
+            return;
+        }
+        int comma = line.indexOf(',');
+        try {
+            if (comma < 0) {
+                add(Integer.parseInt(line));
+            } else {
+                add(Integer.parseInt(line.substring(0, comma).trim()),
+                    LocalDateTime.parse(line.substring(comma + 1).trim()));
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            malformed++;
+        }
+    }
+
+    public int getScanCount() {
+        return scans;
+    }
+
+    /**
+     * Applies every counted scan through the service's markAttendance() and returns
+     * what happened. The batch is emptied afterwards, so it can be reused for the next feed.
+     */
+    public Summary applyTo(MemberService service) {
+        int distinct = slots.size();
+        int checkedIn = 0;
+        int recorded = 0;
+        int unknown = 0;
+        int inactive = 0;
+        int newlyEligible = 0;
+        for (int slot = 0; slot < distinct; slot++) {
+            GymMember member = service.getMembers().get(ids[slot]);
+            int visits = counts[slot];
+            if (member == null) {
+                unknown += visits;
+                continue;
+            }
+            boolean wasEligible = member instanceof RegularMember
+                    && ((RegularMember) member).isEligibleForUpgrade();
+            int applied;
+            try {
+                applied = service.markAttendance(ids[slot], visits);
+            } catch (MemberServiceException e) {
+                if (e.getReason() == MemberServiceException.Reason.NOT_FOUND) {
+                    unknown += visits;
+                } else {
+                    inactive += visits;
+                }
+                continue;
+            }
+            if (applied == 0) {
+                inactive += visits;
+                continue;
+            }
+            checkedIn++;
+            recorded += applied;
+            if (!wasEligible && member instanceof RegularMember
+                    && ((RegularMember) member).isEligibleForUpgrade()) {
+                newlyEligible++;
+            }
+        }
+        Summary summary = new Summary(scans, checkedIn, recorded, unknown, inactive,
+                malformed, newlyEligible, firstScan, lastScan);
+        clear();
+        return summary;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0, slots.size(), 0);
+        slots.clear();
+        scans = 0;
+        malformed = 0;
+        firstScan = null;
+        lastScan = null;
+    }
+}
@@ -0,0 +1,713 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The AttendanceHistory class keeps the time of every visit, which the attendance
+ * counter on GymMember cannot: it answers questions such as visits in the last 30
+ * days, the busiest hours of the studio and which members have stopped coming, over
+ * years of history for the whole roster.
+ *
+ * Key Features:
+ * - Implements MemberListener; each increase of a member's attendance is recorded as
+ *   that many visits at the current minute, so batches from AttendanceBatch are kept too
+ * - Per-member queries: countVisits(), countVisitsInLastDays(), getVisits(),
+ *   getLastVisit(), getVisitCount() and rollup() by hour, day or week
+ * - Studio-wide queries: rollup() by hour, day or week, hourOfDayProfile() for the
+ *   peak hours, and inactiveSince() for members whose visits have stopped
+ * - save() and load() keep the history in a binary file between runs; open() also logs
+ *   each visit to a companion file as it is recorded, so a crash loses none of them
+ *
+ * Implementation Details:
+ * - Times are minutes since 1970-01-01 00:00 studio time, so hour and day buckets follow
+ *   the wall clock in the same way MemberDates does for dates
+ * - Each member's visits are kept in time order in blocks of BLOCK_VISITS; a block
+ *   stores the minute of its first visit and the gaps to the following ones as varints,
+ *   so a visit takes one or two bytes instead of eight. Full blocks are trimmed to size
+ *   and never change again
+ * - Range queries find the first block with a binary search over the block start times
+ *   and count blocks lying wholly inside the range without decoding them
+ * - Studio-wide totals per hour are kept in one array as visits are recorded, so
+ *   studio rollups never touch the member logs; they work to the hour
+ * - The attendance counter on the member stays the cached total used by the loyalty
+ *   rules and saved files; the history starts from the counter it finds when it begins
+ *   following a member, since earlier visits have no times
+ * - A visit earlier than the member's last one (the clock was set back) is stored at
+ *   the time of the last one, keeping each log in order
+ * - The visit log (the history file's name plus LOG_SUFFIX) is a header holding a
+ *   generation number followed by fixed 16-byte entries [member ID][minute][visits],
+ *   each written to the file as the visits are recorded. save() stores the generation
+ *   of the log it includes and then starts the next one, so a crash between the two
+ *   never counts a visit twice; a torn last entry is dropped when the log is read
+ * - All methods synchronize on the history; listeners may be called from any thread
+ *
+ * Usage:
+ * AttendanceHistory history = AttendanceHistory.open(file);
+ * history.follow(members);
+ * int recent = history.countVisitsInLastDays(1001, 30);
+ * history.save(file); history.close();
+ */
+public class AttendanceHistory implements MemberListener {
+    public static final String FILE_NAME = "attendance.history";
+    public static final String LOG_SUFFIX = ".log";
+
+    private static final int FILE_MAGIC = 0x47594D41;
+    // Version 2 adds the generation of the visit log the file includes.
+    private static final int FILE_VERSION = 2;
+    private static final int LOG_MAGIC = 0x47594D56;
+    private static final int LOG_HEADER_BYTES = 12;
+    private static final int LOG_ENTRY_BYTES = 16;
+    private static final int BLOCK_VISITS = 128;
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MINUTES_PER_DAY = 24 * MINUTES_PER_HOUR;
+
+    /**
+     * Bucket sizes for rollups. Weeks start on Monday.
+     */
+    public enum Resolution {
+        HOUR(MINUTES_PER_HOUR, 0),
+        DAY(MINUTES_PER_DAY, 0),
+        // 1970-01-01 was a Thursday, three days after the Monday the weeks are counted from.
+        WEEK(7 * MINUTES_PER_DAY, 3 * MINUTES_PER_DAY);
+
+        private final int minutes;
+        private final int offset;
+
+        Resolution(int minutes, int offset) {
+            this.minutes = minutes;
+            this.offset = offset;
+        }
+
+        long bucket(long minute) {
+            return Math.floorDiv(minute + offset, minutes);
+        }
+
+        /**
+         * The first moment of the bucket holding the given time.
+         */
+        public LocalDateTime truncate(LocalDateTime time) {
+            return toTime(bucket(toMinute(time)) * minutes - offset);
+        }
+    }
+
+    private final Clock clock;
+    private final IntIndex slots = new IntIndex();
+    private Log[] logs = new Log[1024];
+    private int size;
+    private long firstHour;
+    private int[] hourly = new int[0];
+    private MemberRepository repository;
+
+    // The visit log, when the history was opened with open(); every log up to
+    // savedGeneration is already in the file it was loaded from.
+    private File file;
+    private FileChannel visitLog;
+    private long savedGeneration;
+    private long logGeneration;
+    private final ByteBuffer logEntry = ByteBuffer.allocate(LOG_ENTRY_BYTES);
+
+    public AttendanceHistory() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public AttendanceHistory(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Reads a history written by save(), or returns an empty one if the file does not
+     * exist yet.
+     */
+    public static AttendanceHistory load(File file) throws IOException {
+        AttendanceHistory history = new AttendanceHistory();
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                history.read(in);
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Loads the history like load(), adds the visits logged since it was last saved, and
+     * from then on logs every visit as it is recorded. save(file) starts a fresh log.
+     */
+    public static AttendanceHistory open(File file) throws IOException {
+        AttendanceHistory history = load(file);
+        history.openLog(file);
+        return history;
+    }
+
+    private synchronized void openLog(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        this.file = file;
+        visitLog = FileChannel.open(logFile(file).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long end = replayLog();
+        if (end < 0) {
+            startLog(savedGeneration + 1);
+        } else {
+            visitLog.truncate(end);
+            visitLog.position(end);
+        }
+    }
+
+    private static File logFile(File file) {
+        return new File(file.getPath() + LOG_SUFFIX);
+    }
+
+    // Records the entries of a log newer than the saved history; returns the length of its
+    // whole entries, or -1 if there is no such log.
+    private long replayLog() throws IOException {
+        long size = visitLog.size();
+        if (size < LOG_HEADER_BYTES || size > Integer.MAX_VALUE) {
+            return -1;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) size);
+        while (bytes.hasRemaining()) {
+            if (visitLog.read(bytes, bytes.position()) < 0) {
+                break;
+            }
+        }
+        bytes.flip();
+        if (bytes.getInt() != LOG_MAGIC) {
+            return -1;
+        }
+        long generation = bytes.getLong();
+        if (generation <= savedGeneration) {
+            return -1;
+        }
+        logGeneration = generation;
+        while (bytes.remaining() >= LOG_ENTRY_BYTES) {
+            int id = bytes.getInt();
+            long minute = bytes.getLong();
+            record(log(id), minute, bytes.getInt());
+        }
+        return bytes.position();
+    }
+
+    private void startLog(long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        header.putInt(LOG_MAGIC).putLong(generation).flip();
+        visitLog.truncate(0);
+        visitLog.position(0);
+        while (header.hasRemaining()) {
+            visitLog.write(header);
+        }
+        logGeneration = generation;
+    }
+
+    // Written straight to the file, so the entry survives the process even before a save.
+    private void logVisits(int id, long minute, int visits) {
+        logEntry.clear();
+        logEntry.putInt(id).putLong(minute).putInt(visits).flip();
+        try {
+            while (logEntry.hasRemaining()) {
+                visitLog.write(logEntry);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not log the visits of member " + id, e);
+        }
+    }
+
+    /**
+     * Stops logging visits. Visits recorded afterwards are kept in memory only.
+     */
+    public synchronized void close() throws IOException {
+        if (visitLog != null) {
+            visitLog.close();
+            visitLog = null;
+        }
+    }
+
+    /**
+     * Starts recording the visits of the repository's members. Their current attendance
+     * counters are taken as the starting point; the recorded history is kept.
+     */
+    public synchronized void follow(MemberRepository members) {
+        if (repository != null) {
+            throw new IllegalStateException("Already following a roster");
+        }
+        repository = members;
+        members.addListener(this);
+        for (GymMember member : members) {
+            log(member.getID()).seen = member.getAttendance();
+        }
+    }
+
+    @Override
+    public synchronized void memberChanged(GymMember member, MemberChange change) {
+        if (change == MemberChange.REMOVED) {
+            return;
+        }
+        if (repository.get(member.getID()) != member) {
+            return;
+        }
+        Log log = log(member.getID());
+        int attendance = member.getAttendance();
+        // Members joining or replacing another start from their counter; a reset
+        // lowers it without taking back visits already made.
+        if (change != MemberChange.ADDED && attendance > log.seen) {
+            long minute = now();
+            record(log, minute, attendance - log.seen);
+            if (visitLog != null) {
+                logVisits(member.getID(), minute, attendance - log.seen);
+            }
+        }
+        log.seen = attendance;
+    }
+
+    // Adds visits at the given minute, as if the member's counter had gone up by that many.
+    synchronized void record(int id, long minute, int visits) {
+        record(log(id), minute, visits);
+    }
+
+    private void record(Log log, long minute, int visits) {
+        long stored = Math.max(minute, log.last);
+        for (int i = 0; i < visits; i++) {
+            log.append(stored);
+        }
+        // hourIndex() may replace the array, so it is read after the call.
+        int index = hourIndex(Math.floorDiv(stored, MINUTES_PER_HOUR));
+        hourly[index] += visits;
+    }
+
+    /**
+     * Visits recorded for the member since the history began following it.
+     */
+    public synchronized int getVisitCount(int id) {
+        Log log = find(id);
+        return log == null ? 0 : log.count;
+    }
+
+    /**
+     * Visits from the first time, inclusive, to the second, exclusive.
+     */
+    public synchronized int countVisits(int id, LocalDateTime from, LocalDateTime to) {
+        Log log = find(id);
+        return log == null ? 0 : log.count(toMinute(from), toMinute(to));
+    }
+
+    /**
+     * Visits in the given number of days up to now.
+     */
+    public int countVisitsInLastDays(int id, int days) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return countVisits(id, now.minusDays(days), now.plusMinutes(1));
+    }
+
+    public synchronized List<LocalDateTime> getVisits(int id, LocalDateTime from, LocalDateTime to) {
+        final List<LocalDateTime> visits = new ArrayList<>();
+        Log log = find(id);
+        if (log != null) {
+            log.scan(toMinute(from), toMinute(to), minute -> visits.add(toTime(minute)));
+        }
+        return visits;
+    }
+
+    /**
+     * The member's most recent visit, or null if none was recorded.
+     */
+    public synchronized LocalDateTime getLastVisit(int id) {
+        Log log = find(id);
+        return log == null || log.count == 0 ? null : toTime(log.last);
+    }
+
+    /**
+     * The member's visits per bucket from the bucket holding the first time to the one
+     * holding the second, exclusive. Element 0 is the bucket from.truncate() starts.
+     */
+    public synchronized int[] rollup(int id, LocalDateTime from, LocalDateTime to, final Resolution by) {
+        long start = toMinute(from);
+        long end = toMinute(to);
+        final long first = by.bucket(start);
+        final int[] buckets = new int[bucketCount(start, end, by)];
+        Log log = find(id);
+        if (log != null) {
+            log.scan(start, end, minute -> buckets[(int) (by.bucket(minute) - first)]++);
+        }
+        return buckets;
+    }
+
+    /**
+     * Visits by all members per bucket, laid out as in rollup(id, ...). Counts are kept
+     * per hour, so both times are taken to the start of their hour.
+     */
+    public synchronized int[] rollup(LocalDateTime from, LocalDateTime to, Resolution by) {
+        long start = Math.floorDiv(toMinute(from), MINUTES_PER_HOUR) * MINUTES_PER_HOUR;
+        long end = Math.floorDiv(toMinute(to), MINUTES_PER_HOUR) * MINUTES_PER_HOUR;
+        long first = by.bucket(start);
+        int[] buckets = new int[bucketCount(start, end, by)];
+        long fromHour = Math.max(start / MINUTES_PER_HOUR, firstHour);
+        long toHour = Math.min(end / MINUTES_PER_HOUR, firstHour + hourly.length);
+        for (long hour = fromHour; hour < toHour; hour++) {
+            int visits = hourly[(int) (hour - firstHour)];
+            if (visits != 0) {
+                buckets[(int) (by.bucket(hour * MINUTES_PER_HOUR) - first)] += visits;
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Visits by all members in each hour of the day (0-23) over the given days, both
+     * inclusive.
+     */
+    public synchronized int[] hourOfDayProfile(LocalDate from, LocalDate to) {
+        int[] profile = new int[24];
+        long fromHour = Math.max(from.toEpochDay() * 24, firstHour);
+        long toHour = Math.min((to.toEpochDay() + 1) * 24, firstHour + hourly.length);
+        for (long hour = fromHour; hour < toHour; hour++) {
+            profile[(int) Math.floorMod(hour, 24L)] += hourly[(int) (hour - firstHour)];
+        }
+        return profile;
+    }
+
+    /**
+     * IDs of current members who have visited before but not since the given time, in
+     * ascending order: the members most at risk of leaving.
+     */
+    public synchronized int[] inactiveSince(LocalDateTime time) {
+        long minute = toMinute(time);
+        int[] ids = new int[size];
+        int found = 0;
+        for (int i = 0; i < size; i++) {
+            Log log = logs[i];
+            if (log.count > 0 && log.last < minute && (repository == null || repository.get(log.id) != null)) {
+                ids[found++] = log.id;
+            }
+        }
+        ids = Arrays.copyOf(ids, found);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Bytes used by the encoded visits of all members.
+     */
+    public synchronized long getEncodedBytes() {
+        long bytes = 0;
+        for (int i = 0; i < size; i++) {
+            bytes += logs[i].encodedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the history to a temporary file and moves it over the given one, so a
+     * failed write leaves the previous history in place. Saving to the file the history
+     * was opened from also starts a fresh visit log.
+     */
+    public synchronized void save(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        boolean ownFile = visitLog != null && file.getAbsoluteFile().equals(this.file.getAbsoluteFile());
+        long generation = ownFile ? logGeneration : savedGeneration;
+        File temporary = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            write(out, generation);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        if (ownFile) {
+            savedGeneration = generation;
+            startLog(generation + 1);
+        }
+    }
+
+    private void write(DataOutputStream out, long generation) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeLong(generation);
+        out.writeLong(firstHour);
+        out.writeInt(hourly.length);
+        for (int visits : hourly) {
+            out.writeInt(visits);
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            Log log = logs[i];
+            out.writeInt(log.id);
+            out.writeInt(log.blocks + (log.openCount > 0 ? 1 : 0));
+            for (int b = 0; b < log.blocks; b++) {
+                writeBlock(out, log.firsts[b], log.lasts[b], log.counts[b], log.data[b], log.data[b].length);
+            }
+            if (log.openCount > 0) {
+                writeBlock(out, log.openFirst, log.last, log.openCount, log.open, log.openLength);
+            }
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, long first, long last, int count, byte[] data, int length)
+            throws IOException {
+        out.writeLong(first);
+        out.writeLong(last);
+        out.writeInt(count);
+        out.writeInt(length);
+        out.write(data, 0, length);
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("Not an attendance history file");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > FILE_VERSION) {
+            throw new IOException("Unsupported attendance history version " + version);
+        }
+        savedGeneration = version >= 2 ? in.readLong() : 0;
+        firstHour = in.readLong();
+        hourly = new int[in.readInt()];
+        for (int i = 0; i < hourly.length; i++) {
+            hourly[i] = in.readInt();
+        }
+        int members = in.readInt();
+        for (int i = 0; i < members; i++) {
+            Log log = log(in.readInt());
+            int blocks = in.readInt();
+            for (int b = 0; b < blocks; b++) {
+                long first = in.readLong();
+                long last = in.readLong();
+                int count = in.readInt();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                if (count == BLOCK_VISITS) {
+                    log.addBlock(first, last, count, data);
+                } else {
+                    log.open = Arrays.copyOf(data, Math.max(16, data.length));
+                    log.openLength = data.length;
+                    log.openFirst = first;
+                    log.openCount = count;
+                }
+                log.count += count;
+                log.last = last;
+            }
+        }
+    }
+
+    private Log find(int id) {
+        int slot = slots.get(id);
+        return slot < 0 ? null : logs[slot];
+    }
+
+    private Log log(int id) {
+        int slot = slots.get(id);
+        if (slot >= 0) {
+            return logs[slot];
+        }
+        if (size == logs.length) {
+            logs = Arrays.copyOf(logs, size << 1);
+        }
+        Log log = new Log(id);
+        slots.put(id, size);
+        logs[size++] = log;
+        return log;
+    }
+
+    // Index of the hour in hourly, growing the array at either end to take it in.
+    private int hourIndex(long hour) {
+        if (hourly.length == 0) {
+            firstHour = hour;
+            hourly = new int[24 * 7];
+        } else if (hour < firstHour) {
+            int shift = (int) Math.max(firstHour - hour, hourly.length / 2);
+            int[] grown = new int[hourly.length + shift];
+            System.arraycopy(hourly, 0, grown, shift, hourly.length);
+            hourly = grown;
+            firstHour -= shift;
+        } else if (hour - firstHour >= hourly.length) {
+            hourly = Arrays.copyOf(hourly, (int) Math.max(hour - firstHour + 1, hourly.length * 2L));
+        }
+        return (int) (hour - firstHour);
+    }
+
+    private static int bucketCount(long start, long end, Resolution by) {
+        return end <= start ? 0 : (int) (by.bucket(end - 1) - by.bucket(start) + 1);
+    }
+
+    private long now() {
+        return toMinute(LocalDateTime.now(clock));
+    }
+
+    static long toMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime toTime(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private interface Visit {
+        void at(long minute);
+    }
+
+    // One member's visits: full blocks, then an open block that new visits go into.
+    private static final class Log {
+        final int id;
+        int seen;
+        int count;
+        long last = Long.MIN_VALUE;
+
+        long[] firsts = new long[0];
+        long[] lasts = new long[0];
+        int[] counts = new int[0];
+        byte[][] data = new byte[0][];
+        int blocks;
+
+        byte[] open = new byte[16];
+        int openLength;
+        int openCount;
+        long openFirst;
+
+        Log(int id) {
+            this.id = id;
+        }
+
+        // The minute is never before the last one; the first visit of a block is its start time.
+        void append(long minute) {
+            if (openCount == 0) {
+                openFirst = minute;
+            } else {
+                long gap = minute - last;
+                if (openLength + 10 > open.length) {
+                    open = Arrays.copyOf(open, open.length * 2);
+                }
+                while ((gap & ~0x7FL) != 0) {
+                    open[openLength++] = (byte) ((gap & 0x7F) | 0x80);
+                    gap >>>= 7;
+                }
+                open[openLength++] = (byte) gap;
+            }
+            openCount++;
+            count++;
+            last = minute;
+            if (openCount == BLOCK_VISITS) {
+                addBlock(openFirst, last, openCount, Arrays.copyOf(open, openLength));
+                openLength = 0;
+                openCount = 0;
+            }
+        }
+
+        void addBlock(long first, long lastMinute, int visits, byte[] bytes) {
+            if (blocks == firsts.length) {
+                int capacity = Math.max(4, blocks * 2);
+                firsts = Arrays.copyOf(firsts, capacity);
+                lasts = Arrays.copyOf(lasts, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                data = Arrays.copyOf(data, capacity);
+            }
+            firsts[blocks] = first;
+            lasts[blocks] = lastMinute;
+            counts[blocks] = visits;
+            data[blocks] = bytes;
+            blocks++;
+        }
+
+        int count(long from, long to) {
+            if (from >= to) {
+                return 0;
+            }
+            int total = 0;
+            for (int b = firstBlock(from); b < blocks && firsts[b] < to; b++) {
+                if (firsts[b] >= from && lasts[b] < to) {
+                    total += counts[b];
+                } else {
+                    total += decode(data[b], counts[b], firsts[b], from, to, null);
+                }
+            }
+            if (openCount > 0 && openFirst < to && last >= from) {
+                total += openFirst >= from && last < to ? openCount
+                        : decode(open, openCount, openFirst, from, to, null);
+            }
+            return total;
+        }
+
+        void scan(long from, long to, Visit visit) {
+            for (int b = firstBlock(from); b < blocks && firsts[b] < to; b++) {
+                decode(data[b], counts[b], firsts[b], from, to, visit);
+            }
+            if (openCount > 0 && openFirst < to && last >= from) {
+                decode(open, openCount, openFirst, from, to, visit);
+            }
+        }
+
+        // The first full block whose last visit is at or after the minute.
+        private int firstBlock(long minute) {
+            int low = 0;
+            int high = blocks;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (lasts[middle] < minute) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Counts, and passes to visit if given, the block's visits in [from, to).
+        private static int decode(byte[] bytes, int visits, long first, long from, long to, Visit visit) {
+            int found = 0;
+            int position = 0;
+            long minute = first;
+            for (int i = 0; i < visits; i++) {
+                if (i > 0) {
+                    long gap = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = bytes[position++];
+                        gap |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    minute += gap;
+                }
+                if (minute >= to) {
+                    break;
+                }
+                if (minute >= from) {
+                    found++;
+                    if (visit != null) {
+                        visit.at(minute);
+                    }
+                }
+            }
+            return found;
+        }
+
+        long encodedBytes() {
+            long bytes = openLength + 8L * blocks;
+            for (int b = 0; b < blocks; b++) {
+                bytes += data[b].length;
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The BackgroundTask class runs file and bulk operations of GymMemberGUI off the
+ * Event Dispatch Thread, so the window keeps repainting while a large roster is
+ * saved, read or listed.
+ *
+ * Key Features:
+ * - Built on SwingWorker: doInBackground() runs on a worker thread, everything else on the EDT
+ * - A progress dialog with a Cancel button appears if the task runs longer than a moment
+ * - Progress comes from setProgress(0-100); partial results go through publish()/process()
+ * - Outcome callbacks (succeeded, failed, cancelled) always run on the EDT
+ *
+ * Implementation Details:
+ * - The dialog is only shown after a short delay, so quick tasks never flash a window
+ * - Cancelling interrupts the worker thread; long loops should also check isCancelled()
+ *
+ * Usage:
+ * Subclass it, implement doInBackground() and succeeded(), then call start() on the EDT.
+ */
+public abstract class BackgroundTask<T, V> extends SwingWorker<T, V> {
+    private static final int DIALOG_DELAY_MS = 400;
+
+    private final Component owner;
+    private final String title;
+    private final boolean cancellable;
+    private JDialog dialog;
+    private JProgressBar progressBar;
+    private Timer dialogTimer;
+
+    protected BackgroundTask(Component owner, String title, boolean cancellable) {
+        this.owner = owner;
+        this.title = title;
+        this.cancellable = cancellable;
+    }
+
+    /**
+     * Starts the task. Must be called on the EDT.
+     */
+    public void start() {
+        addPropertyChangeListener(new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent e) {
+                if ("progress".equals(e.getPropertyName()) && progressBar != null) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setValue((Integer) e.getNewValue());
+                }
+            }
+        });
+        dialogTimer = new Timer(DIALOG_DELAY_MS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (!isDone()) {
+                    showDialog();
+                }
+            }
+        });
+        dialogTimer.setRepeats(false);
+        dialogTimer.start();
+        execute();
+    }
+
+    protected abstract void succeeded(T result);
+
+    protected void failed(Throwable error) {
+        JOptionPane.showMessageDialog(owner,
+            title + " failed: " + error.getMessage(),
+            "Error",
+            JOptionPane.ERROR_MESSAGE);
+    }
+
+    protected void cancelled() {
+    }
+
+    @Override
+    protected final void done() {
+        dialogTimer.stop();
+        if (dialog != null) {
+            dialog.dispose();
+            dialog = null;
+        }
+        try {
+            succeeded(get());
+        } catch (CancellationException e) {
+            cancelled();
+        } catch (ExecutionException e) {
+            failed(e.getCause() != null ? e.getCause() : e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void showDialog() {
+        Window window = owner instanceof Window ? (Window) owner : SwingUtilities.getWindowAncestor(owner);
+        dialog = new JDialog(window, title, Dialog.ModalityType.MODELESS);
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setIndeterminate(getProgress() == 0);
+        progressBar.setValue(getProgress());
+        progressBar.setStringPainted(true);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(new JLabel(title + "..."), BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        if (cancellable) {
+            JButton cancelButton = new JButton("Cancel");
+            cancelButton.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    cancel(true);
+                }
+            });
+            JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            buttons.add(cancelButton);
+            panel.add(buttons, BorderLayout.SOUTH);
+        }
+        dialog.add(panel);
+        dialog.pack();
+        dialog.setSize(Math.max(320, dialog.getWidth()), dialog.getHeight());
+        dialog.setLocationRelativeTo(owner);
+        dialog.setVisible(true);
+    }
+}
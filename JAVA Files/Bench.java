@@ -0,0 +1,127 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The Bench class is a very small micro-benchmark harness used by the *Benchmark
+ * classes of this project. It warms an operation up, times several measured rounds
+ * and prints the best average time per operation.
+ *
+ * Implementation Details:
+ * - Every operation returns a long that is folded into a volatile sink, so the JIT
+ *   cannot remove the work being measured
+ * - Warm-up rounds run the same code path first so the measured rounds see compiled code
+ * - The best round is reported, which filters out GC pauses and scheduler noise
+ * - Every result is also kept, so a run can be exported as JSON and compared with
+ *   an earlier one
+ *
+ * Usage:
+ * Bench.run("lookup", "size=1000", 1_000_000, i -> repository.get(ids[i & mask]).getID());
+ * Bench.writeJson(new File("bench-results.json"));
+ */
+public final class Bench {
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 5;
+
+    static volatile long sink;
+
+    private static final List<Result> results = new ArrayList<>();
+
+    public interface Operation {
+        long run(int iteration);
+    }
+
+    public static class Result {
+        public final String name;
+        public final String params;
+        public final int opsPerRound;
+        public final double bestNanosPerOp;
+        public final double meanNanosPerOp;
+
+        Result(String name, String params, int opsPerRound, double bestNanosPerOp, double meanNanosPerOp) {
+            this.name = name;
+            this.params = params;
+            this.opsPerRound = opsPerRound;
+            this.bestNanosPerOp = bestNanosPerOp;
+            this.meanNanosPerOp = meanNanosPerOp;
+        }
+    }
+
+    private Bench() {
+    }
+
+    /**
+     * Runs the operation opsPerRound times per round and returns the best time in ns/op.
+     */
+    public static double run(String name, String params, int opsPerRound, Operation operation) {
+        return run(name, params, opsPerRound, WARMUP_ROUNDS, MEASURED_ROUNDS, operation);
+    }
+
+    /**
+     * Same as run(String, String, int, Operation) with explicit round counts, for
+     * operations such as a whole-roster save that take seconds each.
+     */
+    public static double run(String name, String params, int opsPerRound, int warmupRounds, int measuredRounds,
+                             Operation operation) {
+        for (int round = 0; round < warmupRounds; round++) {
+            time(operation, opsPerRound);
+        }
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        for (int round = 0; round < measuredRounds; round++) {
+            double nanosPerOp = time(operation, opsPerRound);
+            best = Math.min(best, nanosPerOp);
+            total += nanosPerOp;
+        }
+        System.out.printf("%-40s %-20s %12.2f ns/op%n", name, params, best);
+        synchronized (results) {
+            results.add(new Result(name, params, opsPerRound, best, total / measuredRounds));
+        }
+        return best;
+    }
+
+    public static List<Result> getResults() {
+        synchronized (results) {
+            return new ArrayList<>(results);
+        }
+    }
+
+    /**
+     * Writes every result recorded so far as a JSON array, one object per benchmark.
+     */
+    public static void writeJson(File file) throws IOException {
+        try (Writer out = new FileWriter(file)) {
+            out.write("[\n");
+            List<Result> all = getResults();
+            for (int i = 0; i < all.size(); i++) {
+                Result r = all.get(i);
+                out.write(String.format(Locale.ROOT,
+                        "  {\"benchmark\": \"%s\", \"params\": \"%s\", \"opsPerRound\": %d, " +
+                        "\"bestNsPerOp\": %.3f, \"meanNsPerOp\": %.3f}%s%n",
+                        r.name, r.params, r.opsPerRound, r.bestNanosPerOp, r.meanNanosPerOp,
+                        i < all.size() - 1 ? "," : ""));
+            }
+            out.write("]\n");
+        }
+    }
+
+    private static double time(Operation operation, int ops) {
+        long result = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            result += operation.run(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += result;
+        return (double) elapsed / ops;
+    }
+}
@@ -0,0 +1,430 @@
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The BulkOperations class upgrades or reverts many members in one go, for example every
+ * eligible Basic member at the start of a season. A run is all or nothing: either every
+ * selected member goes through the change, or none of them does and the result says why.
+ *
+ * Key Features:
+ * - Members are chosen by ID, by a predicate over the roster, or from a search
+ *   (idsOf(service.search(query)))
+ * - upgradePlan(), revertRegular() and revertPremium() apply the same rules as the
+ *   one-member operations of MemberService and the member classes
+ * - The Result has the outcome of every member: APPLIED, REFUSED (with the reason),
+ *   NOT_FOUND or NOT_APPLIED (valid, but the run was refused because of another member)
+ * - A committed run is announced as one batch: the journal writes it as a single
+ *   record, and a crash either keeps all of it or none of it
+ *
+ * Implementation Details:
+ * - The run has two passes over the selection, each split in halves until a part has at
+ *   most SPLIT_SIZE members, in the manner of MemberReport. The first checks every member
+ *   and changes nothing; the second applies the change
+ * - In the second pass each member is checked again under its own lock, the fields the
+ *   action touches are kept, the change is made without announcing it and the member is
+ *   held (GymMember.hold). If a member was changed or replaced between the passes, the
+ *   kept fields of every member already changed are put back and nothing is announced
+ * - A held member takes no other change, and so no other journal or audit record, until
+ *   the run has been announced or rolled back; single-member operations on it wait, and
+ *   those on the rest of the roster carry on
+ * - Runs are serialized, so two bulk runs never work on the same members at once
+ * - Other threads can read the changed members before the run is committed; only the
+ *   announcement, and so the journal, waits for the whole run
+ *
+ * Usage:
+ * BulkOperations bulk = service.getBulkOperations();
+ * BulkOperations.Result result = bulk.upgradePlan(bulk.select(m -> m.getPlan().equals("Basic")), "Standard");
+ * if (!result.isCommitted()) { ... result.getMessage(i) ... }
+ */
+public class BulkOperations {
+    public enum Action { UPGRADE, REVERT_REGULAR, REVERT_PREMIUM }
+
+    public enum Status { APPLIED, REFUSED, NOT_FOUND, NOT_APPLIED }
+
+    private static final int SPLIT_SIZE = 1 << 14;
+
+    private final MemberRepository members;
+    private final ForkJoinPool pool;
+
+    public BulkOperations(MemberRepository members) {
+        this(members, ForkJoinPool.commonPool());
+    }
+
+    public BulkOperations(MemberRepository members, ForkJoinPool pool) {
+        this.members = members;
+        this.pool = pool;
+    }
+
+    /**
+     * The IDs of the members on the roster that the filter accepts, in ascending order.
+     */
+    public int[] select(Predicate<? super GymMember> filter) {
+        GymMember[] roster = members.toArray();
+        int[] ids = new int[roster.length];
+        int count = 0;
+        for (GymMember member : roster) {
+            if (filter.test(member)) {
+                ids[count++] = member.getID();
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    public static int[] idsOf(Collection<? extends GymMember> selection) {
+        int[] ids = new int[selection.size()];
+        int i = 0;
+        for (GymMember member : selection) {
+            ids[i++] = member.getID();
+        }
+        return ids;
+    }
+
+    public Result upgradePlan(int[] ids, String plan) {
+        return run(ids, Action.UPGRADE, plan);
+    }
+
+    public Result revertRegular(int[] ids, String removalReason) {
+        return run(ids, Action.REVERT_REGULAR, removalReason);
+    }
+
+    public Result revertPremium(int[] ids) {
+        return run(ids, Action.REVERT_PREMIUM, null);
+    }
+
+    /**
+     * Applies the action to every member with one of the IDs, or to none of them.
+     * The argument is the new plan for UPGRADE and the removal reason for REVERT_REGULAR.
+     * IDs given more than once count once.
+     */
+    public synchronized Result run(int[] ids, Action action, String argument) {
+        // A committed run is one action in the audit log, undone as a whole.
+        MemberAuditLog.Scope scope = MemberAuditLog.act();
+        try {
+            return runAction(distinct(ids), action, argument);
+        } finally {
+            scope.close();
+        }
+    }
+
+    private Result runAction(int[] ids, Action action, String argument) {
+        Run run = new Run(ids, action, argument);
+        for (int i = 0; i < run.ids.length; i++) {
+            run.targets[i] = members.get(run.ids[i]);
+        }
+        if (pool.invoke(new Part(run, false, 0, run.ids.length)) > 0) {
+            return run.result(false);
+        }
+        try {
+            if (pool.invoke(new Part(run, true, 0, run.ids.length)) > 0) {
+                rollBack(run);
+                return run.result(false);
+            }
+            if (run.ids.length > 0) {
+                members.fireBatch(run.targets, changeFor(action));
+            }
+            return run.result(true);
+        } finally {
+            release(run);
+        }
+    }
+
+    private static int[] distinct(int[] ids) {
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    private static MemberChange changeFor(Action action) {
+        switch (action) {
+            case UPGRADE: return MemberChange.UPGRADE;
+            case REVERT_REGULAR: return MemberChange.REVERT_REGULAR;
+            default: return MemberChange.REVERT_PREMIUM;
+        }
+    }
+
+    // Puts back the fields the second pass changed on every member it applied the action to.
+    private static void rollBack(Run run) {
+        for (int i = 0; i < run.ids.length; i++) {
+            if (run.statuses[i] != Status.APPLIED) {
+                continue;
+            }
+            GymMember member = run.targets[i];
+            synchronized (member) {
+                run.kept[i].restore(member, run.action);
+            }
+            run.statuses[i] = Status.NOT_APPLIED;
+        }
+    }
+
+    // Lets other operations at the members the second pass held.
+    private static void release(Run run) {
+        for (int i = 0; i < run.ids.length; i++) {
+            if (run.kept[i] != null) {
+                run.targets[i].release();
+            }
+        }
+    }
+
+    // The state of one run, shared by the parts of both passes; each part writes only
+    // its own slots of the arrays.
+    private final class Run {
+        final int[] ids;
+        final Action action;
+        final String argument;
+        final GymMember[] targets;
+        final Status[] statuses;
+        final String[] messages;
+        final Kept[] kept;
+
+        Run(int[] ids, Action action, String argument) {
+            this.ids = ids;
+            this.action = action;
+            this.argument = argument;
+            this.targets = new GymMember[ids.length];
+            this.statuses = new Status[ids.length];
+            this.messages = new String[ids.length];
+            this.kept = new Kept[ids.length];
+        }
+
+        // First pass: records why the member cannot take the action. Returns false if it cannot.
+        boolean check(int i) {
+            GymMember member = targets[i];
+            if (member == null) {
+                statuses[i] = Status.NOT_FOUND;
+                messages[i] = "Member not found!";
+                return false;
+            }
+            String refusal = refusal(member);
+            if (refusal != null) {
+                statuses[i] = Status.REFUSED;
+                messages[i] = refusal;
+                return false;
+            }
+            return true;
+        }
+
+        // Second pass: keeps the fields the action touches, applies it and holds the member.
+        // Returns false, changing nothing, if the member is no longer on the roster or can
+        // no longer take the action.
+        boolean apply(int i) {
+            GymMember member = targets[i];
+            synchronized (member) {
+                if (members.get(ids[i]) != member) {
+                    statuses[i] = Status.REFUSED;
+                    messages[i] = "Member was replaced during the operation";
+                    return false;
+                }
+                String refusal = refusal(member);
+                if (refusal != null) {
+                    statuses[i] = Status.REFUSED;
+                    messages[i] = refusal;
+                    return false;
+                }
+                kept[i] = new Kept(member);
+                switch (action) {
+                    case UPGRADE:
+                        ((RegularMember) member).movePlan(argument);
+                        break;
+                    case REVERT_REGULAR:
+                        ((RegularMember) member).clearPlan(argument);
+                        break;
+                    default:
+                        ((PremiumMember) member).clearPayment();
+                }
+                member.hold(this);
+                statuses[i] = Status.APPLIED;
+                return true;
+            }
+        }
+
+        private String refusal(GymMember member) {
+            if (action == Action.REVERT_PREMIUM) {
+                return member instanceof PremiumMember ? null : "Only Premium members can do this";
+            }
+            if (!(member instanceof RegularMember)) {
+                return "Only Regular members can do this";
+            }
+            if (action == Action.REVERT_REGULAR) {
+                return argument == null || argument.trim().isEmpty() ? "Please input the removal reason." : null;
+            }
+            RegularMember regularMember = (RegularMember) member;
+            try {
+                MemberService.checkUpgrade(regularMember, argument);
+            } catch (MemberServiceException e) {
+                return e.getMessage();
+            }
+            return regularMember.upgradeRefusal(argument);
+        }
+
+        Result result(boolean committed) {
+            for (int i = 0; i < ids.length; i++) {
+                if (statuses[i] == null) {
+                    statuses[i] = Status.NOT_APPLIED;
+                }
+            }
+            return new Result(action, committed, ids, statuses, messages);
+        }
+    }
+
+    // The fields of a member that the actions change, as they were before the run. An
+    // upgrade changes only the plan and price; the reverts also zero the progress.
+    private static final class Kept {
+        int attendance;
+        double loyaltyPoints;
+        boolean active;
+        String plan;
+        double price;
+        boolean eligible;
+        String removalReason;
+        int trainerCode;
+        double paid;
+        boolean fullPayment;
+        double discount;
+        double charge;
+
+        Kept(GymMember member) {
+            attendance = member.getAttendance();
+            loyaltyPoints = member.getLoyaltyPoints();
+            active = member.getActiveStatus();
+            if (member instanceof RegularMember) {
+                RegularMember regularMember = (RegularMember) member;
+                plan = regularMember.getPlan();
+                price = regularMember.getPrice();
+                eligible = regularMember.isEligibleForUpgrade();
+                removalReason = regularMember.getRemovalReason();
+            } else {
+                PremiumMember premiumMember = (PremiumMember) member;
+                trainerCode = premiumMember.getPersonalTrainerCode();
+                paid = premiumMember.getPaidAmount();
+                fullPayment = premiumMember.isFullPayment();
+                discount = premiumMember.getDiscountAmount();
+                charge = premiumMember.getPremiumCharge();
+            }
+        }
+
+        // Called with the member's lock held.
+        void restore(GymMember member, Action action) {
+            if (action == Action.UPGRADE) {
+                RegularMember regularMember = (RegularMember) member;
+                regularMember.restorePlan(plan, price, regularMember.isEligibleForUpgrade(),
+                        regularMember.getRemovalReason());
+                return;
+            }
+            member.restoreState(attendance, loyaltyPoints, active);
+            if (action == Action.REVERT_REGULAR) {
+                ((RegularMember) member).restorePlan(plan, price, eligible, removalReason);
+            } else {
+                ((PremiumMember) member).restorePayment(trainerCode, paid, fullPayment, discount, charge);
+            }
+        }
+    }
+
+    // Runs one pass over the members from index from to index to; returns how many failed.
+    private static final class Part extends RecursiveTask<Integer> {
+        private final Run run;
+        private final boolean apply;
+        private final int from;
+        private final int to;
+
+        Part(Run run, boolean apply, int from, int to) {
+            this.run = run;
+            this.apply = apply;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= SPLIT_SIZE) {
+                int failed = 0;
+                for (int i = from; i < to; i++) {
+                    if (!(apply ? run.apply(i) : run.check(i))) {
+                        failed++;
+                    }
+                }
+                return failed;
+            }
+            int middle = (from + to) >>> 1;
+            Part left = new Part(run, apply, from, middle);
+            left.fork();
+            int right = new Part(run, apply, middle, to).compute();
+            return left.join() + right;
+        }
+    }
+
+    /**
+     * The outcome of a bulk run for each member, in ascending ID order.
+     */
+    public static final class Result {
+        private final Action action;
+        private final boolean committed;
+        private final int[] ids;
+        private final Status[] statuses;
+        private final String[] messages;
+
+        Result(Action action, boolean committed, int[] ids, Status[] statuses, String[] messages) {
+            this.action = action;
+            this.committed = committed;
+            this.ids = ids;
+            this.statuses = statuses;
+            this.messages = messages;
+        }
+
+        public Action getAction() { return action; }
+
+        /**
+         * True if every member was changed; false if none was.
+         */
+        public boolean isCommitted() { return committed; }
+
+        public int size() { return ids.length; }
+        public int getId(int index) { return ids[index]; }
+        public Status getStatus(int index) { return statuses[index]; }
+
+        /**
+         * Why the member was refused or not found, or null.
+         */
+        public String getMessage(int index) { return messages[index]; }
+
+        public int count(Status status) {
+            int count = 0;
+            for (Status s : statuses) {
+                if (s == status) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(action.name()).append(committed ? " committed: " : " not applied: ");
+            text.append(count(Status.APPLIED)).append(" applied");
+            int refused = count(Status.REFUSED);
+            int notFound = count(Status.NOT_FOUND);
+            if (refused > 0) {
+                text.append(", ").append(refused).append(" refused");
+            }
+            if (notFound > 0) {
+                text.append(", ").append(notFound).append(" not found");
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,422 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The ColumnarRoster class is a compact, column-oriented copy of the roster meant for
+ * statistics and reports over very large member counts. Each field is a primitive
+ * array indexed by row instead of a field of a separate member object, so a scan such
+ * as total attendance reads one contiguous array.
+ *
+ * Key Features:
+ * - int[] IDs and attendance, double[] loyalty points and amounts, BitSets for the
+ *   active, upgrade-eligible and full-payment flags, and byte plan codes
+ * - Repeating text (location, gender, dates, referral source or trainer, removal
+ *   reason) is stored once in a StringDictionary of the roster and referenced by an
+ *   int code per row
+ * - Names, phone numbers and emails are packed as UTF-8 into one shared byte array
+ * - Row is a reusable flyweight cursor with the same getters as GymMember; real
+ *   RegularMember and PremiumMember objects are only built by toMember()
+ * - Implements MemberListener, so it can follow a MemberRepository change by change
+ *
+ * Implementation Details:
+ * - Rows are kept dense: removing a member moves the last row into the freed one
+ * - Plans use the codes of MappedMemberStore.PLANS; premium members use PREMIUM_PLAN
+ * - Replaced text is left in the byte array and reclaimed once it outweighs live text
+ * - The class is not thread-safe; build it from one repository and, when it follows
+ *   that repository, read it from the thread that changes the members
+ *
+ * Usage:
+ * ColumnarRoster roster = ColumnarRoster.of(members);
+ * long visits = roster.totalAttendance();
+ */
+public class ColumnarRoster implements MemberListener {
+    public static final byte PREMIUM_PLAN = (byte) 0xFF;
+
+    // Order of the dictionary-coded text columns.
+    private static final int LOCATION = 0, GENDER = 1, DOB = 2, START_DATE = 3,
+            SOURCE_OR_TRAINER = 4, REMOVAL_REASON = 5, CODED_COLUMNS = 6;
+    // Order of the packed text fields of a row.
+    private static final int NAME = 0, PHONE = 1, EMAIL = 2, PACKED_FIELDS = 3;
+
+    private final IntIndex rows = new IntIndex();
+    private int size;
+
+    private int[] ids;
+    private byte[] plans;
+    private int[] attendance;
+    private double[] loyaltyPoints;
+    private double[] prices;
+    private double[] paidAmounts;
+    private double[] discounts;
+    private final BitSet active = new BitSet();
+    private final BitSet eligible = new BitSet();
+    private final BitSet fullPayment = new BitSet();
+    private int[] codes;
+
+    private byte[] text;
+    private int textEnd;
+    private int textGarbage;
+    private int[] textStarts;
+
+    private final StringDictionary dictionary = new StringDictionary();
+
+    public ColumnarRoster() {
+        this(1024);
+    }
+
+    public ColumnarRoster(int expectedMembers) {
+        int capacity = Math.max(16, expectedMembers);
+        ids = new int[capacity];
+        plans = new byte[capacity];
+        attendance = new int[capacity];
+        loyaltyPoints = new double[capacity];
+        prices = new double[capacity];
+        paidAmounts = new double[capacity];
+        discounts = new double[capacity];
+        codes = new int[capacity * CODED_COLUMNS];
+        textStarts = new int[capacity * (PACKED_FIELDS + 1)];
+        text = new byte[capacity * 48];
+    }
+
+    /**
+     * Builds a columnar copy of every member in the repository.
+     */
+    public static ColumnarRoster of(MemberRepository members) {
+        GymMember[] all = members.toArray();
+        ColumnarRoster roster = new ColumnarRoster(all.length);
+        for (GymMember member : all) {
+            roster.put(member);
+        }
+        return roster;
+    }
+
+    public int size() { return size; }
+
+    /**
+     * Returns the row holding the member, or -1.
+     */
+    public int rowOf(int id) {
+        return rows.get(id);
+    }
+
+    /**
+     * Adds the member, or overwrites its row if the ID is already present.
+     */
+    public void put(GymMember member) {
+        int row = rows.get(member.getID());
+        if (row < 0) {
+            row = size;
+            ensureCapacity(row + 1);
+            rows.put(member.getID(), row);
+            ids[row] = member.getID();
+            size++;
+        } else {
+            textGarbage += textStarts[row * (PACKED_FIELDS + 1) + PACKED_FIELDS]
+                    - textStarts[row * (PACKED_FIELDS + 1)];
+        }
+        packText(row, member.getName(), member.getPhone(), member.getEmail());
+        int base = row * CODED_COLUMNS;
+        codes[base + LOCATION] = code(member.getLocation());
+        codes[base + GENDER] = code(member.getGender());
+        codes[base + DOB] = code(member.getDOB());
+        codes[base + START_DATE] = code(member.getMembershipStartDate());
+        updateState(row, member);
+        if (textGarbage > textEnd / 2) {
+            compactText();
+        }
+    }
+
+    public boolean remove(int id) {
+        int row = rows.remove(id);
+        if (row < 0) {
+            return false;
+        }
+        textGarbage += textStarts[row * (PACKED_FIELDS + 1) + PACKED_FIELDS] - textStarts[row * (PACKED_FIELDS + 1)];
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            plans[row] = plans[last];
+            attendance[row] = attendance[last];
+            loyaltyPoints[row] = loyaltyPoints[last];
+            prices[row] = prices[last];
+            paidAmounts[row] = paidAmounts[last];
+            discounts[row] = discounts[last];
+            active.set(row, active.get(last));
+            eligible.set(row, eligible.get(last));
+            fullPayment.set(row, fullPayment.get(last));
+            System.arraycopy(codes, last * CODED_COLUMNS, codes, row * CODED_COLUMNS, CODED_COLUMNS);
+            System.arraycopy(textStarts, last * (PACKED_FIELDS + 1), textStarts, row * (PACKED_FIELDS + 1),
+                    PACKED_FIELDS + 1);
+            rows.put(ids[row], row);
+        }
+        active.clear(last);
+        eligible.clear(last);
+        fullPayment.clear(last);
+        return true;
+    }
+
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        if (change == MemberChange.REMOVED) {
+            remove(member.getID());
+        } else if (change == MemberChange.ADDED) {
+            put(member);
+        } else {
+            int row = rows.get(member.getID());
+            if (row >= 0) {
+                updateState(row, member);
+            }
+        }
+    }
+
+    // Copies every field a mutator can change.
+    private void updateState(int row, GymMember member) {
+        attendance[row] = member.getAttendance();
+        loyaltyPoints[row] = member.getLoyaltyPoints();
+        active.set(row, member.getActiveStatus());
+        int base = row * CODED_COLUMNS;
+        if (member instanceof PremiumMember) {
+            PremiumMember p = (PremiumMember) member;
+            plans[row] = PREMIUM_PLAN;
+            prices[row] = p.getPremiumCharge();
+            paidAmounts[row] = p.getPaidAmount();
+            discounts[row] = p.getDiscountAmount();
+            eligible.clear(row);
+            fullPayment.set(row, p.isFullPayment());
+            codes[base + SOURCE_OR_TRAINER] = code(p.getPersonalTrainer());
+            codes[base + REMOVAL_REASON] = code("");
+        } else if (member instanceof RegularMember) {
+            RegularMember r = (RegularMember) member;
+            plans[row] = planCode(r.getPlan());
+            prices[row] = r.getPrice();
+            paidAmounts[row] = 0;
+            discounts[row] = r.getDiscountAmount();
+            eligible.set(row, r.isEligibleForUpgrade());
+            fullPayment.clear(row);
+            codes[base + SOURCE_OR_TRAINER] = code(r.getReferralSource());
+            codes[base + REMOVAL_REASON] = code(r.getRemovalReason());
+        }
+    }
+
+    // Aggregates. Each one walks a single primitive array or bit set.
+
+    public long totalAttendance() {
+        long total = 0;
+        int[] values = attendance;
+        for (int row = 0; row < size; row++) {
+            total += values[row];
+        }
+        return total;
+    }
+
+    public double totalLoyaltyPoints() {
+        double total = 0;
+        double[] values = loyaltyPoints;
+        for (int row = 0; row < size; row++) {
+            total += values[row];
+        }
+        return total;
+    }
+
+    public int activeCount() {
+        return active.cardinality();
+    }
+
+    public int eligibleCount() {
+        return eligible.cardinality();
+    }
+
+    public double totalNetAmountPaid() {
+        double total = 0;
+        for (int row = 0; row < size; row++) {
+            if (plans[row] == PREMIUM_PLAN) {
+                total += paidAmounts[row] - discounts[row];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Counts members per plan: one entry per MappedMemberStore.PLANS, then premium.
+     */
+    public int[] countByPlan() {
+        int[] counts = new int[MappedMemberStore.PLANS.length + 1];
+        for (int row = 0; row < size; row++) {
+            byte plan = plans[row];
+            counts[plan == PREMIUM_PLAN ? MappedMemberStore.PLANS.length : plan]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns a cursor positioned on the row. Use moveTo() to reuse it for other rows.
+     */
+    public Row row(int row) {
+        return new Row().moveTo(row);
+    }
+
+    /**
+     * Builds a member object with the contents of the row.
+     */
+    public GymMember toMember(int row) {
+        return row(row).toMember();
+    }
+
+    /**
+     * Estimated bytes held by the columns, the text and the dictionary.
+     */
+    public long estimatedBytes() {
+        long bytes = (long) ids.length * (4 + 1 + 4 + 8 + 8 + 8 + 8)
+                + (long) codes.length * 4 + (long) textStarts.length * 4 + text.length
+                + 3L * (ids.length / 8);
+        for (int code = 1; code < dictionary.size(); code++) {
+            bytes += 56 + dictionary.get(code).length();
+        }
+        return bytes;
+    }
+
+    /**
+     * A flyweight view of one row. Getters read the columns directly; nothing is copied.
+     */
+    public final class Row {
+        private int row;
+
+        private Row() {
+        }
+
+        public Row moveTo(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+            }
+            this.row = row;
+            return this;
+        }
+
+        public int getRow() { return row; }
+        public int getID() { return ids[row]; }
+        public boolean isPremium() { return plans[row] == PREMIUM_PLAN; }
+        public String getName() { return packed(row, NAME); }
+        public String getPhone() { return packed(row, PHONE); }
+        public String getEmail() { return packed(row, EMAIL); }
+        public String getLocation() { return coded(row, LOCATION); }
+        public String getGender() { return coded(row, GENDER); }
+        public String getDOB() { return coded(row, DOB); }
+        public String getMembershipStartDate() { return coded(row, START_DATE); }
+        public int getAttendance() { return attendance[row]; }
+        public double getLoyaltyPoints() { return loyaltyPoints[row]; }
+        public boolean getActiveStatus() { return active.get(row); }
+        public String getPlan() { return isPremium() ? "Premium" : MappedMemberStore.PLANS[plans[row]]; }
+        public double getPrice() { return prices[row]; }
+        public boolean isEligibleForUpgrade() { return eligible.get(row); }
+        public boolean isFullPayment() { return fullPayment.get(row); }
+        public double getPaidAmount() { return paidAmounts[row]; }
+        public double getDiscountAmount() { return discounts[row]; }
+        public double getNetAmountPaid() { return isPremium() ? paidAmounts[row] - discounts[row] : 0; }
+        public String getReferralSource() { return isPremium() ? "" : coded(row, SOURCE_OR_TRAINER); }
+        public String getPersonalTrainer() { return isPremium() ? coded(row, SOURCE_OR_TRAINER) : ""; }
+        public String getRemovalReason() { return coded(row, REMOVAL_REASON); }
+
+        public GymMember toMember() {
+            GymMember member;
+            if (isPremium()) {
+                PremiumMember p = new PremiumMember(getID(), getName(), getLocation(), getPhone(), getEmail(),
+                        getGender(), getDOB(), getMembershipStartDate(), getPersonalTrainer());
+                p.restorePayment(getPersonalTrainer(), getPaidAmount(), isFullPayment(), getDiscountAmount(), getPrice());
+                member = p;
+            } else {
+                RegularMember r = new RegularMember(getID(), getName(), getLocation(), getPhone(), getEmail(),
+                        getGender(), getDOB(), getMembershipStartDate(), getReferralSource());
+                r.restorePlan(getPlan(), getPrice(), isEligibleForUpgrade(), getRemovalReason());
+                member = r;
+            }
+            member.restoreState(getAttendance(), getLoyaltyPoints(), getActiveStatus());
+            return member;
+        }
+    }
+
+    private String coded(int row, int column) {
+        return dictionary.get(codes[row * CODED_COLUMNS + column]);
+    }
+
+    private String packed(int row, int field) {
+        int base = row * (PACKED_FIELDS + 1) + field;
+        int start = textStarts[base];
+        return new String(text, start, textStarts[base + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    private int code(String value) {
+        return dictionary.code(value);
+    }
+
+    private static byte planCode(String plan) {
+        for (int i = 0; i < MappedMemberStore.PLANS.length; i++) {
+            if (MappedMemberStore.PLANS[i].equalsIgnoreCase(plan)) {
+                return (byte) i;
+            }
+        }
+        return 0;
+    }
+
+    private void packText(int row, String name, String phone, String email) {
+        int base = row * (PACKED_FIELDS + 1);
+        textStarts[base + NAME] = appendText(name);
+        textStarts[base + PHONE] = appendText(phone);
+        textStarts[base + EMAIL] = appendText(email);
+        textStarts[base + PACKED_FIELDS] = textEnd;
+    }
+
+    private int appendText(String value) {
+        int start = textEnd;
+        if (value == null || value.isEmpty()) {
+            return start;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (textEnd + bytes.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length << 1, textEnd + bytes.length));
+        }
+        System.arraycopy(bytes, 0, text, textEnd, bytes.length);
+        textEnd += bytes.length;
+        return start;
+    }
+
+    // Rewrites the packed text in row order, dropping the text of replaced and removed rows.
+    private void compactText() {
+        byte[] compacted = new byte[Math.max(64, textEnd - textGarbage + 64)];
+        int end = 0;
+        for (int row = 0; row < size; row++) {
+            int base = row * (PACKED_FIELDS + 1);
+            int start = textStarts[base];
+            int length = textStarts[base + PACKED_FIELDS] - start;
+            System.arraycopy(text, start, compacted, end, length);
+            for (int field = 0; field <= PACKED_FIELDS; field++) {
+                textStarts[base + field] += end - start;
+            }
+            end += length;
+        }
+        text = compacted;
+        textEnd = end;
+        textGarbage = 0;
+    }
+
+    private void ensureCapacity(int rowsNeeded) {
+        if (rowsNeeded <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(rowsNeeded, ids.length << 1);
+        ids = Arrays.copyOf(ids, capacity);
+        plans = Arrays.copyOf(plans, capacity);
+        attendance = Arrays.copyOf(attendance, capacity);
+        loyaltyPoints = Arrays.copyOf(loyaltyPoints, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        paidAmounts = Arrays.copyOf(paidAmounts, capacity);
+        discounts = Arrays.copyOf(discounts, capacity);
+        codes = Arrays.copyOf(codes, capacity * CODED_COLUMNS);
+        textStarts = Arrays.copyOf(textStarts, capacity * (PACKED_FIELDS + 1));
+    }
+}
@@ -1,3 +1,7 @@
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 /**
  * Project: VR Fitness Studio - Gym Management System
@@ -15,11 +19,25 @@
  * - Abstract method for marking attendance (implemented differently by subclasses)
  * - Member reset mechanism used during reversion
  * - Basic display method for command-line reporting
+ * - Change tracking so only modified members are written on the next save
+ * - Change notification to the listeners of the owning MemberRepository
+ * - Attendance and loyalty counters that several check-in terminals can update at once
+ * - Location and gender are stored as codes into StringDictionary.MEMBER_FIELDS
+ * - Date of birth and membership start are stored as epoch days (see MemberDates), parsed
+ *   once when the member is created; text that is not a date is kept as given
+ * - Bulk attendance: a batch of visits is applied with one update and one change event
+ * - A bulk run can hold the member until it commits or rolls back; every change made
+ *   through the public methods waits for that
  *
  * Implementation Details:
  * - Serves as a base class with shared functionality and enforced method contracts
  * - Abstract `markAttendance()` must be defined by subclasses
  * - Additional methods are stubbed for GUI compatibility and overridden in subclasses
+ * - attendance is updated atomically and loyalty points with a compare-and-set loop on
+ *   their raw bits, so concurrent visits are never lost
+ * - The public methods that change a member hold its lock, wait in awaitRelease() while
+ *   a bulk run holds it, and announce the change before letting go of the lock, so
+ *   listeners hear about changes to one member in the order they were made
  *
  * Usage:
  * This class should be extended by any specific member types (e.g., RegularMember, PremiumMember)
@@ -37,74 +55,214 @@
 
 
 public abstract class GymMember {
+    private static final AtomicIntegerFieldUpdater<GymMember> ATTENDANCE =
+            AtomicIntegerFieldUpdater.newUpdater(GymMember.class, "attendance");
+    private static final AtomicLongFieldUpdater<GymMember> LOYALTY_BITS =
+            AtomicLongFieldUpdater.newUpdater(GymMember.class, "loyaltyBits");
+
     protected int id;
-    protected String DOB;
+    protected int dobEpochDay;
     protected String name;
-    protected String membershipStartDate;
-    protected String location;
-    protected int attendance;
+    protected int startEpochDay;
+    protected int locationCode;
+    protected volatile int attendance;
     protected String phone;
-    protected double loyaltyPoints;
+    private volatile long loyaltyBits;
     protected String email;
-    protected boolean activeStatus;
-    protected String gender;
+    protected volatile boolean activeStatus;
+    protected int genderCode;
+    private volatile boolean dirty = true;
+    // The original text of a date, kept only when it is not the formatted epoch day.
+    private String dobText;
+    private String startDateText;
+    private MemberRepository owner;
+    // The bulk run holding the member, or null; guarded by the member's lock.
+    private Object holder;
 
     public GymMember(int id, String name, String location, String phone, String email, 
                     String gender, String DOB, String membershipStartDate) {
         this.id = id;
         this.name = name;
-        this.location = location;
+        this.locationCode = StringDictionary.MEMBER_FIELDS.code(location);
         this.phone = phone;
         this.email = email;
-        this.gender = gender;
-        this.DOB = DOB;
-        this.membershipStartDate = membershipStartDate;
+        this.genderCode = StringDictionary.MEMBER_FIELDS.code(gender);
+        this.dobEpochDay = MemberDates.parse(DOB);
+        this.dobText = unlessFormatted(DOB, dobEpochDay);
+        this.startEpochDay = MemberDates.parse(membershipStartDate);
+        this.startDateText = unlessFormatted(membershipStartDate, startEpochDay);
         this.attendance = 0;
-        this.loyaltyPoints = 0;
+        this.loyaltyBits = Double.doubleToRawLongBits(0);
         this.activeStatus = true;
     }
 
     // Getters
     public int getID() { return id; }
     public String getName() { return name; }
-    public String getLocation() { return location; }
+    public String getLocation() { return StringDictionary.MEMBER_FIELDS.get(locationCode); }
     public String getPhone() { return phone; }
     public String getEmail() { return email; }
-    public String getGender() { return gender; }
-    public String getDOB() { return DOB; }
-    public String getMembershipStartDate() { return membershipStartDate; }
+    public String getGender() { return StringDictionary.MEMBER_FIELDS.get(genderCode); }
+    public String getDOB() { return dobText != null ? dobText : MemberDates.format(dobEpochDay); }
+    public String getMembershipStartDate() {
+        return startDateText != null ? startDateText : MemberDates.format(startEpochDay);
+    }
+    // Appends getMembershipStartDate() without creating a String, for bulk writers.
+    public StringBuilder appendMembershipStartDate(StringBuilder out) {
+        return startDateText != null ? out.append(startDateText) : MemberDates.appendTo(out, startEpochDay);
+    }
+    public int getDOBEpochDay() { return dobEpochDay; }
+    public int getMembershipStartEpochDay() { return startEpochDay; }
+    public LocalDate getDOBDate() { return MemberDates.toLocalDate(dobEpochDay); }
+    public LocalDate getMembershipStartLocalDate() { return MemberDates.toLocalDate(startEpochDay); }
     public int getAttendance() { return attendance; }
     public int getAttendanceCount() { return attendance; }
-    public double getLoyaltyPoints() { return loyaltyPoints; }
+    public double getLoyaltyPoints() { return Double.longBitsToDouble(loyaltyBits); }
     public boolean getActiveStatus() { return activeStatus; }
+    public int getLocationCode() { return locationCode; }
+    public int getGenderCode() { return genderCode; }
+    public boolean isDirty() { return dirty; }
+
+    private static String unlessFormatted(String text, int epochDay) {
+        return text == null || text.equals(MemberDates.format(epochDay)) ? null : text;
+    }
 
     public abstract void markAttendance();
 
-    public void activeMembership() {
+    // Counts several visits at once, as delivered by a turnstile batch. Returns the
+    // number of visits recorded, which is 0 for an inactive member.
+    public abstract int markAttendance(int visits);
+
+    // Counts visits and adds the loyalty points for them; safe to call from several
+    // threads at once. Returns the new loyalty point total.
+    protected double recordVisits(int visits, double pointsPerVisit) {
+        ATTENDANCE.addAndGet(this, visits);
+        return addLoyaltyPoints(visits * pointsPerVisit);
+    }
+
+    private double addLoyaltyPoints(double points) {
+        while (true) {
+            long current = loyaltyBits;
+            double updated = Double.longBitsToDouble(current) + points;
+            if (LOYALTY_BITS.compareAndSet(this, current, Double.doubleToRawLongBits(updated))) {
+                return updated;
+            }
+        }
+    }
+
+    public synchronized void activeMembership() {
+        awaitRelease();
         activeStatus = true;
+        changed(MemberChange.ACTIVATED);
     }
 
-    public void deactivateMembership() {
+    public synchronized void deactivateMembership() {
+        awaitRelease();
         activeStatus = false;
+        changed(MemberChange.DEACTIVATED);
+    }
+
+    public synchronized void resetMember() {
+        awaitRelease();
+        clearProgress();
+        changed(MemberChange.RESET);
     }
 
-    public void resetMember() {
+    // Zeroes status, points and attendance without announcing it; the revert methods
+    // use this and then report the whole reversion as a single change.
+    protected void clearProgress() {
         activeStatus = false;
-        loyaltyPoints = 0;
+        loyaltyBits = Double.doubleToRawLongBits(0);
         attendance = 0;
     }
 
+    // Marks the member dirty and tells the listeners of the repository holding it.
+    protected void changed(MemberChange change) {
+        dirty = true;
+        MemberRepository repository = owner;
+        if (repository != null) {
+            repository.fireChanged(this, change);
+        }
+    }
+
+    // Flags the member as changed since it was last written by MemberSaveEngine.
+    protected void markDirty() {
+        dirty = true;
+    }
+
+    // Keeps every other change away from the member until release(); BulkOperations
+    // calls this with the member's lock held.
+    void hold(Object run) {
+        holder = run;
+    }
+
+    synchronized void release() {
+        holder = null;
+        notifyAll();
+    }
+
+    // Waits, with the member's lock held, until no bulk run holds the member. The lock is
+    // given up while waiting; in a ForkJoinPool the pool may start a spare worker, so a
+    // held member never starves the run that holds it.
+    void awaitRelease() {
+        if (holder == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (holder != null) {
+            try {
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    public boolean block() throws InterruptedException {
+                        if (holder != null) {
+                            GymMember.this.wait();
+                        }
+                        return holder == null;
+                    }
+
+                    public boolean isReleasable() {
+                        return holder == null;
+                    }
+                });
+            } catch (InterruptedException e) {
+                // The change has to be made, so the interrupt is kept for later.
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void clearDirty() {
+        dirty = false;
+    }
+
+    void setOwner(MemberRepository owner) {
+        this.owner = owner;
+    }
+
+    MemberRepository getOwner() {
+        return owner;
+    }
+
+    // Used when rebuilding a member from saved data; does not count as a change.
+    void restoreState(int attendance, double loyaltyPoints, boolean activeStatus) {
+        this.attendance = attendance;
+        this.loyaltyBits = Double.doubleToRawLongBits(loyaltyPoints);
+        this.activeStatus = activeStatus;
+    }
+
     public void display() {
         System.out.println("ID: " + id);
         System.out.println("Name: " + name);
-        System.out.println("DOB: " + DOB);
-        System.out.println("Location: " + location);
+        System.out.println("DOB: " + getDOB());
+        System.out.println("Location: " + getLocation());
         System.out.println("Phone: " + phone);
         System.out.println("Email: " + email);
-        System.out.println("Gender: " + gender);
+        System.out.println("Gender: " + getGender());
         System.out.println("Attendance: " + attendance);
-        System.out.println("Membership Start Date: " + membershipStartDate);
-        System.out.println("Loyalty Points: " + loyaltyPoints);
+        System.out.println("Membership Start Date: " + getMembershipStartDate());
+        System.out.println("Loyalty Points: " + getLoyaltyPoints());
         System.out.println("Active Status: " + activeStatus);
     }
     
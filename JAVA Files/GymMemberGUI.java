@@ -1,11 +1,16 @@
 
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.List;
 import java.io.*;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
 /**
  * Project: VR Fitness Studio - Gym Management System
  * Author: Abhishek Kumar Thakur
@@ -18,18 +23,30 @@ import java.io.*;
  *
  * Key Features:
  * - GUI-based registration form for Regular and Premium members
- * - Attendance marking and loyalty point tracking
+ * - Attendance marking and loyalty point tracking, including bulk import of turnstile check-in feeds
  * - Membership activation and deactivation
  * - Plan upgrades and premium reversion functionality
+ * - Bulk Action upgrades or reverts every member shown in the table at once, all or nothing
+ * - Undo and Redo take back or repeat the desk's latest change; Audit Trail lists who
+ *   changed a member (or the roster) and when, from the audit log in GYMGUI/audit
  * - Payment handling with discount calculation for Premium members
- * - Data persistence through file save and read functionality
+ * - Data persistence through file save and read functionality (changed members only, saved in the background)
+ * - Crash recovery: every change is journaled and the roster is restored on startup
+ * - GYMGUI/members.dat holds a memory-mapped binary copy of the roster, updated in place
+ * - Visit times are kept by AttendanceHistory, logged as they happen and saved with the roster and on exit
+ * - Prices and loyalty rules come from GYMGUI/pricing.properties and are re-applied when it changes
+ * - An Occupancy tab shows live check-ins, the in-gym estimate and today's busiest hours
  * - Distinct input sections based on member type with validation
  * 
  * Implementation Details:
  * - Built using Java Swing components (JFrame, JPanel, JButton, JComboBox, JTextField, etc.)
  * - Uses event-driven programming via ActionListeners
+ * - File I/O and whole-roster work run on BackgroundTask workers, off the Event Dispatch Thread
+ * - The roster is shown in a sortable, filterable JTable backed by MemberTableModel
  * - Applies OOP concepts including encapsulation, inheritance, and polymorphism
- * - Stores member data using an ArrayList for runtime and writes to a text file for persistence
+ * - Stores member data in a MemberRepository (ID-indexed) at runtime and writes to a text file for persistence
+ * - Membership rules live in MemberService; this class collects input and shows the results,
+ *   and MemberHttpServer can serve the same roster to kiosks (-Dgym.http.port=8080)
  * 
  * Usage:
  * This class should be run as the main GUI class to handle all front-end operations
@@ -48,7 +65,16 @@ import java.io.*;
 
 
 public class GymMemberGUI extends JFrame {
-    private List<GymMember> members = new ArrayList<>();
+    private static final int SEARCH_DELAY_MS = 150;
+    private static final String[] DASHBOARD_LABELS = {
+        "Members", "Active members", "Regular / Premium", "Eligible for upgrade",
+        "Premium revenue collected", "Outstanding premium dues", "Discounts granted", "Regular plans",
+        "Visits today", "Busiest hour (last 30 days)"
+    };
+
+    private MemberRepository members = new MemberRepository();
+    private MemberService service;
+    private MemberHttpServer httpServer;
     private JTextArea displayArea;
     private JTextField idField, nameField, locationField, phoneField, emailField;
     private JComboBox<String> dayCombo, monthCombo, yearCombo;
@@ -59,12 +85,31 @@ public class GymMemberGUI extends JFrame {
     private JComboBox<String> planCombo;
     private JTextField planCharge,removal;
     private JTextField actionIdField;
-    private boolean firstTimeSave = true;
+    private MemberTableModel tableModel;
+    private JTable memberTable;
+    private JTabbedPane viewTabs;
+    private JComboBox<String> viewFilterCombo;
+    private JTextField searchField;
+    private JLabel searchStatus;
+    private Timer searchTimer;
+    private SwingWorker<RowFilter<MemberTableModel, Integer>, Void> searchWorker;
+    private JLabel[] dashboardValues;
+    private long dashboardVersion = -1;
+    private RowFilter<MemberTableModel, Integer> searchFilter;
+    private MemberSaveEngine saveEngine = new MemberSaveEngine(new File(MemberFileFormat.DIRECTORY));
+    private MemberJournal journal = new MemberJournal(new File(MemberFileFormat.DIRECTORY));
+    private MappedMemberStore memberStore;
+    private File attendanceFile = new File(MemberFileFormat.DIRECTORY, AttendanceHistory.FILE_NAME);
+    private PricingEngine pricing = new PricingEngine(members, new File(MemberFileFormat.DIRECTORY, PricingRules.FILE_NAME));
 
     private JButton addButton, displayButton;
     private JButton markAttendanceButton, activateButton, deactivateButton, discountButton;
     private JButton payDueButton, upgradePlanButton, revertpButton, revertrButton, clearButton;
-    private JButton saveButton, readButton;
+    private JButton saveButton, readButton, importButton, reportButton, bulkButton;
+    private JButton undoButton, redoButton, auditButton;
+
+    // Changes made from this window are recorded in the audit log under this name.
+    private static final String DESK_ACTOR = "desk " + System.getProperty("user.name");
 
     public GymMemberGUI() {
         setTitle("VR Fitness Studio");
@@ -76,12 +121,18 @@ public class GymMemberGUI extends JFrame {
         mainPanel.add(createButtonPanel(), BorderLayout.CENTER);
 
         JPanel bottomPanel = new JPanel(new BorderLayout());
-        bottomPanel.add(new JScrollPane(displayArea = new JTextArea()), BorderLayout.CENTER);
+        bottomPanel.add(createViewPanel(), BorderLayout.CENTER);
         
         JPanel bottomButtonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         bottomButtonPanel.add(clearButton = new JButton("Clear All Fields"));
         bottomButtonPanel.add(saveButton = new JButton("Save to File"));
         bottomButtonPanel.add(readButton = new JButton("Read from File"));
+        bottomButtonPanel.add(importButton = new JButton("Import Check-ins"));
+        bottomButtonPanel.add(reportButton = new JButton("Export Report"));
+        bottomButtonPanel.add(bulkButton = new JButton("Bulk Action"));
+        bottomButtonPanel.add(undoButton = new JButton("Undo"));
+        bottomButtonPanel.add(redoButton = new JButton("Redo"));
+        bottomButtonPanel.add(auditButton = new JButton("Audit Trail"));
         
         bottomPanel.add(bottomButtonPanel, BorderLayout.SOUTH);
         mainPanel.add(bottomPanel, BorderLayout.SOUTH);
@@ -89,6 +140,107 @@ public class GymMemberGUI extends JFrame {
         displayArea.setEditable(false);
         add(mainPanel);
         setupEventHandlers();
+
+        // The rules come first, so members recovered from older journals, which have no
+        // premium charge saved, are owed the charge in force rather than the default.
+        pricing.start();
+        if (pricing.getLastError() != null) {
+            showError("Pricing rules not loaded, using the defaults: " + pricing.getLastError());
+        }
+        openJournal();
+        openMemberStore();
+        // Created after recovery: replaying the journal restores members without
+        // change events, so the service's indexes and metrics start from the result.
+        MemberAuditLog.setThreadActor(DESK_ACTOR);
+        service = new MemberService(members, openAttendanceHistory(), openAuditLog());
+        viewTabs.addTab("Occupancy", new OccupancyPanel(service.getOccupancy()));
+        startDashboard();
+        startHttpServer();
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                if (httpServer != null) {
+                    httpServer.stop();
+                }
+                pricing.stop();
+                journal.close();
+                closeMemberStore();
+                service.getAuditLog().close();
+                saveEngine.shutdown();
+                try {
+                    service.getAttendanceHistory().save(attendanceFile);
+                    service.getAttendanceHistory().close();
+                } catch (IOException ex) {
+                    showError("Could not save the attendance history: " + ex.getMessage());
+                }
+            }
+        });
+    }
+
+    // Visit times are not in the journal; they come from the history file and the visits
+    // logged since it was saved, so a crash does not lose them.
+    private AttendanceHistory openAttendanceHistory() {
+        try {
+            return AttendanceHistory.open(attendanceFile);
+        } catch (IOException e) {
+            showError("Could not read the attendance history, keeping it in memory only: " + e.getMessage());
+            return new AttendanceHistory();
+        }
+    }
+
+    // Kept across runs so the audit trail covers earlier sessions too.
+    private MemberAuditLog openAuditLog() {
+        try {
+            return MemberAuditLog.open(new File(MemberFileFormat.DIRECTORY, MemberAuditLog.DIRECTORY_NAME));
+        } catch (IOException e) {
+            showError("Could not open the audit log, keeping it in memory only: " + e.getMessage());
+            return new MemberAuditLog();
+        }
+    }
+
+    // Restores the roster recorded by the journal, then journals every further change.
+    private void openJournal() {
+        try {
+            journal.recover(members);
+            members.addListener(journal);
+            journal.start();
+        } catch (IOException e) {
+            showError("Could not open the member journal: " + e.getMessage());
+        }
+    }
+
+    // Keeps GYMGUI/members.dat, the binary copy of the roster, in step with every change.
+    private void openMemberStore() {
+        try {
+            memberStore = MappedMemberStore.mirror(new File(MemberFileFormat.DIRECTORY), members);
+        } catch (IOException e) {
+            showError("Could not open the binary member store: " + e.getMessage());
+        }
+    }
+
+    private void closeMemberStore() {
+        if (memberStore == null) {
+            return;
+        }
+        members.removeListener(memberStore);
+        try {
+            memberStore.close();
+        } catch (IOException e) {
+            showError("Could not close the binary member store: " + e.getMessage());
+        }
+    }
+
+    // Kiosks and scripts reach the same roster over HTTP when -Dgym.http.port is given.
+    private void startHttpServer() {
+        String port = System.getProperty("gym.http.port");
+        if (port == null) {
+            return;
+        }
+        try {
+            httpServer = new MemberHttpServer(service, Integer.parseInt(port));
+            httpServer.start();
+        } catch (IOException | NumberFormatException e) {
+            showError("Could not start the member API on port " + port + ": " + e.getMessage());
+        }
     }
 
     private JPanel createRegistrationPanel() {
@@ -143,6 +295,203 @@ public class GymMemberGUI extends JFrame {
         return panel;
     }
 
+    // Roster table (rows are read lazily from the repository) plus the activity log.
+    private JTabbedPane createViewPanel() {
+        tableModel = new MemberTableModel(members);
+        memberTable = new JTable(tableModel);
+        memberTable.setAutoCreateRowSorter(true);
+        memberTable.setFillsViewportHeight(true);
+        memberTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        memberTable.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int row = memberTable.getSelectedRow();
+                if (e.getClickCount() == 2 && row >= 0) {
+                    GymMember member = tableModel.getMemberAt(memberTable.convertRowIndexToModel(row));
+                    actionIdField.setText(String.valueOf(member.getID()));
+                }
+            }
+        });
+
+        viewFilterCombo = new JComboBox<>(new String[] {"All Members", "Regular", "Premium", "Active", "Inactive",
+                "Joined This Month", "Birthdays Today"});
+        viewFilterCombo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                applyViewFilter();
+            }
+        });
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Show:"));
+        filterPanel.add(viewFilterCombo);
+        filterPanel.add(new JLabel("Search:"));
+        searchField = new JTextField(15);
+        searchField.setToolTipText("Any part of a name, phone number or email");
+        // Searches once typing pauses; Enter searches at once.
+        searchTimer = new Timer(SEARCH_DELAY_MS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                startSearch();
+            }
+        });
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
+            public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+            public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+        });
+        searchField.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                searchTimer.stop();
+                startSearch();
+            }
+        });
+        filterPanel.add(searchField);
+        filterPanel.add(searchStatus = new JLabel());
+        filterPanel.add(new JLabel("(double-click a row to select the member)"));
+
+        JPanel tablePanel = new JPanel(new BorderLayout());
+        tablePanel.add(filterPanel, BorderLayout.NORTH);
+        JScrollPane tableScroll = new JScrollPane(memberTable);
+        tableScroll.setPreferredSize(new Dimension(950, 220));
+        tablePanel.add(tableScroll, BorderLayout.CENTER);
+
+        viewTabs = new JTabbedPane();
+        viewTabs.addTab("Members", tablePanel);
+        viewTabs.addTab("Activity", new JScrollPane(displayArea = new JTextArea()));
+        viewTabs.addTab("Dashboard", createDashboardPanel());
+        return viewTabs;
+    }
+
+    private JPanel createDashboardPanel() {
+        JPanel panel = new JPanel(new GridLayout(0, 2, 10, 6));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        dashboardValues = new JLabel[DASHBOARD_LABELS.length];
+        for (int i = 0; i < DASHBOARD_LABELS.length; i++) {
+            panel.add(new JLabel(DASHBOARD_LABELS[i] + ":"));
+            panel.add(dashboardValues[i] = new JLabel("-"));
+        }
+        JPanel wrapper = new JPanel(new BorderLayout());
+        wrapper.add(panel, BorderLayout.NORTH);
+        return wrapper;
+    }
+
+    // The totals are kept up to date by MemberMetrics, so a refresh only reads a snapshot.
+    private void startDashboard() {
+        Timer timer = new Timer(1000, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                refreshDashboard();
+            }
+        });
+        timer.setInitialDelay(0);
+        timer.start();
+    }
+
+    private void refreshDashboard() {
+        MemberMetrics.Snapshot metrics = service.getMetrics().snapshot();
+        if (metrics.getVersion() == dashboardVersion) {
+            return;
+        }
+        dashboardVersion = metrics.getVersion();
+        dashboardValues[0].setText(String.valueOf(metrics.getMembers()));
+        dashboardValues[1].setText(String.valueOf(metrics.getActiveMembers()));
+        dashboardValues[2].setText(metrics.getRegularMembers() + " / " + metrics.getPremiumMembers());
+        dashboardValues[3].setText(String.valueOf(metrics.getUpgradeEligible()));
+        dashboardValues[4].setText(String.format("Rs. %.2f", metrics.getPremiumPaid()));
+        dashboardValues[5].setText(String.format("Rs. %.2f", metrics.getOutstandingDues()));
+        dashboardValues[6].setText(String.format("Rs. %.2f", metrics.getDiscountsGranted()));
+        dashboardValues[7].setText(metrics.getPlanDistribution().toString());
+
+        AttendanceHistory history = service.getAttendanceHistory();
+        LocalDate today = LocalDate.now();
+        dashboardValues[8].setText(String.valueOf(history.rollup(today.atStartOfDay(),
+                today.plusDays(1).atStartOfDay(), AttendanceHistory.Resolution.DAY)[0]));
+        int[] hours = history.hourOfDayProfile(today.minusDays(29), today);
+        int busiest = 0;
+        for (int hour = 1; hour < hours.length; hour++) {
+            if (hours[hour] > hours[busiest]) {
+                busiest = hour;
+            }
+        }
+        dashboardValues[9].setText(hours[busiest] == 0 ? "-"
+                : String.format("%02d:00-%02d:00 (%d visits)", busiest, busiest + 1, hours[busiest]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyViewFilter() {
+        TableRowSorter<MemberTableModel> sorter =
+            (TableRowSorter<MemberTableModel>) memberTable.getRowSorter();
+        RowFilter<MemberTableModel, Integer> filter;
+        switch (viewFilterCombo.getSelectedIndex()) {
+            case 1: filter = RowFilter.regexFilter("^Regular$", 2); break;
+            case 2: filter = RowFilter.regexFilter("^Premium$", 2); break;
+            case 3: filter = RowFilter.regexFilter("^Active$", 10); break;
+            case 4: filter = RowFilter.regexFilter("^Inactive$", 10); break;
+            case 5: filter = memberFilter(service.findJoinedBetween(
+                        LocalDate.now().withDayOfMonth(1), LocalDate.now())); break;
+            case 6: filter = memberFilter(service.findBirthdays(LocalDate.now())); break;
+            default: filter = null;
+        }
+        if (searchFilter != null) {
+            filter = filter == null ? searchFilter : RowFilter.andFilter(Arrays.asList(filter, searchFilter));
+        }
+        sorter.setRowFilter(filter);
+    }
+
+    // Runs the search box query on a worker thread. A search still running when the next
+    // one starts is cancelled, and its result is dropped even if it has already finished.
+    private void startSearch() {
+        if (searchWorker != null) {
+            searchWorker.cancel(true);
+            searchWorker = null;
+        }
+        final String text = searchField.getText().trim();
+        if (text.isEmpty()) {
+            searchFilter = null;
+            searchStatus.setText("");
+            applyViewFilter();
+            return;
+        }
+        searchWorker = new SwingWorker<RowFilter<MemberTableModel, Integer>, Void>() {
+            private List<GymMember> found;
+
+            protected RowFilter<MemberTableModel, Integer> doInBackground() {
+                found = service.search(MemberQuery.fragment(text));
+                return memberFilter(found);
+            }
+
+            protected void done() {
+                if (searchWorker != this || isCancelled()) {
+                    return;
+                }
+                searchWorker = null;
+                try {
+                    searchFilter = get();
+                } catch (InterruptedException | java.util.concurrent.ExecutionException e) {
+                    searchStatus.setText("Search failed");
+                    return;
+                }
+                searchStatus.setText(found.size() + (found.size() == 1 ? " match" : " matches"));
+                if (found.size() == 1) {
+                    actionIdField.setText(String.valueOf(found.get(0).getID()));
+                }
+                applyViewFilter();
+            }
+        };
+        searchWorker.execute();
+    }
+
+    // Shows only the given members; rows are matched by member ID. Safe to build off the EDT.
+    private RowFilter<MemberTableModel, Integer> memberFilter(java.util.List<GymMember> shown) {
+        final IntIndex ids = new IntIndex();
+        for (GymMember member : shown) {
+            ids.put(member.getID(), 0);
+        }
+        return new RowFilter<MemberTableModel, Integer>() {
+            public boolean include(Entry<? extends MemberTableModel, ? extends Integer> entry) {
+                GymMember member = entry.getModel().getMemberAt(entry.getIdentifier());
+                return member != null && ids.containsKey(member.getID());
+            }
+        };
+    }
+
     private JPanel createButtonPanel() {
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
         panel.setBorder(BorderFactory.createTitledBorder("Actions"));
@@ -204,7 +553,7 @@ premiumRadio.addActionListener(new ActionListener() {
         revertpButton.setEnabled(true);
         revertrButton.setEnabled(false);
 
-        planCharge.setText("50000");
+        planCharge.setText(String.valueOf(PricingRules.current().getPremiumCharge()));
         planCharge.setEditable(false);
 
         // Enable Premium-only buttons
@@ -264,25 +613,15 @@ premiumRadio.addActionListener(new ActionListener() {
             );
             
             if (confirm == JOptionPane.YES_OPTION) {
-                PremiumMember premiumMember = (PremiumMember) member;
-                premiumMember.revertPremiumMember();
-                members.remove(premiumMember);
-                
-                RegularMember regularMember = new RegularMember(
-                    premiumMember.getID(),
-                    premiumMember.getName(),
-                    premiumMember.getLocation(),
-                    premiumMember.getPhone(),
-                    premiumMember.getEmail(),
-                    premiumMember.getGender(),
-                    premiumMember.getDOB(),
-                    premiumMember.getMembershipStartDate(),
-                    "Converted from Premium"
-                );
-                members.add(regularMember);
+                try {
+                    service.convertToRegular(member.getID());
+                } catch (MemberServiceException ex) {
+                    showError(ex.getMessage());
+                    return;
+                }
                 
                 JOptionPane.showMessageDialog(GymMemberGUI.this, 
-                    "Premium Member '" + premiumMember.getName() + 
+                    "Premium Member '" + member.getName() + 
                     "' converted to Regular Member successfully",
                     "Conversion Successful",
                     JOptionPane.INFORMATION_MESSAGE);
@@ -321,7 +660,12 @@ premiumRadio.addActionListener(new ActionListener() {
             );
 
             if (removalReason != null && !removalReason.isEmpty()) {
-                regularMember.revertRegularMember(removalReason);
+                try {
+                    service.revertRegularMember(regularMember.getID(), removalReason);
+                } catch (MemberServiceException ex) {
+                    showError(ex.getMessage());
+                    return;
+                }
                 JOptionPane.showMessageDialog(
                     GymMemberGUI.this,
                     "Member successfully reverted.",
@@ -350,25 +694,25 @@ discountButton.addActionListener(new ActionListener() {
 
         GymMember member = findMemberByActionField();
         if (member instanceof PremiumMember) {
-            PremiumMember premiumMember = (PremiumMember) member;
-
-            if (!premiumMember.isFullPayment()) {
+            PremiumMember premiumMember;
+            try {
+                premiumMember = service.calculateDiscount(member.getID()); // Recalculate in case it's not updated
+            } catch (MemberServiceException ex) {
                 JOptionPane.showMessageDialog(
                     GymMemberGUI.this,
-                    "Full payment has not been made yet. No discount available.",
+                    ex.getMessage(),
                     "Discount Not Available",
                     JOptionPane.WARNING_MESSAGE
                 );
                 return;
                 }
 
-            premiumMember.calculateDiscount(); // Recalculate in case it's not updated
             double discount = premiumMember.getDiscountAmount();
             double netPaid = premiumMember.getNetAmountPaid();
 
             JOptionPane.showMessageDialog(
                 GymMemberGUI.this,
-                "Congratulations! You have received a 10% discount.\n" +
+                "Congratulations! You have received a " + discountLabel() + ".\n" +
                 "Discount Amount: NPR " + discount + "\n" +
                 "Net Amount Paid: NPR " + netPaid,
                 "Discount Granted",
@@ -376,7 +720,7 @@ discountButton.addActionListener(new ActionListener() {
             );
 
             displayArea.append(
-                "10% discount applied for " + premiumMember.getName() + "\n" +
+                discountLabel() + " applied for " + premiumMember.getName() + "\n" +
                 "Discount Amount: NPR " + discount + "\n" +
                 "Net Amount Paid: NPR " + netPaid + "\n\n"
             );
@@ -402,6 +746,42 @@ discountButton.addActionListener(new ActionListener() {
                 readFromFile();
             }
         });
+
+        importButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                importCheckIns();
+            }
+        });
+
+        reportButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                exportReport();
+            }
+        });
+
+        bulkButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                bulkAction();
+            }
+        });
+
+        undoButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                undoRedo(true);
+            }
+        });
+
+        redoButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                undoRedo(false);
+            }
+        });
+
+        auditButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                showAuditTrail();
+            }
+        });
     }
 
     private void saveToFile() {
@@ -409,46 +789,34 @@ discountButton.addActionListener(new ActionListener() {
             JOptionPane.showMessageDialog(this, "No members to save");
             return;
         }
-        
-        File packageDir = new File("GYMGUI");
-        if (!packageDir.exists()) {
-            packageDir.mkdirs();
-        }
-        
-        File outputFile = new File(packageDir, "MemberDetails.txt");
-        
-        BufferedWriter writer = null;
-        try {
-            writer = new BufferedWriter(new FileWriter(outputFile, !firstTimeSave));
-            if (firstTimeSave || outputFile.length() == 0) {
-                writer.write(getHeader());
-                firstTimeSave = false;
+
+        final File outputFile = saveEngine.getSnapshotFile();
+        final Future<Integer> save = saveEngine.save(members);
+        new BackgroundTask<Integer, Void>(this, "Saving members", false) {
+            protected Integer doInBackground() throws Exception {
+                service.getAttendanceHistory().save(attendanceFile);
+                return save.get();
             }
-            
-            for (GymMember member : members) {
-                writer.write(toFormattedString(member));
+
+            protected void succeeded(Integer written) {
+                JOptionPane.showMessageDialog(GymMemberGUI.this,
+                    "Saved " + written + " changed member record(s) for " + outputFile.getAbsolutePath(),
+                    "Save Successful",
+                    JOptionPane.INFORMATION_MESSAGE);
             }
-            
-            JOptionPane.showMessageDialog(this, 
-                "Saved " + members.size() + " members to " + outputFile.getAbsolutePath(),
-                "Save Successful",
-                JOptionPane.INFORMATION_MESSAGE);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Error saving to file: " + e.getMessage(),
-                "Save Error",
-                JOptionPane.ERROR_MESSAGE);
-        } finally {
-            try {
-                if (writer != null) writer.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+
+            protected void failed(Throwable error) {
+                JOptionPane.showMessageDialog(GymMemberGUI.this,
+                    "Error saving to file: " + error.getMessage(),
+                    "Save Error",
+                    JOptionPane.ERROR_MESSAGE);
             }
-        }
+        }.start();
     }
 
     private void readFromFile() {
-    File inputFile = new File("GYMGUI/MemberDetails.txt");
+    final File inputFile = saveEngine.getSnapshotFile();
+    final File changesFile = saveEngine.getChangesFile();
 
     if (!inputFile.exists() || inputFile.length() == 0) {
         JOptionPane.showMessageDialog(this, 
@@ -458,89 +826,264 @@ discountButton.addActionListener(new ActionListener() {
         return;
     }
 
-    JFrame viewFrame = new JFrame("View Members");
-    viewFrame.setSize(800, 500);
-    viewFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+    // Parsing runs in the background; parsed members reach the roster on the EDT in batches.
+    new BackgroundTask<int[], GymMember[]>(this, "Reading members", true) {
+        private int added;
+
+        protected int[] doInBackground() throws Exception {
+            final SwingWorker<?, ?> task = this;
+            MemberFileLoader.Progress progress = new MemberFileLoader.Progress() {
+                public void chunksParsed(int done, int total) {
+                    setProgress(done * 90 / total);
+                }
+
+                public boolean isCancelled() {
+                    return task.isCancelled();
+                }
+            };
+            MemberRepository loaded = new MemberRepository();
+            MemberFileLoader loader = new MemberFileLoader();
+            MemberFileLoader.Result snapshot = loader.load(inputFile, loaded, progress);
+            MemberFileLoader.Result changes = loader.load(changesFile, loaded, progress);
+
+            GymMember[] all = loaded.toArray();
+            for (int i = 0; i < all.length && !isCancelled(); i += 5000) {
+                publish(Arrays.copyOfRange(all, i, Math.min(all.length, i + 5000)));
+                setProgress(90 + (int) (10L * i / all.length));
+            }
+            return new int[] {all.length, snapshot.skipped + changes.skipped};
+        }
 
-    JTextArea textArea = new JTextArea();
-    textArea.setEditable(false);
-    textArea.setFont(new Font("Monospaced", Font.PLAIN, 14));  // Set monospace font
+        // Members already on the roster are newer than the file, so only missing ones are added.
+        protected void process(List<GymMember[]> batches) {
+            for (GymMember[] batch : batches) {
+                for (GymMember member : batch) {
+                    if (members.add(member)) {
+                        added++;
+                    }
+                }
+            }
+        }
 
-    JScrollPane scrollPane = new JScrollPane(textArea);
-    viewFrame.add(scrollPane);
+        protected void succeeded(int[] result) {
+            JOptionPane.showMessageDialog(GymMemberGUI.this,
+                "Read " + result[0] + " member(s) from " + inputFile.getAbsolutePath() +
+                "\nAdded to roster: " + added +
+                (result[1] > 0 ? "\nUnreadable lines skipped: " + result[1] : ""),
+                "Read Successful",
+                JOptionPane.INFORMATION_MESSAGE);
+        }
 
-    BufferedReader reader = null;
-    try {
-        reader = new BufferedReader(new FileReader(inputFile));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            textArea.append(line + "\n");
+        protected void cancelled() {
+            displayArea.append("Reading cancelled; " + added + " member(s) were added before it stopped.\n");
         }
-        viewFrame.setVisible(true);
-    } catch (IOException e) {
-        JOptionPane.showMessageDialog(this, 
-            "Error reading file: " + e.getMessage(),
-            "Read Error",
-            JOptionPane.ERROR_MESSAGE);
-    } finally {
-        try {
-            if (reader != null) reader.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+
+        protected void failed(Throwable error) {
+            JOptionPane.showMessageDialog(GymMemberGUI.this, 
+                "Error reading file: " + error.getMessage(),
+                "Read Error",
+                JOptionPane.ERROR_MESSAGE);
         }
-    }
+    }.start();
 }
 
-private String toFormattedString(GymMember m) {
-    if (m instanceof RegularMember) {
-        RegularMember r = (RegularMember) m;
-        return String.format(
-            "%-5s %-15s %-15s %-15s %-25s %-18s %-10s %-8.1f %-8s %-10.1f %-8s %-10s %-10.1f %-10.1f\n",
-            m.getID(),
-            m.getName(),
-            m.getLocation(),
-            m.getPhone(),
-            m.getEmail(),
-            m.getMembershipStartDate(),
-            r.getPlan(),
-            r.getPrice(),
-            m.getAttendanceCount(),
-            r.getLoyaltyPoints(),
-            m.getActiveStatus() ? "Active" : "Inactive",
-            r.getFullPayment(),
-            r.getDiscountAmount(),
-            r.getNetAmountPaid()
-        );
-    } else if (m instanceof PremiumMember) {
-        PremiumMember p = (PremiumMember) m;
-        return String.format(
-            "%-5s %-15s %-15s %-15s %-25s %-18s %-10s %-8.1f %-8s %-10.1f %-8s %-10s %-10.1f %-10.1f\n",
-            m.getID(),
-            m.getName(),
-            m.getLocation(),
-            m.getPhone(),
-            m.getEmail(),
-            m.getMembershipStartDate(),
-            "Premium",
-            p.getPremiumCharge(),
-            m.getAttendanceCount(),
-            p.getLoyaltyPoints(),
-            m.getActiveStatus() ? "Active" : "Inactive",
-            p.getFullPayment(),
-            p.getDiscountAmount(),
-            p.getNetAmountPaid()
-        );
+    // Applies a turnstile or kiosk feed in one batch and reports a summary instead of
+    // a dialog per check-in.
+    private void importCheckIns() {
+        JFileChooser chooser = new JFileChooser(new File(MemberFileFormat.DIRECTORY));
+        chooser.setDialogTitle("Import Check-ins");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File feedFile = chooser.getSelectedFile();
+        new BackgroundTask<AttendanceBatch.Summary, Void>(this, "Importing check-ins", false) {
+            protected AttendanceBatch.Summary doInBackground() throws Exception {
+                AttendanceBatch batch = new AttendanceBatch();
+                batch.addFile(feedFile);
+                AttendanceBatch.Summary summary;
+                MemberAuditLog.Scope scope = MemberAuditLog.act(DESK_ACTOR);
+                try {
+                    summary = service.importCheckIns(batch);
+                } finally {
+                    scope.close();
+                }
+                return summary;
+            }
+
+            protected void succeeded(AttendanceBatch.Summary summary) {
+                displayArea.append("Check-ins imported from " + feedFile.getName() + "\n" + summary + "\n");
+                JOptionPane.showMessageDialog(GymMemberGUI.this,
+                    summary.toString(),
+                    "Import Complete",
+                    JOptionPane.INFORMATION_MESSAGE);
+            }
+
+            protected void failed(Throwable error) {
+                JOptionPane.showMessageDialog(GymMemberGUI.this,
+                    "Error importing check-ins: " + error.getMessage(),
+                    "Import Error",
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        }.start();
+    }
+
+    // Month-end report grouped every way at once; a .json file name gives JSON, anything else CSV.
+    private void exportReport() {
+        JFileChooser chooser = new JFileChooser(new File(MemberFileFormat.DIRECTORY));
+        chooser.setDialogTitle("Export Report");
+        chooser.setSelectedFile(new File("MemberReport.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File reportFile = chooser.getSelectedFile();
+        new BackgroundTask<Integer, Void>(this, "Building report", false) {
+            protected Integer doInBackground() throws Exception {
+                GymMember[] roster = members.toArray();
+                MemberReport.run(roster, MemberReport.Dimension.values()).writeTo(reportFile);
+                return roster.length;
+            }
+
+            protected void succeeded(Integer count) {
+                displayArea.append("Report for " + count + " members written to " + reportFile.getAbsolutePath() + "\n");
+                JOptionPane.showMessageDialog(GymMemberGUI.this,
+                    "Report for " + count + " members written to " + reportFile.getName(),
+                    "Report Exported",
+                    JOptionPane.INFORMATION_MESSAGE);
+            }
+
+            protected void failed(Throwable error) {
+                JOptionPane.showMessageDialog(GymMemberGUI.this,
+                    "Error writing report: " + error.getMessage(),
+                    "Report Error",
+                    JOptionPane.ERROR_MESSAGE);
+            }
+        }.start();
+    }
+
+    // One upgrade or reversion for every member the table shows, after a single dialog;
+    // nothing changes unless every one of them can take it.
+    private void bulkAction() {
+        final int[] ids = new int[memberTable.getRowCount()];
+        for (int row = 0; row < ids.length; row++) {
+            ids[row] = tableModel.getMemberAt(memberTable.convertRowIndexToModel(row)).getID();
+        }
+        if (ids.length == 0) {
+            JOptionPane.showMessageDialog(this, "No members shown. Filter the table to the members to change.");
+            return;
+        }
+        String[] actions = {"Upgrade Regular plan", "Revert Regular members", "Revert Premium members"};
+        JComboBox<String> actionCombo = new JComboBox<>(actions);
+        JComboBox<String> planCombo = new JComboBox<>(new String[] {"Basic", "Standard", "Deluxe"});
+        JTextField reasonField = new JTextField(20);
+        JPanel form = new JPanel(new GridLayout(0, 2, 6, 6));
+        form.add(new JLabel("Members shown:"));
+        form.add(new JLabel(String.valueOf(ids.length)));
+        form.add(new JLabel("Action:"));
+        form.add(actionCombo);
+        form.add(new JLabel("New plan (upgrade):"));
+        form.add(planCombo);
+        form.add(new JLabel("Removal reason (revert Regular):"));
+        form.add(reasonField);
+        if (JOptionPane.showConfirmDialog(this, form, "Bulk Action", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) {
+            return;
+        }
+        final BulkOperations.Action action = BulkOperations.Action.values()[actionCombo.getSelectedIndex()];
+        final String argument = action == BulkOperations.Action.UPGRADE ? (String) planCombo.getSelectedItem()
+                : reasonField.getText();
+        new BackgroundTask<BulkOperations.Result, Void>(this, "Applying bulk action", false) {
+            protected BulkOperations.Result doInBackground() throws Exception {
+                BulkOperations.Result result;
+                MemberAuditLog.Scope scope = MemberAuditLog.act(DESK_ACTOR);
+                try {
+                    result = service.getBulkOperations().run(ids, action, argument);
+                } finally {
+                    scope.close();
+                }
+                if (result.isCommitted()) {
+                    journal.sync();
+                }
+                return result;
+            }
+
+            protected void succeeded(BulkOperations.Result result) {
+                displayArea.append(result + "\n");
+                if (result.isCommitted()) {
+                    JOptionPane.showMessageDialog(GymMemberGUI.this,
+                        result.count(BulkOperations.Status.APPLIED) + " members changed.",
+                        "Bulk Action Applied",
+                        JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                StringBuilder reasons = new StringBuilder("No member was changed.\n");
+                int listed = 0;
+                for (int i = 0; i < result.size() && listed < 20; i++) {
+                    if (result.getMessage(i) != null) {
+                        reasons.append("\nID ").append(result.getId(i)).append(": ").append(result.getMessage(i));
+                        listed++;
+                    }
+                }
+                int refused = result.size() - result.count(BulkOperations.Status.NOT_APPLIED);
+                if (refused > listed) {
+                    reasons.append("\n... and ").append(refused - listed).append(" more");
+                }
+                JOptionPane.showMessageDialog(GymMemberGUI.this, reasons.toString(), "Bulk Action Refused",
+                    JOptionPane.WARNING_MESSAGE);
+            }
+        }.start();
+    }
+
+    // Takes back or repeats the desk's latest change; a bulk action is one change.
+    private void undoRedo(final boolean undo) {
+        new BackgroundTask<String, Void>(this, undo ? "Undo" : "Redo", false) {
+            protected String doInBackground() throws Exception {
+                return undo ? service.undo(DESK_ACTOR) : service.redo(DESK_ACTOR);
+            }
+
+            protected void succeeded(String result) {
+                displayArea.append(result + "\n");
+            }
+
+            protected void failed(Throwable error) {
+                JOptionPane.showMessageDialog(GymMemberGUI.this,
+                    error.getMessage(),
+                    undo ? "Cannot Undo" : "Cannot Redo",
+                    JOptionPane.WARNING_MESSAGE);
+            }
+        }.start();
+    }
+
+    // The latest changes to the member in the Member ID field, or to anyone if it is empty.
+    private void showAuditTrail() {
+        final String idText = actionIdField.getText().trim();
+        MemberAuditLog.Filter filter = MemberAuditLog.Filter.all();
+        if (!idText.isEmpty()) {
+            try {
+                filter = filter.member(Integer.parseInt(idText));
+            } catch (NumberFormatException e) {
+                showError("ENTER VALID ID!");
+                return;
+            }
+        }
+        final MemberAuditLog.Filter shown = filter;
+        new BackgroundTask<java.util.List<MemberAuditLog.Event>, Void>(this, "Reading audit log", false) {
+            protected java.util.List<MemberAuditLog.Event> doInBackground() throws Exception {
+                return service.getAuditLog().query(shown, 200);
+            }
+
+            protected void succeeded(java.util.List<MemberAuditLog.Event> events) {
+                StringBuilder text = new StringBuilder();
+                for (int i = events.size() - 1; i >= 0; i--) {
+                    text.append(events.get(i)).append('\n');
+                }
+                JTextArea area = new JTextArea(text.length() == 0 ? "No changes recorded" : text.toString(), 20, 80);
+                area.setEditable(false);
+                JOptionPane.showMessageDialog(GymMemberGUI.this, new JScrollPane(area),
+                    idText.isEmpty() ? "Audit Trail" : "Audit Trail - Member " + idText,
+                    JOptionPane.INFORMATION_MESSAGE);
+            }
+        }.start();
     }
-    return "";
-}
-private String getHeader() {
-    return String.format(
-        "%-5s %-15s %-15s %-15s %-25s %-18s %-10s %-8s %-8s %-10s %-8s %-10s %-10s %-10s\n",
-        "ID", "Name", "Location", "Phone", "Email", "Membership Start",
-        "Plan", "Price", "Attend", "Loyalty", "Status", "Full Pay",
-        "Discount", "Net Paid"
-    );
-}
 
     private void addMember() {
         try {
@@ -553,29 +1096,22 @@ private String getHeader() {
             }
 
             int id = Integer.parseInt(idField.getText());
-            if (isDuplicateId(id)) {
-                showError("Member ID already exists!");
-                return;
-            }
-
             String name = nameField.getText();
             String dob = getDate(dayCombo, monthCombo, yearCombo);
             String startDate = getDate(startDayCombo, startMonthCombo, startYearCombo);
 
             if (regularRadio.isSelected()) {
-                RegularMember member = new RegularMember(
+                service.addRegularMember(
                         id, name, locationField.getText(), phoneField.getText(),
                         emailField.getText(), getGender(), dob, startDate,
                         referralSourceField.getText()
                 );
-                members.add(member);
             } else {
-                PremiumMember member = new PremiumMember(
+                service.addPremiumMember(
                         id, name, locationField.getText(), phoneField.getText(),
                         emailField.getText(), getGender(), dob, startDate,
                         personalTrainerField.getText()
                 );
-                members.add(member);
             }
             JOptionPane.showMessageDialog(this, "Member added successfully!");
             clearAllFields();
@@ -586,42 +1122,17 @@ private String getHeader() {
         }
     }
 
-    private boolean isDuplicateId(int id) {
-        for (GymMember member : members) {
-            if (member.getID() == id) {
-                return true;
-            }
-        }
-        return false;
-    }
 private void displayMembers() {
     String inputId = actionIdField.getText().trim();
 
     if (inputId.isEmpty()) {
-        String all = "";
-        for (GymMember member : members) {
-            String m = "ID: " + member.getID() + "\n"
-                     + "Name: " + member.getName() + "\n"
-                     + "Type: " + (member instanceof RegularMember ? "Regular" : "Premium") + "\n";
-
-            if (member instanceof RegularMember) {
-                RegularMember r = (RegularMember) member;
-                m += "Plan: " + r.getPlan() + "\n"
-                   + "Discount Amount: NPR " + r.getDiscountAmount() + "\n";
-            } else if (member instanceof PremiumMember) {
-                PremiumMember p = (PremiumMember) member;
-                m += "Trainer: " + p.getPersonalTrainer() + "\n"
-                   + "Discount Amount: NPR " + p.getDiscountAmount() + "\n"
-                   + "Net Amount Paid: NPR " + p.getNetAmountPaid() + "\n";
-            }
-
-            m += "Status: " + (member.getActiveStatus() ? "Active" : "Inactive") + "\n"
-               + "Attendance Count: " + member.getAttendanceCount() + "\n"
-               + "----------------------------\n";
-
-            all += m;
+        if (members.isEmpty()) {
+            displayArea.setText("No members registered yet.");
+            viewTabs.setSelectedIndex(1);
+        } else {
+            tableModel.refresh();
+            viewTabs.setSelectedIndex(0);
         }
-        displayArea.setText(all.isEmpty() ? "No members registered yet." : all);
     } else {
         GymMember member = findMemberByActionField();
         if (member != null) {
@@ -669,10 +1180,9 @@ private void displayMembers() {
     private GymMember findMemberByActionField() {
         try {
             int id = Integer.parseInt(actionIdField.getText());
-            for (GymMember m : members) {
-                if (m.getID() == id) return m;
-            }
-            showError("Member not found!");
+            return service.findMember(id);
+        } catch (MemberServiceException ex) {
+            showError(ex.getMessage());
         } catch (NumberFormatException ex) {
             showError("ENTER VALID ID!");
         }
@@ -682,8 +1192,8 @@ private void displayMembers() {
     private void markAttendance() {
         GymMember member = findMemberByActionField();
         if (member != null) {
-            if (member.getActiveStatus()) {
-                member.markAttendance();
+            try {
+                service.markAttendance(member.getID());
                 JOptionPane.showMessageDialog(this, 
                     "Attendance marked successfully for " + member.getName() + 
                     "\nTotal Attendance: " + member.getAttendanceCount(), 
@@ -691,9 +1201,9 @@ private void displayMembers() {
                     JOptionPane.INFORMATION_MESSAGE);
                 displayArea.append("Attendance marked for " + member.getName() + 
                                  " (Total: " + member.getAttendanceCount() + ")\n");
-            } else {
+            } catch (MemberServiceException ex) {
                 JOptionPane.showMessageDialog(this, 
-                    "Cannot mark attendance for inactive member: " + member.getName(),
+                    ex.getMessage(),
                     "Membership Inactive",
                     JOptionPane.WARNING_MESSAGE);
             }
@@ -703,14 +1213,20 @@ private void displayMembers() {
     private void toggleMembership(boolean activate) {
     GymMember member = findMemberByActionField();
     if (member != null) {
+        boolean changed;
+        try {
+            changed = service.setMembershipActive(member.getID(), activate);
+        } catch (MemberServiceException ex) {
+            showError(ex.getMessage());
+            return;
+        }
         if (activate) {
-            if (member.getActiveStatus()) {
+            if (!changed) {
                 JOptionPane.showMessageDialog(this, 
                     member.getName() + "'s membership is already active",
                     "Already Active",
                     JOptionPane.INFORMATION_MESSAGE);
             } else {
-                member.activeMembership();
                 JOptionPane.showMessageDialog(this, 
                     "Membership has been successfully activated for " + member.getName(),
                     "Membership Activated", 
@@ -718,13 +1234,12 @@ private void displayMembers() {
                 displayArea.append("Membership activated for " + member.getName() + "\n");
             }
         } else {
-            if (!member.getActiveStatus()) {
+            if (!changed) {
                 JOptionPane.showMessageDialog(this, 
                     member.getName() + "'s membership is already inactive",
                     "Already Inactive",
                     JOptionPane.INFORMATION_MESSAGE);
             } else {
-                member.deactivateMembership();
                 JOptionPane.showMessageDialog(this, 
                     "Membership has been successfully deactivated for " + member.getName(),
                     "Membership Deactivated", 
@@ -751,10 +1266,12 @@ private void displayMembers() {
         if (input != null) {
             try {
                 double amount = Double.parseDouble(input);
-                String result = premiumMember.payDueAmount(amount);
+                String result = service.payDueAmount(premiumMember.getID(), amount);
                 displayArea.append(result + "\n");
             } catch (NumberFormatException ex) {
                 showError("Invalid amount!");
+            } catch (MemberServiceException ex) {
+                showError(ex.getMessage());
             }
         }
     } else {
@@ -767,16 +1284,8 @@ private void displayMembers() {
     GymMember member = findMemberByActionField();
     if (member instanceof RegularMember) {
         RegularMember regularMember = (RegularMember) member;
-        
-        // Check attendance first
-        if (regularMember.getAttendanceCount() < 30) {
-            JOptionPane.showMessageDialog(this, 
-                "Attendance must be at least 30 to upgrade plan.\nCurrent attendance: " + regularMember.getAttendanceCount(),
-                "Upgrade Not Allowed",
-                JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-        
+        // The attendance needed is checked by service.upgradePlan, from the pricing rules.
+
         // Create a dialog with plan options
         String[] plans = {"Basic", "Standard", "Deluxe"};
         String selectedPlan = (String) JOptionPane.showInputDialog(
@@ -797,7 +1306,13 @@ private void displayMembers() {
                     "No Change Made",
                     JOptionPane.INFORMATION_MESSAGE);
             } else {
-                String result = regularMember.upgradePlan(selectedPlan);
+                String result;
+                try {
+                    result = service.upgradePlan(regularMember.getID(), selectedPlan);
+                } catch (MemberServiceException ex) {
+                    showError(ex.getMessage());
+                    return;
+                }
                 JOptionPane.showMessageDialog(this,
                     "Plan changed successfully to " + selectedPlan +
                     "\nNew Price: NPR " + RegularMember.getPlanPrice(selectedPlan),
@@ -808,6 +1323,12 @@ private void displayMembers() {
         }
     }
 }
+    // The full-payment discount of the rules in force, for example "10% discount".
+    private static String discountLabel() {
+        String discount = PricingRules.current().getFullPaymentDiscountText();
+        return (discount.endsWith("%") ? discount : "NPR " + discount) + " discount";
+    }
+
     private void clearAllFields() {
         idField.setText("");
         nameField.setText("");
@@ -0,0 +1,147 @@
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The IntIndex class is a small hash map from int keys to int values. It is used
+ * wherever the system needs to find something by member ID without boxing the ID
+ * into an Integer (for example the position of a member inside MemberRepository).
+ *
+ * Implementation Details:
+ * - Open addressing with linear probing over two parallel int arrays
+ * - Values are stored shifted by one so that 0 can mark an empty slot
+ * - Removal uses backward-shift deletion, so no tombstones are left behind
+ * - The table doubles when it becomes more than half full
+ *
+ * Usage:
+ * Keys may be any int. Values must be zero or positive; get() returns -1 when the
+ * key is missing. The class is not thread-safe.
+ */
+public class IntIndex {
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public IntIndex() {
+        this(16);
+    }
+
+    public IntIndex(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() { return size; }
+
+    public int get(int key) {
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) >= 0;
+    }
+
+    /**
+     * Stores the value for the key and returns the previous value, or -1 if the key was new.
+     */
+    public int put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative: " + value);
+        }
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                int previous = values[slot] - 1;
+                values[slot] = value + 1;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (++size * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the key and returns its value, or -1 if it was not present.
+     */
+    public int remove(int key) {
+        int slot = slot(key);
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                int previous = values[slot] - 1;
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    // Moves later entries of the same probe run into the freed slot so lookups never stop early.
+    private void shiftBack(int free) {
+        int current = free;
+        while (true) {
+            current = (current + 1) & mask;
+            if (values[current] == 0) {
+                break;
+            }
+            int home = slot(keys[current]);
+            boolean movable = free <= current
+                    ? (home <= free || home > current)
+                    : (home <= free && home > current);
+            if (movable) {
+                keys[free] = keys[current];
+                values[free] = values[current];
+                free = current;
+            }
+        }
+        values[free] = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
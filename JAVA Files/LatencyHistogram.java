@@ -0,0 +1,119 @@
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The LatencyHistogram class records latencies in nanoseconds and reports
+ * percentiles, in the manner of HdrHistogram: a fixed array of counters covers every
+ * value from 1 ns to hundreds of years with about 1% precision, so recording is one
+ * array increment and memory does not grow with the number of samples.
+ *
+ * Key Features:
+ * - record() adds one sample; add() merges another histogram, e.g. one per thread
+ * - getValueAtPercentile(), getMean(), getMax() and getCount() summarise the samples
+ * - toString() prints the usual p50/p90/p99/p99.9/max line
+ *
+ * Implementation Details:
+ * - Values below 128 have a counter each; above that every power of two is split into
+ *   64 equal counters, so a counter's width is at most 1/64 of its value
+ * - A percentile is reported as the largest value its counter can hold, so results
+ *   err towards slower, never faster
+ * - Not thread-safe: give each thread its own histogram and merge them at the end
+ *
+ * Usage:
+ * LatencyHistogram histogram = new LatencyHistogram();
+ * histogram.record(System.nanoTime() - start);
+ * long p99 = histogram.getValueAtPercentile(99);
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int COUNTERS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[COUNTERS];
+    private long count;
+    private long total;
+    private long max;
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < COUNTERS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() { return count; }
+    public long getMax() { return max; }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * The value below or at which the given percentage (0-100) of samples fall.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < COUNTERS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    // Counters 0-127 hold their own value; after that, counter exponent * 64 + sub holds
+    // the values sub << exponent up to (sub + 1) << exponent, with sub in 64-127.
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return exponent * SUB_BUCKETS + (int) (value >>> exponent);
+    }
+
+    private static long highestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS - 1;
+        long sub = index - (long) exponent * SUB_BUCKETS;
+        return ((sub + 1) << exponent) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%s p50=%s p90=%s p99=%s p99.9=%s max=%s", count,
+                format((long) getMean()), format(getValueAtPercentile(50)), format(getValueAtPercentile(90)),
+                format(getValueAtPercentile(99)), format(getValueAtPercentile(99.9)), format(max));
+    }
+
+    /**
+     * Formats nanoseconds with a unit that keeps three or four significant digits.
+     */
+    static String format(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 10_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        }
+        return String.format("%.1fms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The LoadDriver class measures how much desk traffic one machine can take. It builds
+ * a roster with RosterGenerator, then runs a mix of attendance, payment, upgrade and
+ * revert operations through MemberService at a target rate and reports the rate
+ * reached and the latency percentiles of each operation.
+ *
+ * Key Features:
+ * - The operation mix, target rate, duration, thread count and seed are options
+ * - Latencies are recorded in a LatencyHistogram per operation and per thread and
+ *   merged at the end: p50, p90, p99, p99.9 and max
+ * - Refused operations (MemberServiceException, e.g. an upgrade without enough
+ *   attendance) are counted separately, since they are part of real traffic too
+ *
+ * Implementation Details:
+ * - Each thread issues operations on a fixed schedule (open loop) instead of waiting
+ *   for one to finish before starting the next, and latency is measured from the time
+ *   an operation was due, not from when it actually started; a stall therefore shows
+ *   up in the latency of every operation queued behind it, as it would for members
+ *   waiting at the desk
+ * - With --rate 0 operations run back to back and only their service time is measured
+ * - Payments go to Premium members and upgrades and reverts to Regular members, picked
+ *   from lists built after generation
+ *
+ * Usage:
+ * java LoadDriver [--members 1000000] [--seed 42] [--rate 20000] [--seconds 30]
+ *                 [--threads 4] [--mix attendance=70,payment=15,upgrade=10,revert=5]
+ */
+public class LoadDriver {
+    private static final String[] OPERATIONS = {"attendance", "payment", "upgrade", "revert"};
+    private static final String[] PLANS = {"Basic", "Standard", "Deluxe"};
+
+    private final MemberService service;
+    private final int[] allIds;
+    private final int[] regularIds;
+    private final int[] premiumIds;
+    private final int[] mix;
+
+    public LoadDriver(MemberService service, int[] mix) {
+        this.service = service;
+        this.mix = mix;
+        List<Integer> regular = new ArrayList<>();
+        List<Integer> premium = new ArrayList<>();
+        for (GymMember member : service.getMembers()) {
+            (member instanceof PremiumMember ? premium : regular).add(member.getID());
+        }
+        this.regularIds = toArray(regular);
+        this.premiumIds = toArray(premium);
+        this.allIds = new int[regularIds.length + premiumIds.length];
+        System.arraycopy(regularIds, 0, allIds, 0, regularIds.length);
+        System.arraycopy(premiumIds, 0, allIds, regularIds.length, premiumIds.length);
+    }
+
+    /**
+     * Runs the mix at the given total rate (operations per second, 0 for as fast as
+     * possible) for the given time and returns the merged results.
+     */
+    public Result run(double rate, long seconds, int threads, long seed) throws InterruptedException {
+        Worker[] workers = new Worker[threads];
+        Thread[] running = new Thread[threads];
+        long start = System.nanoTime() + 10_000_000;
+        long end = start + seconds * 1_000_000_000L;
+        long interval = rate > 0 ? (long) (threads * 1e9 / rate) : 0;
+        for (int t = 0; t < threads; t++) {
+            // Threads are staggered over one interval so their operations do not all fall due together.
+            workers[t] = new Worker(new SplittableRandom(seed + t), start + interval * t / threads, end, interval);
+            running[t] = new Thread(workers[t], "load-" + t);
+            running[t].start();
+        }
+        Result result = new Result();
+        for (int t = 0; t < threads; t++) {
+            running[t].join();
+            result.add(workers[t].result);
+        }
+        result.elapsedNanos = Math.max(1, System.nanoTime() - start);
+        return result;
+    }
+
+    private final class Worker implements Runnable {
+        private final SplittableRandom random;
+        private final long start;
+        private final long end;
+        private final long interval;
+        private final Result result = new Result();
+
+        Worker(SplittableRandom random, long start, long end, long interval) {
+            this.random = random;
+            this.start = start;
+            this.end = end;
+            this.interval = interval;
+        }
+
+        @Override
+        public void run() {
+            long due = start;
+            while (due < end) {
+                long now = System.nanoTime();
+                if (interval > 0 && now < due) {
+                    LockSupport.parkNanos(due - now);
+                    continue;
+                }
+                long begin = interval > 0 ? due : now;
+                int operation = pickOperation(random);
+                boolean done = perform(operation, random);
+                long finished = System.nanoTime();
+                result.record(operation, finished - begin, done);
+                due = interval > 0 ? due + interval : finished;
+            }
+        }
+    }
+
+    private int pickOperation(SplittableRandom random) {
+        int roll = random.nextInt(mix[mix.length - 1]);
+        int operation = 0;
+        while (roll >= mix[operation]) {
+            operation++;
+        }
+        return operation;
+    }
+
+    // Returns false if the service refused the operation.
+    private boolean perform(int operation, SplittableRandom random) {
+        try {
+            switch (operation) {
+                case 0:
+                    service.markAttendance(pick(random, allIds));
+                    break;
+                case 1:
+                    service.payDueAmount(pick(random, premiumIds), 500.0 * random.nextInt(1, 11));
+                    break;
+                case 2:
+                    service.upgradePlan(pick(random, regularIds), PLANS[random.nextInt(PLANS.length)]);
+                    break;
+                default:
+                    service.revertRegularMember(pick(random, regularIds), "Load test");
+                    break;
+            }
+            return true;
+        } catch (MemberServiceException e) {
+            return false;
+        }
+    }
+
+    private static int pick(SplittableRandom random, int[] ids) {
+        return ids.length == 0 ? -1 : ids[random.nextInt(ids.length)];
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Turns "attendance=70,payment=15,upgrade=10,revert=5" into cumulative weights in
+     * OPERATIONS order. Operations left out get no weight.
+     */
+    static int[] parseMix(String text) {
+        int[] weights = new int[OPERATIONS.length];
+        for (String part : text.split(",")) {
+            String[] pair = part.trim().split("=");
+            int operation = -1;
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                if (OPERATIONS[i].equalsIgnoreCase(pair[0].trim())) {
+                    operation = i;
+                }
+            }
+            if (operation < 0 || pair.length != 2) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + part);
+            }
+            weights[operation] = Integer.parseInt(pair[1].trim());
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        if (weights[weights.length - 1] <= 0) {
+            throw new IllegalArgumentException("The mix has no operations: " + text);
+        }
+        return weights;
+    }
+
+    /**
+     * Counts and latencies per operation for one run.
+     */
+    public static final class Result {
+        private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+        private final long[] refused = new long[OPERATIONS.length];
+        private final LatencyHistogram total = new LatencyHistogram();
+        private long elapsedNanos;
+
+        Result() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        void record(int operation, long nanos, boolean done) {
+            latencies[operation].record(nanos);
+            total.record(nanos);
+            if (!done) {
+                refused[operation]++;
+            }
+        }
+
+        void add(Result other) {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i].add(other.latencies[i]);
+                refused[i] += other.refused[i];
+            }
+            total.add(other.total);
+        }
+
+        public long getOperations() { return total.getCount(); }
+        public LatencyHistogram getLatency() { return total; }
+
+        public double getThroughput() {
+            return total.getCount() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format("%d operations in %.1f s, %.0f ops/s%n",
+                    total.getCount(), elapsedNanos / 1e9, getThroughput()));
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                if (latencies[i].getCount() > 0) {
+                    text.append(String.format("%-10s refused=%d %s%n", OPERATIONS[i], refused[i], latencies[i]));
+                }
+            }
+            return text.append(String.format("%-10s %s", "all", total)).toString();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = 1_000_000;
+        long seed = 42;
+        double rate = 20_000;
+        long seconds = 30;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int[] mix = parseMix("attendance=70,payment=15,upgrade=10,revert=5");
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--members":
+                    count = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "--rate":
+                    rate = Double.parseDouble(args[i + 1]);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--mix":
+                    mix = parseMix(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        MemberRepository members = new MemberRepository(count);
+        new RosterGenerator(seed).fill(members, 1, count);
+        MemberService service = new MemberService(members);
+        System.out.printf("Generated %d members in %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+        System.out.printf("Running %s for %d s on %d threads%n",
+                rate > 0 ? String.format("%.0f ops/s", rate) : "flat out", seconds, threads);
+        System.out.println(new LoadDriver(service, mix).run(rate, seconds, threads, seed));
+    }
+}
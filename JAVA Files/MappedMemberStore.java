@@ -0,0 +1,425 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MappedMemberStore class keeps the roster in a binary file that is memory-mapped
+ * with FileChannel.map. Every member occupies one fixed-width slot, so a change such
+ * as a single attendance increment is a few bytes written in place instead of a full
+ * rewrite of MemberDetails.txt. Unlike the text file it can be read back into members.
+ *
+ * Key Features:
+ * - members.dat: a 64-byte header followed by one 128-byte slot per member
+ * - members.strings: a heap holding the UTF-8 text fields referenced from the slots
+ * - Opening a store only maps the files and indexes the IDs (well under 100 ms for a
+ *   million members); members are materialised on demand with read(int)
+ * - Implements MemberListener, so it can follow a MemberRepository change by change;
+ *   the GUI and MemberHttpServer keep GYMGUI/members.dat in step with the roster this way
+ *
+ * Implementation Details:
+ * - Slot layout (byte offsets):
+ *   0 id, 4 type, 5 flags (active, eligible, full payment), 6 plan code,
+ *   8 attendance, 16 loyalty points, 24 price / premium charge, 32 paid amount,
+ *   40 discount amount, 48 nine string references (heap offset + length)
+ * - Plans are stored as a code into PLANS; premium members use PREMIUM_PLAN
+ * - read() rejects a slot whose type or plan code it never writes with an IOException,
+ *   instead of failing on the PLANS array
+ * - Removing a member moves the last slot into the freed one, so slots stay dense
+ * - Rewritten text fields are appended to the heap; writeAll() starts a fresh heap
+ * - Both files are mapped with spare capacity and remapped larger when full
+ *
+ * Usage:
+ * MappedMemberStore store = MappedMemberStore.open(new File("GYMGUI"));
+ * store.writeAll(members); members.addListener(store); ... store.close();
+ * or MappedMemberStore.mirror(new File("GYMGUI"), members), which does the same.
+ */
+public class MappedMemberStore implements MemberListener {
+    private static final int MAGIC = 0x47594D4D;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 128;
+
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_SLOT_SIZE = 8;
+    private static final int H_COUNT = 12;
+    private static final int H_HEAP_END = 16;
+
+    private static final int ID = 0;
+    private static final int TYPE = 4;
+    private static final int FLAGS = 5;
+    private static final int PLAN = 6;
+    private static final int ATTENDANCE = 8;
+    private static final int LOYALTY = 16;
+    private static final int PRICE = 24;
+    private static final int PAID = 32;
+    private static final int DISCOUNT = 40;
+    private static final int STRINGS = 48;
+
+    private static final int ACTIVE = 1;
+    private static final int ELIGIBLE = 2;
+    private static final int FULL_PAYMENT = 4;
+
+    // String reference order inside a slot.
+    private static final int NAME = 0, LOCATION = 1, PHONE = 2, EMAIL = 3, GENDER = 4, DOB = 5,
+            START_DATE = 6, SOURCE_OR_TRAINER = 7, REMOVAL_REASON = 8;
+
+    public static final String[] PLANS = {"Basic", "Standard", "Deluxe"};
+    private static final byte PREMIUM_PLAN = (byte) 0xFF;
+
+    private final FileChannel dataChannel;
+    private final FileChannel heapChannel;
+    private MappedByteBuffer data;
+    private MappedByteBuffer heap;
+    private final IntIndex slots = new IntIndex();
+    private int count;
+    private int heapEnd;
+
+    private MappedMemberStore(FileChannel dataChannel, FileChannel heapChannel) {
+        this.dataChannel = dataChannel;
+        this.heapChannel = heapChannel;
+    }
+
+    public static MappedMemberStore open(File directory) throws IOException {
+        Path dir = directory.toPath();
+        Files.createDirectories(dir);
+        FileChannel dataChannel = FileChannel.open(dir.resolve("members.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel heapChannel = FileChannel.open(dir.resolve("members.strings"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedMemberStore store = new MappedMemberStore(dataChannel, heapChannel);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Opens the store in the directory, replaces its contents with the roster and keeps
+     * it in step with every further change.
+     */
+    public static MappedMemberStore mirror(File directory, MemberRepository members) throws IOException {
+        MappedMemberStore store = open(directory);
+        store.writeAll(members);
+        members.addListener(store);
+        return store;
+    }
+
+    private void load() throws IOException {
+        boolean fresh = dataChannel.size() < HEADER_SIZE;
+        data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(dataChannel.size(), HEADER_SIZE + 1024L * SLOT_SIZE));
+        heap = heapChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(heapChannel.size(), 64L * 1024));
+        if (fresh) {
+            data.putInt(H_MAGIC, MAGIC);
+            data.putInt(H_VERSION, VERSION);
+            data.putInt(H_SLOT_SIZE, SLOT_SIZE);
+            data.putInt(H_COUNT, 0);
+            data.putInt(H_HEAP_END, 0);
+        } else if (data.getInt(H_MAGIC) != MAGIC || data.getInt(H_SLOT_SIZE) != SLOT_SIZE) {
+            throw new IOException("Not a member store or unsupported slot size");
+        }
+        count = data.getInt(H_COUNT);
+        heapEnd = data.getInt(H_HEAP_END);
+        for (int slot = 0; slot < count; slot++) {
+            slots.put(data.getInt(offset(slot) + ID), slot);
+        }
+    }
+
+    public synchronized int size() { return count; }
+
+    public synchronized boolean contains(int id) { return slots.containsKey(id); }
+
+    public synchronized int slotOf(int id) { return slots.get(id); }
+
+    public synchronized int getID(int slot) { return data.getInt(offset(slot) + ID); }
+    public synchronized int getAttendance(int slot) { return data.getInt(offset(slot) + ATTENDANCE); }
+    public synchronized double getLoyaltyPoints(int slot) { return data.getDouble(offset(slot) + LOYALTY); }
+    public synchronized boolean isActive(int slot) { return (data.get(offset(slot) + FLAGS) & ACTIVE) != 0; }
+
+    /**
+     * Builds a member object from the given slot. Throws IOException if the slot holds
+     * a member type or plan code this store never writes.
+     */
+    public synchronized GymMember read(int slot) throws IOException {
+        int base = offset(slot);
+        int id = data.getInt(base + ID);
+        byte type = data.get(base + TYPE);
+        int plan = data.get(base + PLAN);
+        if (type != MemberCodec.PREMIUM && type != MemberCodec.REGULAR) {
+            throw new IOException("Corrupt member store: slot " + slot + " (member " + id
+                    + ") has unknown member type " + type);
+        }
+        if (type == MemberCodec.REGULAR && (plan < 0 || plan >= PLANS.length)) {
+            throw new IOException("Corrupt member store: slot " + slot + " (member " + id
+                    + ") has unknown plan code " + plan);
+        }
+        String name = string(base, NAME);
+        String location = string(base, LOCATION);
+        String phone = string(base, PHONE);
+        String email = string(base, EMAIL);
+        String gender = string(base, GENDER);
+        String dob = string(base, DOB);
+        String startDate = string(base, START_DATE);
+        String sourceOrTrainer = string(base, SOURCE_OR_TRAINER);
+        int flags = data.get(base + FLAGS);
+        GymMember member;
+        if (type == MemberCodec.PREMIUM) {
+            PremiumMember p = new PremiumMember(id, name, location, phone, email, gender, dob, startDate, sourceOrTrainer);
+            p.restorePayment(sourceOrTrainer, data.getDouble(base + PAID), (flags & FULL_PAYMENT) != 0,
+                    data.getDouble(base + DISCOUNT), data.getDouble(base + PRICE));
+            member = p;
+        } else {
+            RegularMember r = new RegularMember(id, name, location, phone, email, gender, dob, startDate, sourceOrTrainer);
+            r.restorePlan(PLANS[plan], data.getDouble(base + PRICE), (flags & ELIGIBLE) != 0,
+                    string(base, REMOVAL_REASON));
+            member = r;
+        }
+        member.restoreState(data.getInt(base + ATTENDANCE), data.getDouble(base + LOYALTY), (flags & ACTIVE) != 0);
+        return member;
+    }
+
+    /**
+     * Materialises every stored member into the repository.
+     */
+    public synchronized void loadInto(MemberRepository members) throws IOException {
+        for (int slot = 0; slot < count; slot++) {
+            members.put(read(slot));
+        }
+    }
+
+    /**
+     * Replaces the store contents with the given roster and starts a fresh string heap.
+     */
+    public synchronized void writeAll(Iterable<GymMember> members) throws IOException {
+        slots.clear();
+        count = 0;
+        heapEnd = 0;
+        for (GymMember member : members) {
+            put(member);
+        }
+        data.putInt(H_COUNT, count);
+        data.putInt(H_HEAP_END, heapEnd);
+    }
+
+    /**
+     * Adds the member or rewrites its whole slot.
+     */
+    public synchronized void put(GymMember member) throws IOException {
+        int slot = slots.get(member.getID());
+        if (slot < 0) {
+            slot = count;
+            ensureSlots(count + 1);
+            slots.put(member.getID(), slot);
+            count++;
+            data.putInt(H_COUNT, count);
+        }
+        int base = offset(slot);
+        data.putInt(base + ID, member.getID());
+        data.put(base + TYPE, member instanceof PremiumMember ? MemberCodec.PREMIUM : MemberCodec.REGULAR);
+        putString(base, NAME, member.getName());
+        putString(base, LOCATION, member.getLocation());
+        putString(base, PHONE, member.getPhone());
+        putString(base, EMAIL, member.getEmail());
+        putString(base, GENDER, member.getGender());
+        putString(base, DOB, member.getDOB());
+        putString(base, START_DATE, member.getMembershipStartDate());
+        writeState(base, member);
+    }
+
+    public synchronized void remove(int id) {
+        int slot = slots.remove(id);
+        if (slot < 0) {
+            return;
+        }
+        int last = count - 1;
+        if (slot != last) {
+            ByteBuffer source = data.duplicate();
+            source.limit(offset(last) + SLOT_SIZE).position(offset(last));
+            ByteBuffer target = data.duplicate();
+            target.position(offset(slot));
+            target.put(source);
+            slots.put(data.getInt(offset(slot) + ID), slot);
+        }
+        count = last;
+        data.putInt(H_COUNT, count);
+    }
+
+    /**
+     * In-place update of a single attendance mark: only the counters and flags are written.
+     */
+    public synchronized void updateAttendance(GymMember member) {
+        int slot = slots.get(member.getID());
+        if (slot >= 0) {
+            int base = offset(slot);
+            data.putInt(base + ATTENDANCE, member.getAttendance());
+            data.putDouble(base + LOYALTY, member.getLoyaltyPoints());
+            data.put(base + FLAGS, flags(member));
+        }
+    }
+
+    @Override
+    public synchronized void memberChanged(GymMember member, MemberChange change) {
+        try {
+            switch (change) {
+                case ADDED:
+                    put(member);
+                    break;
+                case REMOVED:
+                    remove(member.getID());
+                    break;
+                case ATTENDANCE:
+                case ACTIVATED:
+                case DEACTIVATED:
+                    updateAttendance(member);
+                    break;
+                default:
+                    int slot = slots.get(member.getID());
+                    if (slot >= 0) {
+                        writeState(offset(slot), member);
+                    }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not update member store", e);
+        }
+    }
+
+    /**
+     * Writes the mapped pages back to disk.
+     */
+    public synchronized void force() {
+        data.force();
+        heap.force();
+    }
+
+    public synchronized void close() throws IOException {
+        force();
+        dataChannel.close();
+        heapChannel.close();
+    }
+
+    private void writeState(int base, GymMember member) throws IOException {
+        data.put(base + FLAGS, flags(member));
+        data.putInt(base + ATTENDANCE, member.getAttendance());
+        data.putDouble(base + LOYALTY, member.getLoyaltyPoints());
+        if (member instanceof PremiumMember) {
+            PremiumMember p = (PremiumMember) member;
+            data.put(base + PLAN, PREMIUM_PLAN);
+            data.putDouble(base + PRICE, p.getPremiumCharge());
+            data.putDouble(base + PAID, p.getPaidAmount());
+            data.putDouble(base + DISCOUNT, p.getDiscountAmount());
+            putString(base, SOURCE_OR_TRAINER, p.getPersonalTrainer());
+            putString(base, REMOVAL_REASON, "");
+        } else if (member instanceof RegularMember) {
+            RegularMember r = (RegularMember) member;
+            data.put(base + PLAN, planCode(r.getPlan()));
+            data.putDouble(base + PRICE, r.getPrice());
+            data.putDouble(base + PAID, 0);
+            data.putDouble(base + DISCOUNT, r.getDiscountAmount());
+            putString(base, SOURCE_OR_TRAINER, r.getReferralSource());
+            putString(base, REMOVAL_REASON, r.getRemovalReason());
+        }
+    }
+
+    private static byte flags(GymMember member) {
+        int flags = member.getActiveStatus() ? ACTIVE : 0;
+        if (member instanceof RegularMember && ((RegularMember) member).isEligibleForUpgrade()) {
+            flags |= ELIGIBLE;
+        }
+        if (member instanceof PremiumMember && ((PremiumMember) member).isFullPayment()) {
+            flags |= FULL_PAYMENT;
+        }
+        return (byte) flags;
+    }
+
+    private static byte planCode(String plan) {
+        for (int i = 0; i < PLANS.length; i++) {
+            if (PLANS[i].equalsIgnoreCase(plan)) {
+                return (byte) i;
+            }
+        }
+        return 0;
+    }
+
+    private String string(int base, int field) {
+        int position = base + STRINGS + field * 8;
+        int start = data.getInt(position);
+        int length = data.getInt(position + 4);
+        if (length == 0) {
+            return "";
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer view = heap.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void putString(int base, int field, String value) throws IOException {
+        int position = base + STRINGS + field * 8;
+        if (value == null || value.isEmpty()) {
+            data.putInt(position, 0);
+            data.putInt(position + 4, 0);
+            return;
+        }
+        // Compared as encoded bytes: the stored length is in UTF-8 bytes, not chars.
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int start = data.getInt(position);
+        int length = data.getInt(position + 4);
+        if (length == bytes.length && start >= 0 && start + length <= heapEnd && heapEquals(start, bytes)) {
+            return;
+        }
+        ensureHeap(heapEnd + bytes.length);
+        ByteBuffer view = heap.duplicate();
+        view.position(heapEnd);
+        view.put(bytes);
+        data.putInt(position, heapEnd);
+        data.putInt(position + 4, bytes.length);
+        heapEnd += bytes.length;
+        data.putInt(H_HEAP_END, heapEnd);
+    }
+
+    private boolean heapEquals(int start, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (heap.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureSlots(int slotCount) throws IOException {
+        long needed = HEADER_SIZE + (long) slotCount * SLOT_SIZE;
+        if (needed > data.capacity()) {
+            long capacity = Math.max(needed, (long) data.capacity() * 2);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Member store is full");
+            }
+            data.force();
+            data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private void ensureHeap(long size) throws IOException {
+        if (size > heap.capacity()) {
+            long capacity = Math.max(size, (long) heap.capacity() * 2);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Member string heap is full");
+            }
+            heap.force();
+            heap = heapChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
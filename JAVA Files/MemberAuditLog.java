@@ -0,0 +1,1127 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberAuditLog class keeps every change to the roster as an event that never
+ * changes again: who made it, when, to which member, and the member's state before and
+ * after. Reverts and resets zero a member's progress; the log keeps what was there, so
+ * an action can be undone and redone, and the history can be searched afterwards.
+ *
+ * Key Features:
+ * - Implements MemberListener; attendance, payments, upgrades, activation, reverts,
+ *   re-pricing, additions and removals all become events
+ * - Each event names its actor: the one given to act() for the current action, or the
+ *   thread's actor (setThreadActor), or "system"
+ * - Events made inside one act() scope form one action, such as the three changes of a
+ *   premium member converted to Regular, or a whole bulk run; any other event is an
+ *   action of its own
+ * - undo() and redo() take back or repeat the latest action of an actor, and are
+ *   themselves recorded as RESTORED events
+ * - query(), count() and scan() search the whole log by member, change, actor and time
+ * - recent() gives the latest events straight from memory
+ *
+ * Implementation Details:
+ * - The latest events are kept in a ring of ringSize events in memory; undo and redo
+ *   work on these, so an action that has left the ring can no longer be undone
+ * - Events are also appended to segment files (audit-<first sequence>.log, a new one
+ *   every SEGMENT_BYTES) through a buffer that is flushed every second and before a
+ *   search. Records are [length][CRC32][sequence][action][time][member ID][change]
+ *   [member type][actor][before][after], with the fixed fields first
+ * - A search reads the segments front to back in large blocks and tests the fixed
+ *   fields in the buffer; only matching records are decoded into Events. Segments
+ *   outside the time range are skipped by the time of their first event
+ * - The before state comes from the last state the log saw for the member, which it
+ *   keeps encoded (MemberCodec.writeState) for every member it follows; states are
+ *   encoded under the log's lock, in the order the events are numbered
+ * - Event times never go backwards, so a clock set back does not reorder the log
+ * - On opening, a torn record at the end of the last segment (from a crash) is cut off;
+ *   the member journal, not this log, is what restores the roster
+ * - Undo checks first that every member is still as the action left it, and redo that
+ *   it is as the action found it; otherwise nothing is changed. Each member is checked
+ *   again under its lock as it is put back, and if it changed in between, the members
+ *   already put back are returned to where they were
+ *
+ * Usage:
+ * MemberAuditLog audit = MemberAuditLog.open(new File("GYMGUI", MemberAuditLog.DIRECTORY_NAME));
+ * audit.follow(members);
+ * MemberAuditLog.setThreadActor("desk");
+ * ...
+ * audit.undo("desk");
+ * List<MemberAuditLog.Event> events = audit.query(MemberAuditLog.Filter.all().member(1001), 100);
+ */
+public class MemberAuditLog implements MemberListener {
+    public static final String DIRECTORY_NAME = "audit";
+    public static final String SYSTEM_ACTOR = "system";
+    public static final int DEFAULT_RING_SIZE = 1 << 17;
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final long SEGMENT_BYTES = 16L << 20;
+    private static final int SCAN_BUFFER_BYTES = 1 << 20;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int MAX_UNDO_ACTIONS = 100;
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    // Offsets of the fixed fields from the start of a record's payload.
+    private static final int SEQUENCE = 0;
+    private static final int TIME = 16;
+    private static final int MEMBER_ID = 24;
+    private static final int CHANGE = 28;
+    private static final int ACTOR = 30;
+
+    private static final MemberChange[] CHANGES = MemberChange.values();
+    private static final ThreadLocal<Encoder> ENCODERS = new ThreadLocal<Encoder>() {
+        @Override
+        protected Encoder initialValue() {
+            return new Encoder();
+        }
+    };
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<Context>() {
+        @Override
+        protected Context initialValue() {
+            return new Context();
+        }
+    };
+
+    private final Path directory;
+    private final Event[] ring;
+    private long nextSequence = 1;
+    private long lastTime;
+    private MemberRepository repository;
+    private final IntIndex slots = new IntIndex();
+    private byte[][] states = new byte[1024][];
+    private final Map<String, ArrayDeque<Long>> done = new HashMap<>();
+    private final Map<String, ArrayDeque<Long>> undone = new HashMap<>();
+    private final Object undoLock = new Object();
+
+    // Segment store; all null or unused when the log is kept in memory only.
+    private final List<long[]> segments = new ArrayList<>();
+    private OutputStream out;
+    private long segmentBytes;
+    private final Encoder recordEncoder = new Encoder();
+    private final CRC32 recordCrc = new CRC32();
+    private ScheduledExecutorService flusher;
+
+    /**
+     * A log kept in memory only, holding the latest DEFAULT_RING_SIZE events.
+     */
+    public MemberAuditLog() {
+        this(null, DEFAULT_RING_SIZE);
+    }
+
+    MemberAuditLog(Path directory, int ringSize) {
+        this.directory = directory;
+        this.ring = new Event[ringSize];
+    }
+
+    /**
+     * Opens the log stored in the directory, creating it if needed; new events are
+     * appended after the ones already there.
+     */
+    public static MemberAuditLog open(File directory) throws IOException {
+        return open(directory, DEFAULT_RING_SIZE);
+    }
+
+    public static MemberAuditLog open(File directory, int ringSize) throws IOException {
+        MemberAuditLog log = new MemberAuditLog(directory.toPath(), ringSize);
+        log.openSegments();
+        return log;
+    }
+
+    /**
+     * Starts recording the changes of the repository's members, taking their current
+     * state as the starting point.
+     */
+    public synchronized void follow(MemberRepository members) {
+        if (repository != null) {
+            throw new IllegalStateException("Already following a roster");
+        }
+        repository = members;
+        members.addListener(this);
+        for (GymMember member : members) {
+            setState(member.getID(), encodeState(member));
+        }
+    }
+
+    /**
+     * Names the actor of every change made on the current thread outside an act()
+     * scope, for example "desk" on the Event Dispatch Thread.
+     */
+    public static void setThreadActor(String actor) {
+        CONTEXT.get().threadActor = actor;
+    }
+
+    /**
+     * The actor changes made on the current thread are recorded under now.
+     */
+    public static String currentActor() {
+        Context context = CONTEXT.get();
+        if (context.depth > 0) {
+            return context.scopeActor;
+        }
+        return context.threadActor == null ? SYSTEM_ACTOR : context.threadActor;
+    }
+
+    /**
+     * Groups the changes made on this thread until the scope is closed into one action
+     * of the given actor. A scope opened inside another joins the outer action.
+     */
+    public static Scope act(String actor) {
+        Context context = CONTEXT.get();
+        if (context.depth == 0) {
+            context.scopeActor = actor == null ? currentActor() : actor;
+            context.action = 0;
+        }
+        context.depth++;
+        return new Scope(context);
+    }
+
+    /**
+     * Groups the following changes into one action of the thread's current actor.
+     */
+    public static Scope act() {
+        return act(null);
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Context context;
+        private boolean closed;
+
+        private Scope(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (--context.depth == 0) {
+                context.scopeActor = null;
+                context.action = 0;
+            }
+        }
+    }
+
+    private static final class Context {
+        String threadActor;
+        String scopeActor;
+        int depth;
+        // The sequence of the first event of the open action, or 0 before it.
+        long action;
+        // Set while undo or redo applies events, which do not start new actions to undo.
+        boolean replaying;
+    }
+
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        byte type = member instanceof PremiumMember ? MemberCodec.PREMIUM : MemberCodec.REGULAR;
+        Context context = CONTEXT.get();
+        String actor = currentActor();
+        synchronized (this) {
+            // Encoded under the lock, so the states kept for a member follow the order of
+            // its events even when two threads announce changes to it at once.
+            byte[] encoded = change == MemberChange.ADDED || change == MemberChange.REMOVED
+                    ? encodeMember(member) : encodeState(member);
+            byte[] state = change == MemberChange.ADDED ? encodeState(member) : encoded;
+            long sequence = nextSequence++;
+            lastTime = Math.max(lastTime, System.currentTimeMillis());
+            boolean newAction = context.depth == 0 || context.action == 0;
+            long action = sequence;
+            if (context.depth > 0) {
+                if (context.action == 0) {
+                    context.action = sequence;
+                }
+                action = context.action;
+            }
+            int id = member.getID();
+            byte[] before;
+            byte[] after;
+            if (change == MemberChange.ADDED) {
+                before = null;
+                after = encoded;
+                setState(id, state);
+            } else if (change == MemberChange.REMOVED) {
+                before = encoded;
+                after = null;
+                setState(id, null);
+            } else {
+                before = getState(id);
+                after = encoded;
+                setState(id, state);
+            }
+            Event event = new Event(sequence, action, lastTime, id, change, type, actor, before, after);
+            ring[(int) (sequence % ring.length)] = event;
+            if (newAction && !context.replaying) {
+                push(done, actor, action);
+                ArrayDeque<Long> redoable = undone.get(actor);
+                if (redoable != null) {
+                    redoable.clear();
+                }
+            }
+            if (out != null) {
+                write(event);
+            }
+        }
+    }
+
+    private byte[] getState(int id) {
+        int slot = slots.get(id);
+        return slot < 0 ? null : states[slot];
+    }
+
+    private void setState(int id, byte[] state) {
+        int slot = slots.get(id);
+        if (slot < 0) {
+            if (state == null) {
+                return;
+            }
+            slot = slots.size();
+            if (slot == states.length) {
+                states = Arrays.copyOf(states, slot * 2);
+            }
+            slots.put(id, slot);
+        }
+        states[slot] = state;
+    }
+
+    private static void push(Map<String, ArrayDeque<Long>> stacks, String actor, long action) {
+        ArrayDeque<Long> stack = stacks.get(actor);
+        if (stack == null) {
+            stack = new ArrayDeque<>();
+            stacks.put(actor, stack);
+        }
+        stack.push(action);
+        if (stack.size() > MAX_UNDO_ACTIONS) {
+            stack.removeLast();
+        }
+    }
+
+    static byte[] encodeState(GymMember member) {
+        Encoder encoder = ENCODERS.get();
+        encoder.reset();
+        try {
+            MemberCodec.writeState(encoder.data, member);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode member " + member.getID(), e);
+        }
+        return encoder.toByteArray();
+    }
+
+    private static byte[] encodeMember(GymMember member) {
+        Encoder encoder = ENCODERS.get();
+        encoder.reset();
+        try {
+            MemberCodec.write(encoder.data, member);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode member " + member.getID(), e);
+        }
+        return encoder.toByteArray();
+    }
+
+    // A reusable byte buffer for DataOutput, without the per-call locking of
+    // ByteArrayOutputStream, which costs more than the encoding on the attendance path.
+    private static final class Encoder extends OutputStream {
+        final DataOutputStream data = new DataOutputStream(this);
+        byte[] bytes = new byte[256];
+        int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(size + length, size * 2));
+            }
+            System.arraycopy(b, offset, bytes, size, length);
+            size += length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+
+    /**
+     * The latest events, newest first, as many as are still in memory up to count.
+     */
+    public synchronized List<Event> recent(int count) {
+        List<Event> events = new ArrayList<>();
+        for (long sequence = nextSequence - 1; sequence > 0 && events.size() < count; sequence--) {
+            Event event = ring[(int) (sequence % ring.length)];
+            if (event == null || event.sequence != sequence) {
+                break;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * Takes back the actor's latest action that has not been undone and returns a
+     * description of it. Throws IllegalStateException, changing nothing, if there is
+     * nothing to undo, the action has left memory or a member has changed since.
+     */
+    public String undo(String actor) {
+        return replay(actor, true);
+    }
+
+    /**
+     * Makes again the actor's latest undone action, if nothing was done since.
+     */
+    public String redo(String actor) {
+        return replay(actor, false);
+    }
+
+    public synchronized boolean canUndo(String actor) {
+        ArrayDeque<Long> stack = done.get(actor);
+        return stack != null && !stack.isEmpty();
+    }
+
+    public synchronized boolean canRedo(String actor) {
+        ArrayDeque<Long> stack = undone.get(actor);
+        return stack != null && !stack.isEmpty();
+    }
+
+    private String replay(String actor, boolean undo) {
+        synchronized (undoLock) {
+            long action;
+            List<Event> events;
+            synchronized (this) {
+                ArrayDeque<Long> stack = (undo ? done : undone).get(actor);
+                if (stack == null || stack.isEmpty()) {
+                    throw new IllegalStateException(undo ? "Nothing to undo" : "Nothing to redo");
+                }
+                action = stack.peek();
+                events = eventsOf(action);
+            }
+            if (events == null) {
+                throw new IllegalStateException("That change is too old to " + (undo ? "undo" : "redo"));
+            }
+            checkMembers(events, undo);
+            List<Event> order = new ArrayList<>(events);
+            if (undo) {
+                Collections.reverse(order);
+            }
+            Context context = CONTEXT.get();
+            boolean wasReplaying = context.replaying;
+            Scope scope = act(actor);
+            context.replaying = true;
+            try {
+                applyAll(order, undo);
+            } finally {
+                context.replaying = wasReplaying;
+                scope.close();
+            }
+            synchronized (this) {
+                (undo ? done : undone).get(actor).remove(action);
+                push(undo ? undone : done, actor, action);
+            }
+            return (undo ? "Undid " : "Redid ") + summarize(events);
+        }
+    }
+
+    // The events of the action in order, or null if some have left the ring.
+    private List<Event> eventsOf(long action) {
+        long oldest = Math.max(1, nextSequence - ring.length);
+        if (action < oldest) {
+            return null;
+        }
+        List<Event> events = new ArrayList<>();
+        for (long sequence = action; sequence < nextSequence; sequence++) {
+            Event event = ring[(int) (sequence % ring.length)];
+            if (event.action == action) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    // Every member must be as the action left it (undo) or found it (redo).
+    private void checkMembers(List<Event> events, boolean undo) {
+        Map<Integer, Event> expected = new LinkedHashMap<>();
+        if (undo) {
+            for (Event event : events) {
+                expected.put(event.memberId, event);
+            }
+        } else {
+            for (int i = events.size() - 1; i >= 0; i--) {
+                expected.put(events.get(i).memberId, events.get(i));
+            }
+        }
+        for (Event event : expected.values()) {
+            if (!matches(repository.get(event.memberId), event, undo)) {
+                throw changedSince(event.memberId, undo);
+            }
+        }
+    }
+
+    // Whether the member on the roster is as the event left it (undo) or found it (redo).
+    private static boolean matches(GymMember current, Event event, boolean undo) {
+        boolean present = undo ? event.change != MemberChange.REMOVED : event.change != MemberChange.ADDED;
+        if (!present) {
+            return current == null;
+        } else if (current == null) {
+            return false;
+        } else if (event.change == MemberChange.ADDED || event.change == MemberChange.REMOVED) {
+            return Arrays.equals(encodeMember(current), undo ? event.after : event.before);
+        }
+        return Arrays.equals(encodeState(current), undo ? event.after : event.before);
+    }
+
+    private static IllegalStateException changedSince(int memberId, boolean undo) {
+        return new IllegalStateException("Member " + memberId + " has changed since; "
+                + (undo ? "undo" : "redo") + " the later change first");
+    }
+
+    // Applies the events in the order given. checkMembers ran without the members' locks,
+    // so each member is checked again under its lock as its first event is applied; if it
+    // has changed in between, the events already applied are taken back and nothing is left
+    // changed.
+    private void applyAll(List<Event> events, boolean undo) {
+        Set<Integer> checked = new HashSet<>();
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            if (!apply(event, undo, checked.add(event.memberId))) {
+                for (int j = i - 1; j >= 0; j--) {
+                    apply(events.get(j), !undo, false);
+                }
+                throw changedSince(event.memberId, undo);
+            }
+        }
+    }
+
+    // Puts the member back as the event found it (undo) or left it (redo). With check set,
+    // first makes sure, under the member's lock, that it is as the event left it (undo) or
+    // found it (redo), and returns false, changing nothing, if it is not.
+    private boolean apply(Event event, boolean undo, boolean check) {
+        MemberChange change = event.change;
+        if (change == (undo ? MemberChange.REMOVED : MemberChange.ADDED)) {
+            GymMember added = decodeMember(undo ? event.before : event.after);
+            return repository.add(added) || !check;
+        }
+        GymMember member = repository.get(event.memberId);
+        if (member == null) {
+            return !check;
+        }
+        synchronized (member) {
+            member.awaitRelease();
+            if (check && (repository.get(event.memberId) != member || !matches(member, event, undo))) {
+                return false;
+            }
+            if (change == (undo ? MemberChange.ADDED : MemberChange.REMOVED)) {
+                return repository.remove(member) || !check;
+            }
+            byte[] state = undo ? event.before : event.after;
+            if (state == null) {
+                return true;
+            }
+            try {
+                MemberCodec.readState(new DataInputStream(new ByteArrayInputStream(state)), member);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not restore member " + member.getID(), e);
+            }
+            member.changed(MemberChange.RESTORED);
+            return true;
+        }
+    }
+
+    private static String summarize(List<Event> events) {
+        Event first = events.get(0);
+        if (events.size() == 1) {
+            return first.change + " of member " + first.memberId;
+        }
+        Map<Integer, Boolean> members = new HashMap<>();
+        for (Event event : events) {
+            members.put(event.memberId, Boolean.TRUE);
+        }
+        return events.size() + " changes (" + first.change + " first) to " + members.size()
+                + (members.size() == 1 ? " member" : " members");
+    }
+
+    private void openSegments() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> numbers = segmentNumbers();
+        for (long number : numbers) {
+            segments.add(new long[] {number, firstTime(segmentPath(number))});
+        }
+        if (numbers.isEmpty()) {
+            startSegment(nextSequence);
+        } else {
+            long last = numbers.get(numbers.size() - 1);
+            Path file = segmentPath(last);
+            long[] end = recoverTail(file);
+            nextSequence = Math.max(last, end[0] + 1);
+            lastTime = end[1];
+            segmentBytes = Files.size(file);
+            if (segmentBytes >= SEGMENT_BYTES) {
+                startSegment(nextSequence);
+            } else {
+                out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND), 1 << 16);
+            }
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "audit-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Checks every record of the segment, cuts off a torn end and returns the last
+    // sequence and time in it (0 and 0 if there is none).
+    private static long[] recoverTail(Path file) throws IOException {
+        long[] last = {0, 0};
+        long good = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < ACTOR + 2 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                last[0] = record.getLong(SEQUENCE);
+                last[1] = record.getLong(TIME);
+                good += 8 + payload.length;
+            }
+        }
+        if (good < Files.size(file)) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(good);
+            }
+        }
+        return last;
+    }
+
+    private static long firstTime(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8 + TIME + 8);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // Reads until the header is complete or the file ends.
+            }
+            return header.hasRemaining() ? Long.MAX_VALUE : header.getLong(8 + TIME);
+        }
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        if (out != null) {
+            out.close();
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(segmentPath(firstSequence),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16);
+        segmentBytes = 0;
+        segments.add(new long[] {firstSequence, Long.MAX_VALUE});
+    }
+
+    private void write(Event event) {
+        try {
+            if (segmentBytes >= SEGMENT_BYTES) {
+                startSegment(event.sequence);
+            }
+            long[] segment = segments.get(segments.size() - 1);
+            if (segment[1] == Long.MAX_VALUE) {
+                segment[1] = event.time;
+            }
+            event.encode(recordEncoder, recordCrc);
+            out.write(recordEncoder.bytes, 0, recordEncoder.size);
+            segmentBytes += recordEncoder.size;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write the audit log", e);
+        }
+    }
+
+    /**
+     * Writes buffered events to the segment file.
+     */
+    public synchronized void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Could not flush the audit log: " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the audit log: " + e.getMessage());
+            }
+            out = null;
+        }
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of our segments.
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * The last limit events matching the filter, oldest first.
+     */
+    public List<Event> query(Filter filter, final int limit) throws IOException {
+        final ArrayDeque<Event> latest = new ArrayDeque<>();
+        scan(filter, new Consumer<Event>() {
+            public void accept(Event event) {
+                if (latest.size() == limit) {
+                    latest.removeFirst();
+                }
+                if (limit > 0) {
+                    latest.addLast(event);
+                }
+            }
+        });
+        return new ArrayList<>(latest);
+    }
+
+    public long count(Filter filter) throws IOException {
+        final long[] count = {0};
+        scan(filter, new Consumer<Event>() {
+            public void accept(Event event) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Passes every event matching the filter to the consumer, oldest first. A log kept
+     * in memory only searches the events still in its ring.
+     */
+    public void scan(Filter filter, Consumer<Event> consumer) throws IOException {
+        List<long[]> files;
+        long activeBytes;
+        synchronized (this) {
+            if (out == null) {
+                for (Event event : reversed(recent(ring.length))) {
+                    if (filter.matches(event)) {
+                        consumer.accept(event);
+                    }
+                }
+                return;
+            }
+            out.flush();
+            files = new ArrayList<>();
+            for (long[] segment : segments) {
+                files.add(segment.clone());
+            }
+            activeBytes = segmentBytes;
+        }
+        for (int i = 0; i < files.size(); i++) {
+            long firstTime = files.get(i)[1];
+            long nextFirstTime = i + 1 < files.size() ? files.get(i + 1)[1] : Long.MAX_VALUE;
+            if (firstTime >= filter.to || nextFirstTime < filter.from) {
+                continue;
+            }
+            Path file = segmentPath(files.get(i)[0]);
+            long length = i + 1 < files.size() ? Files.size(file) : activeBytes;
+            scanSegment(file, length, filter, consumer);
+        }
+    }
+
+    private static List<Event> reversed(List<Event> events) {
+        Collections.reverse(events);
+        return events;
+    }
+
+    private static void scanSegment(Path file, long length, Filter filter, Consumer<Event> consumer) throws IOException {
+        byte[] actor = filter.actor == null ? null : utf(filter.actor);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+            buffer.flip();
+            long position = 0;
+            while (true) {
+                int available = buffer.remaining();
+                int needed = available < 8 ? 8 : 8 + buffer.getInt(buffer.position());
+                if (available < needed) {
+                    if (position >= length) {
+                        return;
+                    }
+                    if (needed > buffer.capacity()) {
+                        ByteBuffer larger = ByteBuffer.allocate(needed);
+                        larger.put(buffer);
+                        buffer = larger;
+                    } else {
+                        buffer.compact();
+                    }
+                    buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + length - position));
+                    while (buffer.hasRemaining()) {
+                        int read = channel.read(buffer, position);
+                        if (read < 0) {
+                            break;
+                        }
+                        position += read;
+                    }
+                    buffer.flip();
+                    continue;
+                }
+                int start = buffer.position() + 8;
+                if (filter.matches(buffer, start, actor)) {
+                    byte[] payload = new byte[needed - 8];
+                    buffer.position(start);
+                    buffer.get(payload);
+                    consumer.accept(Event.decode(payload));
+                } else {
+                    buffer.position(start + needed - 8);
+                }
+            }
+        }
+    }
+
+    // The modified UTF-8 bytes DataOutput.writeUTF writes after the length.
+    private static byte[] utf(String text) {
+        Encoder encoder = new Encoder();
+        try {
+            encoder.data.writeUTF(text);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Actor name too long", e);
+        }
+        return Arrays.copyOfRange(encoder.bytes, 2, encoder.size);
+    }
+
+    private static GymMember decodeMember(byte[] bytes) {
+        try {
+            return MemberCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (EOFException e) {
+            // Events logged before the premium charge was kept are in format 1, which has
+            // one field less at the end.
+            try {
+                return MemberCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)), 1);
+            } catch (IOException older) {
+                throw new IllegalStateException("Could not decode member", older);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not decode member", e);
+        }
+    }
+
+    /**
+     * Which events a search returns. Filters are immutable; each method returns a
+     * narrower copy.
+     */
+    public static final class Filter {
+        private final int memberId;
+        private final EnumSet<MemberChange> changes;
+        private final String actor;
+        private final long from;
+        private final long to;
+
+        private Filter(int memberId, EnumSet<MemberChange> changes, String actor, long from, long to) {
+            this.memberId = memberId;
+            this.changes = changes;
+            this.actor = actor;
+            this.from = from;
+            this.to = to;
+        }
+
+        public static Filter all() {
+            return new Filter(-1, null, null, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        public Filter member(int id) {
+            return new Filter(id, changes, actor, from, to);
+        }
+
+        public Filter changes(MemberChange first, MemberChange... rest) {
+            return new Filter(memberId, EnumSet.of(first, rest), actor, from, to);
+        }
+
+        public Filter actor(String name) {
+            return new Filter(memberId, changes, name, from, to);
+        }
+
+        /**
+         * Events from the first time, inclusive, to the second, exclusive.
+         */
+        public Filter between(LocalDateTime start, LocalDateTime end) {
+            ZoneId zone = ZoneId.systemDefault();
+            return new Filter(memberId, changes, actor, start.atZone(zone).toInstant().toEpochMilli(),
+                    end.atZone(zone).toInstant().toEpochMilli());
+        }
+
+        boolean matches(Event event) {
+            return (memberId < 0 || event.memberId == memberId)
+                    && (changes == null || changes.contains(event.change))
+                    && event.time >= from && event.time < to
+                    && (actor == null || actor.equals(event.actor));
+        }
+
+        // Tests the fixed fields of the record whose payload starts at the offset, and
+        // the actor against its encoded bytes.
+        boolean matches(ByteBuffer buffer, int start, byte[] actorBytes) {
+            if (memberId >= 0 && buffer.getInt(start + MEMBER_ID) != memberId) {
+                return false;
+            }
+            if (changes != null && !changes.contains(CHANGES[buffer.get(start + CHANGE)])) {
+                return false;
+            }
+            long time = buffer.getLong(start + TIME);
+            if (time < from || time >= to) {
+                return false;
+            }
+            if (actorBytes != null) {
+                int length = buffer.getShort(start + ACTOR) & 0xFFFF;
+                if (length != actorBytes.length) {
+                    return false;
+                }
+                for (int i = 0; i < length; i++) {
+                    if (buffer.get(start + ACTOR + 2 + i) != actorBytes[i]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One recorded change. The states are kept in MemberCodec form: the whole member for
+     * ADDED (after) and REMOVED (before), the mutable fields otherwise.
+     */
+    public static final class Event {
+        private static final String[] REGULAR_FIELDS = {
+            "attendance", "loyaltyPoints", "active", "plan", "price", "eligibleForUpgrade", "removalReason"
+        };
+        private static final String[] PREMIUM_FIELDS = {
+            "attendance", "loyaltyPoints", "active", "personalTrainer", "paidAmount", "fullPayment", "discountAmount",
+            "premiumCharge"
+        };
+
+        private final long sequence;
+        private final long action;
+        private final long time;
+        private final int memberId;
+        private final MemberChange change;
+        private final byte memberType;
+        private final String actor;
+        private final byte[] before;
+        private final byte[] after;
+
+        Event(long sequence, long action, long time, int memberId, MemberChange change, byte memberType,
+              String actor, byte[] before, byte[] after) {
+            this.sequence = sequence;
+            this.action = action;
+            this.time = time;
+            this.memberId = memberId;
+            this.change = change;
+            this.memberType = memberType;
+            this.actor = actor;
+            this.before = before;
+            this.after = after;
+        }
+
+        public long getSequence() { return sequence; }
+
+        /**
+         * The sequence of the first event of the action this event belongs to.
+         */
+        public long getAction() { return action; }
+        public long getTimeMillis() { return time; }
+
+        public LocalDateTime getTime() {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        }
+
+        public int getMemberId() { return memberId; }
+        public MemberChange getChange() { return change; }
+        public String getActor() { return actor; }
+        public boolean isPremium() { return memberType == MemberCodec.PREMIUM; }
+
+        /**
+         * What changed, as "field old -> new" for each field that differs, or the member
+         * added or removed.
+         */
+        public String describe() {
+            if (change == MemberChange.ADDED || change == MemberChange.REMOVED) {
+                GymMember member = decodeMember(change == MemberChange.ADDED ? after : before);
+                return (change == MemberChange.ADDED ? "added " : "removed ")
+                        + (isPremium() ? "Premium" : "Regular") + " member " + member.getName();
+            }
+            String[] names = isPremium() ? PREMIUM_FIELDS : REGULAR_FIELDS;
+            Object[] old = before == null ? null : fields(before);
+            Object[] now = fields(after);
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < names.length; i++) {
+                // Events logged in format 1 have no premium charge.
+                if (now[i] == null || (old != null && (old[i] == null || old[i].equals(now[i])))) {
+                    continue;
+                }
+                text.append(text.length() == 0 ? "" : ", ").append(names[i]).append(' ');
+                if (old != null) {
+                    text.append(old[i]).append(" -> ");
+                }
+                text.append(now[i]);
+            }
+            return text.length() == 0 ? "no change" : text.toString();
+        }
+
+        private Object[] fields(byte[] state) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+                Object[] values = {in.readInt(), in.readDouble(), in.readBoolean(), in.readUTF(), in.readDouble(),
+                        in.readBoolean(), null, null};
+                values[6] = isPremium() ? (Object) in.readDouble() : in.readUTF();
+                if (isPremium() && in.available() >= 8) {
+                    values[7] = in.readDouble();
+                }
+                return values;
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not decode event " + sequence, e);
+            }
+        }
+
+        // Leaves the record, with its length and checksum, in the encoder.
+        void encode(Encoder encoder, CRC32 crc) throws IOException {
+            encoder.reset();
+            DataOutputStream out = encoder.data;
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeLong(sequence);
+            out.writeLong(action);
+            out.writeLong(time);
+            out.writeInt(memberId);
+            out.writeByte(change.ordinal());
+            out.writeByte(memberType);
+            out.writeUTF(actor);
+            writeBytes(out, before);
+            writeBytes(out, after);
+            int payloadLength = encoder.size - 8;
+            crc.reset();
+            crc.update(encoder.bytes, 8, payloadLength);
+            ByteBuffer header = ByteBuffer.wrap(encoder.bytes, 0, 8);
+            header.putInt(payloadLength);
+            header.putInt((int) crc.getValue());
+        }
+
+        private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(value.length);
+                out.write(value);
+            }
+        }
+
+        static Event decode(byte[] payload) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                long sequence = in.readLong();
+                long action = in.readLong();
+                long time = in.readLong();
+                int memberId = in.readInt();
+                MemberChange change = CHANGES[in.readUnsignedByte()];
+                byte memberType = in.readByte();
+                String actor = in.readUTF();
+                byte[] before = readBytes(in);
+                byte[] after = readBytes(in);
+                return new Event(sequence, action, time, memberId, change, memberType, actor, before, after);
+            } catch (IOException e) {
+                throw new IllegalStateException("Corrupt audit record", e);
+            }
+        }
+
+        private static byte[] readBytes(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] value = new byte[length];
+            in.readFully(value);
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return getTime() + " " + actor + " " + change + " member " + memberId + ": " + describe();
+        }
+    }
+}
@@ -0,0 +1,537 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberBenchmarks class is the baseline benchmark suite for the member model. It
+ * measures the operations a performance change is most likely to touch, for a range
+ * of roster sizes, and can export the results as JSON so two runs can be compared.
+ *
+ * Key Features:
+ * - attendance: RegularMember.markAttendance() on random members
+ * - payment:    PremiumMember.payDueAmount(double) on random members
+ * - upgrade:    RegularMember.upgradePlan(String), alternating Standard and Deluxe
+ * - format:     MemberFileFormat.toFormattedString() and appendRow() per member, compared
+ *               with the original String.format version, and getHeader()
+ * - lookup:     MemberRepository.get() by ID
+ * - search:     MemberSearchIndex lookups by phone, by name prefix and location, and by
+ *               a typed fragment, compared with a scan of the roster for the same query
+ * - report:     MemberReport over all five groupings on one thread and on every core
+ * - pricing:    PricingEngine.reprice() of the whole roster on one thread and on every
+ *               core, alternating between two rule sets so every member changes
+ * - bulk:       BulkOperations reverting every Regular member in one all-or-nothing run,
+ *               on one thread and on every core (leaves those members reverted)
+ * - occupancy:  OccupancyMonitor.checkIn() on its own, and markAttendance() with the
+ *               monitor following the roster
+ * - audit:      markAttendance() with an in-memory MemberAuditLog following the roster,
+ *               and a count of one member's events in the ring
+ * - history:    AttendanceHistory holding three years of visits for up to 100k members:
+ *               visits in the last 30 days, weekly rollups per member and daily rollups
+ *               for the studio, and the bytes stored per visit
+ * - scan:       roster-wide totals over member objects versus ColumnarRoster, and the
+ *               heap retained per member by each
+ * - mapped:     MappedMemberStore opened on its own and loaded into a repository
+ *               (reported per member), and markAttendance() with the store following the roster
+ * - save/load:  a full MemberDetails.txt snapshot written by MemberSaveEngine and read
+ *               back by MemberFileLoader (reported per member)
+ *
+ * Implementation Details:
+ * - Runs on the Bench harness; save and load take seconds on large rosters, so they
+ *   use one warm-up and three measured rounds instead of five and five
+ * - Rosters are built with a fixed seed, half Regular and half Premium members
+ * - Files are written to a temporary directory that is removed afterwards
+ *
+ * Usage:
+ * java -Xmx8g MemberBenchmarks [--sizes 1000,100000,1000000,10000000] [--only format,lookup] [--json results.json]
+ * The default sizes are 1k, 100k and 1M; 10M members needs a heap of several GB.
+ */
+public class MemberBenchmarks {
+    private static final int[] DEFAULT_SIZES = {1_000, 100_000, 1_000_000};
+    private static final int SAMPLES = 1 << 14;
+    private static final int OPS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = DEFAULT_SIZES;
+        String only = null;
+        File json = null;
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--sizes":
+                    String[] parts = args[i + 1].split(",");
+                    sizes = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        sizes[j] = Integer.parseInt(parts[j].trim());
+                        if (sizes[j] < 2) {
+                            throw new IllegalArgumentException("Roster sizes must be at least 2");
+                        }
+                    }
+                    break;
+                case "--only":
+                    only = "," + args[i + 1] + ",";
+                    break;
+                case "--json":
+                    json = new File(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (selected(only, "format")) {
+            Bench.run("MemberFileFormat.getHeader", "", OPS, i -> MemberFileFormat.getHeader().length());
+        }
+        for (int size : sizes) {
+            runAll(size, only);
+        }
+        if (json != null) {
+            Bench.writeJson(json);
+            System.out.println("Results written to " + json.getAbsolutePath());
+        }
+    }
+
+    private static boolean selected(String only, String group) {
+        return only == null || only.contains("," + group + ",");
+    }
+
+    static MemberRepository buildRoster(int size, long seed) {
+        Random random = new Random(seed);
+        MemberRepository members = new MemberRepository(size);
+        String[] locations = {"Kathmandu", "Lalitpur", "Bhaktapur", "Pokhara"};
+        for (int i = 0; i < size; i++) {
+            int id = i + 1;
+            String location = locations[random.nextInt(locations.length)];
+            GymMember member;
+            if ((i & 1) == 0) {
+                member = new RegularMember(id, "Member " + id, location, "98" + (10000000 + id),
+                        "member" + id + "@mail.com", "Male", "1/Jan/1995", "1/Jan/2024", "Walk-in");
+            } else {
+                member = new PremiumMember(id, "Member " + id, location, "98" + (10000000 + id),
+                        "member" + id + "@mail.com", "Female", "1/Jan/1995", "1/Jan/2024", "Trainer");
+            }
+            member.restoreState(random.nextInt(60), random.nextInt(60) * 5.0, true);
+            members.add(member);
+        }
+        return members;
+    }
+
+    private static void runAll(int size, String only) throws Exception {
+        MemberRepository members = buildRoster(size, 42);
+        String params = "members=" + size;
+
+        Random random = new Random(7);
+        int mask = SAMPLES - 1;
+        int[] ids = new int[SAMPLES];
+        RegularMember[] regulars = new RegularMember[SAMPLES];
+        PremiumMember[] premiums = new PremiumMember[SAMPLES];
+        // Regular members have odd IDs and premium members even ones.
+        for (int i = 0; i < SAMPLES; i++) {
+            ids[i] = random.nextInt(size) + 1;
+            int pair = random.nextInt(size / 2);
+            regulars[i] = (RegularMember) members.get(2 * pair + 1);
+            premiums[i] = (PremiumMember) members.get(2 * pair + 2);
+        }
+
+        if (selected(only, "attendance")) {
+            Bench.run("RegularMember.markAttendance", params, OPS, i -> {
+                RegularMember member = regulars[i & mask];
+                member.markAttendance();
+                return member.getAttendance();
+            });
+        }
+
+        if (selected(only, "payment")) {
+            Bench.run("PremiumMember.payDueAmount", params, OPS, i -> {
+                PremiumMember member = premiums[i & mask];
+                if (member.isFullPayment()) {
+                    member.restorePayment("Trainer", 0, false, 0);
+                }
+                return member.payDueAmount(250).length();
+            });
+        }
+
+        if (selected(only, "upgrade")) {
+            for (RegularMember member : regulars) {
+                member.restorePlan("Basic", 6500, true, "");
+            }
+            Bench.run("RegularMember.upgradePlan", params, OPS, i -> {
+                RegularMember member = regulars[i & mask];
+                return member.upgradePlan((i & SAMPLES) == 0 ? "Standard" : "Deluxe").length();
+            });
+        }
+
+        if (selected(only, "format")) {
+            Bench.run("MemberFileFormat.formatWithPattern", params, OPS,
+                    i -> MemberFileFormat.formatWithPattern(members.get(ids[i & mask])).length());
+            Bench.run("MemberFileFormat.toFormattedString", params, OPS,
+                    i -> MemberFileFormat.toFormattedString(members.get(ids[i & mask])).length());
+            StringBuilder row = new StringBuilder(256);
+            Bench.run("MemberFileFormat.appendRow(reused)", params, OPS, i -> {
+                row.setLength(0);
+                return MemberFileFormat.appendRow(row, members.get(ids[i & mask])).length();
+            });
+        }
+
+        if (selected(only, "lookup")) {
+            Bench.run("MemberRepository.get", params, OPS, i -> members.get(ids[i & mask]).getID());
+        }
+
+        if (selected(only, "search")) {
+            benchmarkSearch(members, params, ids);
+        }
+
+        if (selected(only, "report")) {
+            benchmarkReport(members, params);
+        }
+
+        if (selected(only, "pricing")) {
+            benchmarkPricing(members, params);
+        }
+
+        if (selected(only, "bulk")) {
+            benchmarkBulk(members, params);
+        }
+
+        if (selected(only, "occupancy")) {
+            OccupancyMonitor occupancy = OccupancyMonitor.follow(members);
+            Bench.run("OccupancyMonitor.checkIn", params, OPS, i -> {
+                occupancy.checkIn(regulars[i & mask].getLocationCode());
+                return i;
+            });
+            Bench.run("RegularMember.markAttendance(occupancy)", params, OPS, i -> {
+                RegularMember member = regulars[i & mask];
+                member.markAttendance();
+                return member.getAttendance();
+            });
+            members.removeListener(occupancy);
+        }
+
+        if (selected(only, "audit")) {
+            benchmarkAudit(members, params, regulars, mask);
+        }
+
+        if (selected(only, "history")) {
+            benchmarkHistory(Math.min(size, 100_000), ids);
+        }
+
+        if (selected(only, "scan")) {
+            benchmarkScans(members, params);
+        }
+
+        if (selected(only, "mapped")) {
+            benchmarkMapped(members, params, regulars, mask);
+        }
+
+        if (selected(only, "save") || selected(only, "load")) {
+            benchmarkFiles(members, params);
+        }
+    }
+
+    // Indexed searches versus testing every member against the same query.
+    private static void benchmarkSearch(MemberRepository members, String params, int[] ids) {
+        int mask = ids.length - 1;
+        MemberSearchIndex index = MemberSearchIndex.follow(members);
+        MemberQuery[] byPhone = new MemberQuery[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            byPhone[i] = MemberQuery.phone("98" + (10000000 + ids[i]));
+        }
+        MemberQuery nameAndLocation = MemberQuery.namePrefix("member 12").and(MemberQuery.location("Pokhara"));
+        int scanOps = Math.max(4, 20_000_000 / members.size());
+        Bench.run("search.phone(index)", params, OPS, i -> index.search(byPhone[i & mask]).size());
+        Bench.run("search.phone(scan)", params, scanOps, i -> scan(members, byPhone[i & mask]));
+        Bench.run("search.nameAndLocation(index)", params, scanOps, i -> index.search(nameAndLocation).size());
+        Bench.run("search.nameAndLocation(scan)", params, scanOps, i -> scan(members, nameAndLocation));
+        // What the search box runs as "4711" is typed: a name prefix, then trigram searches.
+        MemberQuery[] typed = {MemberQuery.fragment("4"), MemberQuery.fragment("47"),
+                MemberQuery.fragment("471"), MemberQuery.fragment("4711")};
+        Bench.run("search.fragment(index)", params, scanOps, i -> index.search(typed[i & 3]).size());
+        Bench.run("search.fragment(scan)", params, scanOps, i -> scan(members, typed[i & 3]));
+        members.removeListener(index);
+    }
+
+    private static int scan(MemberRepository members, MemberQuery query) {
+        int count = 0;
+        for (GymMember member : members) {
+            if (query.matches(member)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The month-end report per member, sequential and with one worker per core.
+    private static void benchmarkReport(MemberRepository members, String params) {
+        GymMember[] all = members.toArray();
+        int cores = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(cores);
+        int ops = Math.max(2, 10_000_000 / all.length);
+        double one = Bench.run("report(sequential)", params, ops,
+                i -> MemberReport.run(all, single, MemberReport.Dimension.values()).getRows(
+                        MemberReport.Dimension.LOCATION).size()) / all.length;
+        double many = Bench.run("report(parallelism=" + cores + ")", params, ops,
+                i -> MemberReport.run(all, parallel, MemberReport.Dimension.values()).getRows(
+                        MemberReport.Dimension.LOCATION).size()) / all.length;
+        System.out.printf("%-40s %-20s %12.2f ns/member sequential, %.2f ns/member with parallelism %d%n",
+                "report.perMember", params, one, many, cores);
+        single.shutdown();
+        parallel.shutdown();
+    }
+
+    // Re-pricing after a rule change; each round switches rules so every member is updated.
+    private static void benchmarkPricing(MemberRepository members, String params) {
+        GymMember[] all = members.toArray();
+        Properties raised = new Properties();
+        raised.setProperty("price.basic", "7000");
+        raised.setProperty("price.standard", "13000");
+        raised.setProperty("price.deluxe", "19000");
+        raised.setProperty("premium.charge", "55000");
+        PricingRules[] rules = {PricingRules.parse(raised), PricingRules.defaults()};
+        int cores = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(cores);
+        int ops = Math.max(2, 10_000_000 / all.length) & ~1;
+        double one = Bench.run("reprice(sequential)", params, ops,
+                i -> PricingEngine.reprice(all, single, rules[i & 1])) / all.length;
+        double many = Bench.run("reprice(parallelism=" + cores + ")", params, ops,
+                i -> PricingEngine.reprice(all, parallel, rules[i & 1])) / all.length;
+        System.out.printf("%-40s %-20s %12.2f ns/member sequential, %.2f ns/member with parallelism %d%n",
+                "reprice.perMember", params, one, many, cores);
+        PricingEngine.reprice(all, single, PricingRules.defaults());
+        single.shutdown();
+        parallel.shutdown();
+    }
+
+    // A bulk reversion of every Regular member, reported per member; every run is valid and commits.
+    private static void benchmarkBulk(MemberRepository members, String params) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(cores);
+        BulkOperations sequential = new BulkOperations(members, single);
+        BulkOperations concurrent = new BulkOperations(members, parallel);
+        int[] ids = sequential.select(member -> member instanceof RegularMember);
+        int ops = Math.max(2, 2_000_000 / ids.length);
+        double one = Bench.run("bulk.revertRegular(sequential)", params, ops,
+                i -> sequential.revertRegular(ids, "Season change").size()) / ids.length;
+        double many = Bench.run("bulk.revertRegular(parallelism=" + cores + ")", params, ops,
+                i -> concurrent.revertRegular(ids, "Season change").size()) / ids.length;
+        System.out.printf("%-40s %-20s %12.2f ns/member sequential, %.2f ns/member with parallelism %d%n",
+                "bulk.perMember", params, one, many, cores);
+        single.shutdown();
+        parallel.shutdown();
+    }
+
+    // The cost an audit log adds to each change, and how fast a filter goes through the ring.
+    private static void benchmarkAudit(MemberRepository members, String params, RegularMember[] regulars, int mask)
+            throws IOException {
+        MemberAuditLog audit = new MemberAuditLog();
+        audit.follow(members);
+        try {
+            Bench.run("RegularMember.markAttendance(audit)", params, OPS, i -> {
+                RegularMember member = regulars[i & mask];
+                member.markAttendance();
+                return member.getAttendance();
+            });
+            MemberAuditLog.Filter filter = MemberAuditLog.Filter.all().member(regulars[0].getID());
+            double scanNanos = Bench.run("MemberAuditLog.count(member)", params, 50, i -> {
+                try {
+                    return audit.count(filter);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            System.out.printf("%-40s %-20s %12.2f ns/event%n", "", "", scanNanos / MemberAuditLog.DEFAULT_RING_SIZE);
+        } finally {
+            members.removeListener(audit);
+            audit.close();
+        }
+    }
+
+    // Three years of visits, about two a week at gym hours, for each of the first members.
+    private static void benchmarkHistory(int size, int[] ids) {
+        Random random = new Random(11);
+        AttendanceHistory history = new AttendanceHistory();
+        LocalDateTime end = LocalDateTime.of(2025, 1, 1, 0, 0);
+        long last = AttendanceHistory.toMinute(end);
+        long first = AttendanceHistory.toMinute(end.minusYears(3));
+        long visits = 0;
+        for (int id = 1; id <= size; id++) {
+            for (long day = first / 1440 + random.nextInt(4); day * 1440 < last; day += 1 + random.nextInt(6)) {
+                history.record(id, day * 1440 + 360 + random.nextInt(16 * 60), 1);
+                visits++;
+            }
+        }
+        String params = "members=" + size;
+        int mask = ids.length - 1;
+        LocalDateTime monthAgo = end.minusDays(30);
+        LocalDateTime start = end.minusYears(3);
+        Bench.run("history.countVisits(30 days)", params, OPS,
+                i -> history.countVisits(1 + (ids[i & mask] - 1) % size, monthAgo, end));
+        Bench.run("history.rollup(member, 3 years by week)", params, OPS / 10,
+                i -> history.rollup(1 + (ids[i & mask] - 1) % size, start, end, AttendanceHistory.Resolution.WEEK).length);
+        Bench.run("history.rollup(studio, 3 years by day)", params, OPS / 100,
+                i -> history.rollup(start, end, AttendanceHistory.Resolution.DAY).length);
+        System.out.printf("%-40s %-20s %12.2f bytes/visit over %d visits%n",
+                "history.encoded", params, (double) history.getEncodedBytes() / visits, visits);
+    }
+
+    // Whole-roster aggregates over member objects versus the columnar copy, plus the
+    // heap each representation needs.
+    private static void benchmarkScans(MemberRepository members, String params) {
+        GymMember[] all = members.toArray();
+        ColumnarRoster roster = ColumnarRoster.of(members);
+        int ops = Math.max(4, 50_000_000 / all.length);
+        Bench.run("objects.totalAttendance", params, ops, i -> {
+            long total = 0;
+            for (GymMember member : all) {
+                total += member.getAttendance();
+            }
+            return total;
+        });
+        Bench.run("columnar.totalAttendance", params, ops, i -> roster.totalAttendance());
+        Bench.run("objects.activeCount", params, ops, i -> {
+            int count = 0;
+            for (GymMember member : all) {
+                if (member.getActiveStatus()) {
+                    count++;
+                }
+            }
+            return count;
+        });
+        Bench.run("columnar.activeCount", params, ops, i -> roster.activeCount());
+        Bench.run("objects.totalLoyaltyPoints", params, ops, i -> {
+            double total = 0;
+            for (GymMember member : all) {
+                total += member.getLoyaltyPoints();
+            }
+            return (long) total;
+        });
+        Bench.run("columnar.totalLoyaltyPoints", params, ops, i -> (long) roster.totalLoyaltyPoints());
+
+        long objectBytes = retainedBytes(() -> buildRoster(members.size(), 42));
+        long columnarBytes = retainedBytes(() -> ColumnarRoster.of(buildRoster(members.size(), 42)));
+        System.out.printf("%-40s %-20s %12d bytes/member%n", "heap.objects", params, objectBytes / all.length);
+        System.out.printf("%-40s %-20s %12d bytes/member%n", "heap.columnar", params, columnarBytes / all.length);
+    }
+
+    // Heap still in use after building the value, measured around full collections.
+    private static long retainedBytes(Supplier<Object> build) {
+        Runtime runtime = Runtime.getRuntime();
+        settle();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object value = build.get();
+        settle();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        Bench.sink += value.hashCode();
+        return after - before;
+    }
+
+    private static void settle() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Opening the mapped store and materialising every member, then the in-place update per change.
+    private static void benchmarkMapped(MemberRepository members, String params, RegularMember[] regulars, int mask)
+            throws IOException {
+        File directory = Files.createTempDirectory("member-bench").toFile();
+        int size = members.size();
+        try {
+            MappedMemberStore store = MappedMemberStore.open(directory);
+            store.writeAll(members);
+            store.close();
+            Bench.run("MappedMemberStore.open(roster)", params, 1, 1, 3, i -> {
+                try {
+                    MappedMemberStore opened = MappedMemberStore.open(directory);
+                    opened.close();
+                    return opened.size();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            double loadNanos = Bench.run("MappedMemberStore.open+loadInto(roster)", params, 1, 1, 3, i -> {
+                try {
+                    MappedMemberStore opened = MappedMemberStore.open(directory);
+                    MemberRepository loaded = new MemberRepository(size);
+                    opened.loadInto(loaded);
+                    opened.close();
+                    return loaded.size();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            System.out.printf("%-40s %-20s %12.2f ns/member%n", "", "", loadNanos / size);
+
+            MappedMemberStore following = MappedMemberStore.mirror(directory, members);
+            try {
+                Bench.run("RegularMember.markAttendance(mapped)", params, OPS, i -> {
+                    RegularMember member = regulars[i & mask];
+                    member.markAttendance();
+                    return member.getAttendance();
+                });
+            } finally {
+                members.removeListener(following);
+                following.close();
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    // Save and load are timed per member by running the whole roster once per round.
+    private static void benchmarkFiles(MemberRepository members, String params) throws IOException {
+        File directory = Files.createTempDirectory("member-bench").toFile();
+        MemberSaveEngine engine = new MemberSaveEngine(directory);
+        int size = members.size();
+        try {
+            double saveNanos = Bench.run("MemberSaveEngine.saveSnapshot(roster)", params, 1, 1, 3, i -> {
+                try {
+                    return engine.saveSnapshot(members).get();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            System.out.printf("%-40s %-20s %12.2f ns/member%n", "", "", saveNanos / size);
+
+            MemberFileLoader loader = new MemberFileLoader(8L << 20, StandardCharsets.UTF_8);
+            File snapshot = engine.getSnapshotFile();
+            double loadNanos = Bench.run("MemberFileLoader.load(roster)", params, 1, 1, 3, i -> {
+                try {
+                    return loader.load(snapshot, new MemberRepository(size)).loaded;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            System.out.printf("%-40s %-20s %12.2f ns/member%n", "", "", loadNanos / size);
+        } finally {
+            engine.shutdown();
+            deleteDirectory(directory);
+        }
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
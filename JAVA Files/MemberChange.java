@@ -0,0 +1,32 @@
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberChange enum names every kind of state change a member can go through.
+ * It is passed to MemberListener so subscribers know what happened without having
+ * to compare the member with an older copy.
+ *
+ * Note:
+ * The ordinal of each constant is written to the binary journal, so new constants
+ * must only ever be added at the end.
+ */
+public enum MemberChange {
+    ADDED,
+    REMOVED,
+    ATTENDANCE,
+    PAYMENT,
+    DISCOUNT,
+    UPGRADE,
+    ACTIVATED,
+    DEACTIVATED,
+    RESET,
+    REVERT_REGULAR,
+    REVERT_PREMIUM,
+    REPRICED,
+    // Only in the journal: one record holding the changes of a bulk operation.
+    BATCH,
+    // A member put back to an earlier state by MemberAuditLog undo or redo.
+    RESTORED
+}
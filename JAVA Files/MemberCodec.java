@@ -0,0 +1,128 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberCodec class converts members to and from a compact binary form. Unlike
+ * the text layout of MemberDetails.txt it keeps every field, so a member read back
+ * is identical to the one that was written.
+ *
+ * Implementation Details:
+ * - A member is written as a type byte, its identity fields and then its state
+ * - The state block holds only the fields the mutators can change, so journal
+ *   records can carry just the state instead of the whole member
+ * - Strings use DataOutput.writeUTF; null strings are written as empty strings
+ * - FORMAT numbers the layout; the readers take the format the data was written in.
+ *   Format 2 added the premium charge, which format 1 left to the rules in force
+ *
+ * Usage:
+ * Used by MemberJournal for journal records and snapshots.
+ */
+public final class MemberCodec {
+    public static final byte REGULAR = 1;
+    public static final byte PREMIUM = 2;
+    public static final int FORMAT = 2;
+
+    private MemberCodec() {
+    }
+
+    public static void write(DataOutput out, GymMember member) throws IOException {
+        out.writeByte(member instanceof PremiumMember ? PREMIUM : REGULAR);
+        out.writeInt(member.getID());
+        writeString(out, member.getName());
+        writeString(out, member.getLocation());
+        writeString(out, member.getPhone());
+        writeString(out, member.getEmail());
+        writeString(out, member.getGender());
+        writeString(out, member.getDOB());
+        writeString(out, member.getMembershipStartDate());
+        if (member instanceof RegularMember) {
+            writeString(out, ((RegularMember) member).getReferralSource());
+        }
+        writeState(out, member);
+    }
+
+    public static GymMember read(DataInput in) throws IOException {
+        return read(in, FORMAT);
+    }
+
+    public static GymMember read(DataInput in, int format) throws IOException {
+        byte type = in.readByte();
+        int id = in.readInt();
+        String name = in.readUTF();
+        String location = in.readUTF();
+        String phone = in.readUTF();
+        String email = in.readUTF();
+        String gender = in.readUTF();
+        String dob = in.readUTF();
+        String startDate = in.readUTF();
+        GymMember member;
+        if (type == REGULAR) {
+            String referralSource = in.readUTF();
+            member = new RegularMember(id, name, location, phone, email, gender, dob, startDate, referralSource);
+        } else if (type == PREMIUM) {
+            member = new PremiumMember(id, name, location, phone, email, gender, dob, startDate, "");
+        } else {
+            throw new IOException("Unknown member type " + type);
+        }
+        readState(in, member, format);
+        return member;
+    }
+
+    /**
+     * Writes every field a mutator can change.
+     */
+    public static void writeState(DataOutput out, GymMember member) throws IOException {
+        out.writeInt(member.getAttendance());
+        out.writeDouble(member.getLoyaltyPoints());
+        out.writeBoolean(member.getActiveStatus());
+        if (member instanceof RegularMember) {
+            RegularMember r = (RegularMember) member;
+            writeString(out, r.getPlan());
+            out.writeDouble(r.getPrice());
+            out.writeBoolean(r.isEligibleForUpgrade());
+            writeString(out, r.getRemovalReason());
+        } else if (member instanceof PremiumMember) {
+            PremiumMember p = (PremiumMember) member;
+            writeString(out, p.getPersonalTrainer());
+            out.writeDouble(p.getPaidAmount());
+            out.writeBoolean(p.isFullPayment());
+            out.writeDouble(p.getDiscountAmount());
+            out.writeDouble(p.getPremiumCharge());
+        }
+    }
+
+    public static void readState(DataInput in, GymMember member) throws IOException {
+        readState(in, member, FORMAT);
+    }
+
+    public static void readState(DataInput in, GymMember member, int format) throws IOException {
+        if (format < 1 || format > FORMAT) {
+            throw new IOException("Unknown member format " + format);
+        }
+        member.restoreState(in.readInt(), in.readDouble(), in.readBoolean());
+        if (member instanceof RegularMember) {
+            ((RegularMember) member).restorePlan(in.readUTF(), in.readDouble(), in.readBoolean(), in.readUTF());
+        } else if (member instanceof PremiumMember) {
+            PremiumMember p = (PremiumMember) member;
+            String personalTrainer = in.readUTF();
+            double paidAmount = in.readDouble();
+            boolean isFullPayment = in.readBoolean();
+            double discountAmount = in.readDouble();
+            if (format >= 2) {
+                p.restorePayment(personalTrainer, paidAmount, isFullPayment, discountAmount, in.readDouble());
+            } else {
+                p.restorePayment(personalTrainer, paidAmount, isFullPayment, discountAmount);
+            }
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeUTF(value == null ? "" : value);
+    }
+}
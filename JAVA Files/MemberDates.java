@@ -0,0 +1,162 @@
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.MonthDay;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberDates class converts member dates between the text written by the
+ * registration form ("d/MMM/yyyy", e.g. "7/Mar/2024") and epoch-day ints, the number
+ * of days since 1 January 1970. Members store their date of birth and membership start
+ * as epoch days, so date comparisons are int comparisons instead of string parsing.
+ *
+ * Key Features:
+ * - parse() accepts the form layout and ISO dates ("2024-03-07")
+ * - format() turns an epoch day back into the form layout, reusing one String per day
+ * - appendTo() writes the same text into a StringBuilder without creating any object
+ * - UNKNOWN marks an empty or unreadable date
+ * - Helpers for "joined this month" and "birthday today" style checks on epoch days
+ *
+ * Implementation Details:
+ * - Month names are matched without regard to case; the day is not zero-padded
+ * - Formatted Strings for 1900-2099 are cached in an array indexed by day, filled on
+ *   first use, so repeated reads of a member's date create no garbage
+ *
+ * Usage:
+ * int day = MemberDates.parse("7/Mar/2024");
+ * String text = MemberDates.format(day);
+ */
+public final class MemberDates {
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun",
+            "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+    private static final int CACHE_FIRST_DAY = (int) LocalDate.of(1900, 1, 1).toEpochDay();
+    private static final int CACHE_LAST_DAY = (int) LocalDate.of(2099, 12, 31).toEpochDay();
+    private static final String[] FORMATTED = new String[CACHE_LAST_DAY - CACHE_FIRST_DAY + 1];
+
+    private MemberDates() {
+    }
+
+    /**
+     * Returns the epoch day of a "d/MMM/yyyy" or "yyyy-MM-dd" date, or UNKNOWN if the
+     * text is empty or is not a real calendar date.
+     */
+    public static int parse(String text) {
+        if (text == null) {
+            return UNKNOWN;
+        }
+        text = text.trim();
+        try {
+            String[] parts = text.split("/");
+            if (parts.length == 3) {
+                int month = monthNumber(parts[1].trim());
+                if (month > 0) {
+                    return (int) LocalDate.of(Integer.parseInt(parts[2].trim()), month,
+                            Integer.parseInt(parts[0].trim())).toEpochDay();
+                }
+            } else if (text.length() == 10 && text.charAt(4) == '-') {
+                return (int) LocalDate.parse(text).toEpochDay();
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            // Not a date; reported as UNKNOWN below.
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Formats an epoch day the way the registration form writes dates; UNKNOWN gives "".
+     */
+    public static String format(int epochDay) {
+        if (epochDay == UNKNOWN) {
+            return "";
+        }
+        if (epochDay < CACHE_FIRST_DAY || epochDay > CACHE_LAST_DAY) {
+            return build(epochDay);
+        }
+        String text = FORMATTED[epochDay - CACHE_FIRST_DAY];
+        if (text == null) {
+            text = build(epochDay);
+            FORMATTED[epochDay - CACHE_FIRST_DAY] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Appends format(epochDay) to the builder digit by digit, for bulk writers.
+     */
+    public static StringBuilder appendTo(StringBuilder out, int epochDay) {
+        if (epochDay == UNKNOWN) {
+            return out;
+        }
+        // Civil date from days since 1970-01-01, counted in 400-year eras that start
+        // on 1 March so the leap day falls at the end of each year.
+        long days = epochDay + 719468L;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shifted = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shifted + 2) / 5 + 1);
+        int month = (int) (shifted < 10 ? shifted + 3 : shifted - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return out.append(day).append('/').append(MONTHS[month - 1]).append('/').append(year);
+    }
+
+    private static String build(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getDayOfMonth() + "/" + MONTHS[date.getMonthValue() - 1] + "/" + date.getYear();
+    }
+
+    public static LocalDate toLocalDate(int epochDay) {
+        return epochDay == UNKNOWN ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    public static int fromLocalDate(LocalDate date) {
+        return date == null ? UNKNOWN : (int) date.toEpochDay();
+    }
+
+    /**
+     * True if the day falls in the same month and year as the reference date.
+     */
+    public static boolean isSameMonth(int epochDay, LocalDate reference) {
+        if (epochDay == UNKNOWN) {
+            return false;
+        }
+        int first = (int) reference.withDayOfMonth(1).toEpochDay();
+        return epochDay >= first && epochDay < first + reference.lengthOfMonth();
+    }
+
+    /**
+     * True if a date of birth falls on the same day and month as the reference date.
+     * Members born on 29 February celebrate on 28 February in other years.
+     */
+    public static boolean isBirthday(int birthEpochDay, LocalDate reference) {
+        if (birthEpochDay == UNKNOWN) {
+            return false;
+        }
+        LocalDate birth = LocalDate.ofEpochDay(birthEpochDay);
+        MonthDay birthday = MonthDay.from(birth);
+        if (birthday.getMonthValue() == 2 && birthday.getDayOfMonth() == 29 && !reference.isLeapYear()) {
+            birthday = MonthDay.of(2, 28);
+        }
+        return birthday.equals(MonthDay.from(reference));
+    }
+
+    private static int monthNumber(String name) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (MONTHS[i].equalsIgnoreCase(name)) {
+                return i + 1;
+            }
+        }
+        try {
+            int month = Integer.parseInt(name);
+            return month >= 1 && month <= 12 ? month : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
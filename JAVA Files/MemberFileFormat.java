@@ -0,0 +1,160 @@
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberFileFormat class defines the fixed-width text layout of
+ * GYMGUI/MemberDetails.txt: one header line followed by one line per member.
+ *
+ * Implementation Details:
+ * - Columns are left-aligned and padded with spaces to a minimum width
+ * - Regular members show their plan and plan price; premium members show
+ *   "Premium" and the premium charge in the same columns
+ * - Rows are appended field by field into a caller's StringBuilder instead of going
+ *   through String.format, so writing a row parses no pattern and boxes no numbers;
+ *   the start date is written from the member's epoch day, not a formatted String
+ * - Output is identical to the original String.format layout. Amounts with one decimal
+ *   place (prices, charges, loyalty points, discounts) are printed directly; any other
+ *   amount, and every amount when the default locale does not print "1234.5", is
+ *   printed with String.format exactly as before
+ *
+ * Usage:
+ * Shared by GymMemberGUI and MemberSaveEngine so both write exactly the same layout.
+ * Bulk writers should reuse one StringBuilder with appendRow().
+ */
+public final class MemberFileFormat {
+    public static final String FILE_NAME = "MemberDetails.txt";
+    public static final String DIRECTORY = "GYMGUI";
+
+    private static final String ROW_PATTERN =
+            "%-5s %-15s %-15s %-15s %-25s %-18s %-10s %-8.1f %-8s %-10.1f %-8s %-10s %-10.1f %-10.1f\n";
+
+    private static final String HEADER = String.format(
+            "%-5s %-15s %-15s %-15s %-25s %-18s %-10s %-8s %-8s %-10s %-8s %-10s %-10s %-10s\n",
+            "ID", "Name", "Location", "Phone", "Email", "Membership Start",
+            "Plan", "Price", "Attend", "Loyalty", "Status", "Full Pay",
+            "Discount", "Net Paid"
+    );
+
+    // Largest amount printed without String.format; far above any fee, and small enough
+    // that a value equal to k / 10 is always printed by %.1f as exactly k / 10.
+    private static final double DIRECT_LIMIT = 1e12;
+
+    private MemberFileFormat() {
+    }
+
+    public static String getHeader() {
+        return HEADER;
+    }
+
+    public static String toFormattedString(GymMember m) {
+        StringBuilder row = new StringBuilder(180);
+        appendRow(row, m);
+        return row.toString();
+    }
+
+    /**
+     * Appends the row for the member, including its trailing newline, to the builder.
+     */
+    public static StringBuilder appendRow(StringBuilder out, GymMember m) {
+        String plan;
+        double price;
+        if (m instanceof RegularMember) {
+            RegularMember r = (RegularMember) m;
+            plan = r.getPlan();
+            price = r.getPrice();
+        } else if (m instanceof PremiumMember) {
+            plan = "Premium";
+            price = ((PremiumMember) m).getPremiumCharge();
+        } else {
+            return out;
+        }
+        int start = out.length();
+        out.append(m.getID());
+        pad(out, start, 5);
+        out.append(' ');
+        appendText(out, m.getName(), 15);
+        appendText(out, m.getLocation(), 15);
+        appendText(out, m.getPhone(), 15);
+        appendText(out, m.getEmail(), 25);
+        start = out.length();
+        m.appendMembershipStartDate(out);
+        pad(out, start, 18);
+        out.append(' ');
+        appendText(out, plan, 10);
+        appendAmount(out, price, 8);
+        start = out.length();
+        out.append(m.getAttendanceCount());
+        pad(out, start, 8);
+        out.append(' ');
+        appendAmount(out, m.getLoyaltyPoints(), 10);
+        appendText(out, m.getActiveStatus() ? "Active" : "Inactive", 8);
+        start = out.length();
+        out.append(m.getFullPayment());
+        pad(out, start, 10);
+        out.append(' ');
+        appendAmount(out, m.getDiscountAmount(), 10);
+        appendAmount(out, m.getNetAmountPaid(), 10);
+        // The last column ends with the newline instead of a separating space.
+        out.setCharAt(out.length() - 1, '\n');
+        return out;
+    }
+
+    // The original String.format implementation, kept as the reference the direct
+    // writer is compared against.
+    static String formatWithPattern(GymMember m) {
+        if (m instanceof RegularMember) {
+            RegularMember r = (RegularMember) m;
+            return String.format(ROW_PATTERN, m.getID(), m.getName(), m.getLocation(), m.getPhone(),
+                    m.getEmail(), m.getMembershipStartDate(), r.getPlan(), r.getPrice(),
+                    m.getAttendanceCount(), r.getLoyaltyPoints(), m.getActiveStatus() ? "Active" : "Inactive",
+                    r.getFullPayment(), r.getDiscountAmount(), r.getNetAmountPaid());
+        } else if (m instanceof PremiumMember) {
+            PremiumMember p = (PremiumMember) m;
+            return String.format(ROW_PATTERN, m.getID(), m.getName(), m.getLocation(), m.getPhone(),
+                    m.getEmail(), m.getMembershipStartDate(), "Premium", p.getPremiumCharge(),
+                    m.getAttendanceCount(), p.getLoyaltyPoints(), m.getActiveStatus() ? "Active" : "Inactive",
+                    p.getFullPayment(), p.getDiscountAmount(), p.getNetAmountPaid());
+        }
+        return "";
+    }
+
+    // %-Ns followed by the column separator.
+    private static void appendText(StringBuilder out, String value, int width) {
+        int start = out.length();
+        out.append(value);
+        pad(out, start, width);
+        out.append(' ');
+    }
+
+    // %-N.1f followed by the column separator.
+    private static void appendAmount(StringBuilder out, double value, int width) {
+        int start = out.length();
+        double tenths = value * 10;
+        if (Math.abs(value) < DIRECT_LIMIT && tenths == Math.rint(tenths) && tenths / 10 == value
+                && !(value == 0 && Double.doubleToRawLongBits(value) != 0) && DirectDecimals.SUPPORTED) {
+            long scaled = (long) tenths;
+            if (scaled < 0) {
+                out.append('-');
+                scaled = -scaled;
+            }
+            out.append(scaled / 10).append('.').append((char) ('0' + scaled % 10));
+        } else {
+            out.append(String.format("%.1f", value));
+        }
+        pad(out, start, width);
+        out.append(' ');
+    }
+
+    private static void pad(StringBuilder out, int start, int width) {
+        for (int i = out.length() - start; i < width; i++) {
+            out.append(' ');
+        }
+    }
+
+    // Checked lazily, so the default locale set by the application is the one tested.
+    private static final class DirectDecimals {
+        static final boolean SUPPORTED = String.format("%.1f", -1234.5).equals("-1234.5");
+    }
+}
@@ -0,0 +1,315 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberFileLoader class rebuilds RegularMember and PremiumMember objects from the
+ * fixed-width text written by MemberFileFormat (MemberDetails.txt and the change file),
+ * so a saved roster can be brought back after a restart.
+ *
+ * Key Features:
+ * - Restores plan, price, attendance, loyalty points, status and premium payment state
+ * - Streams the file: it is never read into one String, only one chunk is decoded per task
+ * - Large files are split into chunks at line boundaries and parsed on all cores
+ * - Later rows win over earlier rows with the same ID, which also cleans up old files
+ *   that were saved in append mode and contain the same member several times
+ *
+ * Implementation Details:
+ * - Each chunk is memory-mapped and scanned for '\n'; lines are decoded one at a time
+ * - The last eight columns never contain spaces, so they are split off from the right;
+ *   the remaining columns are cut at their fixed offsets when the row is aligned, and
+ *   split on whitespace otherwise (a name or location that overflowed its column)
+ * - Fields the text layout does not store (date of birth, gender, referral source,
+ *   trainer, removal reason) are left empty; upgrade eligibility is derived from
+ *   the loyalty points, and the premium paid amount from net paid plus discount
+ * - Header lines and rows that cannot be parsed are counted and skipped
+ *
+ * Usage:
+ * MemberFileLoader.Result result = new MemberFileLoader().load(file, members);
+ */
+public class MemberFileLoader {
+    private static final long DEFAULT_CHUNK_SIZE = 8L << 20;
+    private static final int[] WIDTHS = {5, 15, 15, 15, 25, 18, 10, 8, 8, 10, 8, 10, 10, 10};
+    private static final int TAIL_COLUMNS = 8;
+    private static final int HEAD_LENGTH;
+    private static final int[] STARTS = new int[WIDTHS.length];
+
+    static {
+        int position = 0;
+        for (int i = 0; i < WIDTHS.length; i++) {
+            STARTS[i] = position;
+            position += WIDTHS[i] + 1;
+        }
+        HEAD_LENGTH = STARTS[WIDTHS.length - TAIL_COLUMNS];
+    }
+
+    private final long chunkSize;
+    private final Charset charset;
+
+    /**
+     * Lets a caller follow a load and stop it between chunks.
+     */
+    public interface Progress {
+        void chunksParsed(int done, int total);
+
+        boolean isCancelled();
+    }
+
+    private static final Progress NO_PROGRESS = new Progress() {
+        public void chunksParsed(int done, int total) {
+        }
+
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    public static class Result {
+        public final int loaded;
+        public final int skipped;
+
+        Result(int loaded, int skipped) {
+            this.loaded = loaded;
+            this.skipped = skipped;
+        }
+    }
+
+    public MemberFileLoader() {
+        this(DEFAULT_CHUNK_SIZE, Charset.defaultCharset());
+    }
+
+    public MemberFileLoader(long chunkSize, Charset charset) {
+        this.chunkSize = chunkSize;
+        this.charset = charset;
+    }
+
+    /**
+     * Parses the file and puts every member into the repository, replacing members with
+     * the same ID. A missing file loads nothing.
+     */
+    public Result load(File file, MemberRepository members) throws IOException {
+        return load(file, members, NO_PROGRESS);
+    }
+
+    /**
+     * Same as load(File, MemberRepository), reporting each parsed chunk. If the progress
+     * reports a cancellation, unparsed chunks are abandoned and the repository is left untouched.
+     */
+    public Result load(File file, MemberRepository members, Progress progress) throws IOException {
+        if (!file.exists()) {
+            return new Result(0, 0);
+        }
+        List<ChunkResult> results = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<CompletableFuture<ChunkResult>> tasks = new ArrayList<>();
+            for (long[] chunk : split(channel)) {
+                tasks.add(CompletableFuture.supplyAsync(() -> progress.isCancelled()
+                        ? new ChunkResult() : parseChunk(channel, chunk[0], chunk[1])));
+            }
+            for (CompletableFuture<ChunkResult> task : tasks) {
+                results.add(task.join());
+                progress.chunksParsed(results.size(), tasks.size());
+            }
+            if (progress.isCancelled()) {
+                return new Result(0, 0);
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedLoadException) {
+                throw ((UncheckedLoadException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+
+        int loaded = 0;
+        int skipped = 0;
+        for (ChunkResult result : results) {
+            for (GymMember member : result.members) {
+                members.put(member);
+            }
+            loaded += result.members.size();
+            skipped += result.skipped;
+        }
+        return new Result(loaded, skipped);
+    }
+
+    /**
+     * Parses a single row, or returns null if it is a header or not a member row.
+     */
+    public static GymMember parseLine(String line) {
+        String[] tail = new String[TAIL_COLUMNS];
+        int end = line.length();
+        for (int i = TAIL_COLUMNS - 1; i >= 0; i--) {
+            while (end > 0 && line.charAt(end - 1) == ' ') {
+                end--;
+            }
+            int start = line.lastIndexOf(' ', end - 1) + 1;
+            if (end == 0 || start == 0) {
+                return null;
+            }
+            tail[i] = line.substring(start, end);
+            end = start;
+        }
+        try {
+            String head = line.substring(0, end);
+            String[] fields = head.length() == HEAD_LENGTH && head.charAt(HEAD_LENGTH - 1) == ' '
+                    ? fixedHead(head) : splitHead(head);
+            if (fields == null) {
+                return null;
+            }
+            int id = Integer.parseInt(fields[0]);
+            String plan = tail[0];
+            double price = Double.parseDouble(tail[1]);
+            int attendance = Integer.parseInt(tail[2]);
+            double loyalty = Double.parseDouble(tail[3]);
+            boolean active = tail[4].equals("Active");
+            boolean fullPayment = Boolean.parseBoolean(tail[5]);
+            double discount = Double.parseDouble(tail[6]);
+            double netPaid = Double.parseDouble(tail[7]);
+
+            GymMember member;
+            if (plan.equals("Premium")) {
+                PremiumMember p = new PremiumMember(id, fields[1], fields[2], fields[3], fields[4], "", "", fields[5], "");
+                p.restorePayment("", netPaid + discount, fullPayment, discount);
+                member = p;
+            } else {
+                RegularMember r = new RegularMember(id, fields[1], fields[2], fields[3], fields[4], "", "", fields[5], "");
+                r.restorePlan(plan, price, loyalty >= PricingRules.current().getUpgradePoints(), "");
+                member = r;
+            }
+            member.restoreState(attendance, loyalty, active);
+            return member;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String[] fixedHead(String head) {
+        String[] fields = new String[6];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = head.substring(STARTS[i], STARTS[i] + WIDTHS[i]).trim();
+        }
+        return fields;
+    }
+
+    // Columns overflowed: ID first, then phone, email and start date from the right;
+    // what is left is the name followed by a single-word location.
+    private static String[] splitHead(String head) {
+        String[] tokens = head.trim().split("\\s+");
+        if (tokens.length < 6) {
+            return null;
+        }
+        int n = tokens.length;
+        StringBuilder name = new StringBuilder();
+        for (int i = 1; i < n - 4; i++) {
+            if (name.length() > 0) {
+                name.append(' ');
+            }
+            name.append(tokens[i]);
+        }
+        return new String[] {tokens[0], name.toString(), tokens[n - 4], tokens[n - 3], tokens[n - 2], tokens[n - 1]};
+    }
+
+    private List<long[]> split(FileChannel channel) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = channel.size();
+        long start = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // Move the boundary forward to just after the next newline.
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            chunks.add(new long[] {start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private ChunkResult parseChunk(FileChannel channel, long start, long end) {
+        ChunkResult result = new ChunkResult();
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedLoadException(e);
+        }
+        byte[] line = new byte[256];
+        int length = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i <= limit; i++) {
+            byte b = i < limit ? buffer.get(i) : (byte) '\n';
+            if (b != '\n') {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+                continue;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                GymMember member = parseLine(new String(line, 0, length, charset));
+                if (member != null) {
+                    result.members.add(member);
+                } else if (!isHeader(line, length)) {
+                    result.skipped++;
+                }
+            }
+            length = 0;
+        }
+        return result;
+    }
+
+    private static boolean isHeader(byte[] line, int length) {
+        return length > 3 && line[0] == 'I' && line[1] == 'D' && line[2] == ' ';
+    }
+
+    private static class ChunkResult {
+        final List<GymMember> members = new ArrayList<>();
+        int skipped;
+    }
+
+    private static class UncheckedLoadException extends RuntimeException {
+        UncheckedLoadException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
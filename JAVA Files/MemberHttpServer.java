@@ -0,0 +1,651 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberHttpServer class exposes MemberService over a small HTTP/JSON API on the
+ * loopback interface, so kiosks, scripts and load tests can work on the same roster
+ * as the desk GUI.
+ *
+ * Key Features:
+ * - GET  /members                      roster size and a page of members (offset, limit);
+ *                                       joinedFrom/joinedTo or birthday (yyyy-MM-dd) narrow it,
+ *                                       as do q, name, phone, email, location, trainer and plan
+ * - GET  /members/{id}                 one member
+ * - GET  /members/{id}/visits          visits per hour, day or week (from, to, by) and the last visit
+ * - POST /members                      register a member (type=regular|premium plus the form fields)
+ * - POST /members/{id}/attendance      mark attendance
+ * - POST /members/{id}/activate        activate the membership
+ * - POST /members/{id}/deactivate      deactivate the membership
+ * - POST /members/{id}/payment         pay part of the premium charge (amount)
+ * - POST /members/{id}/discount        calculate the premium discount
+ * - POST /members/{id}/upgrade         change the regular plan (plan)
+ * - POST /members/{id}/revert          revert a regular member (reason) or convert a premium one
+ * - POST /members/bulk/{action}        upgrade (plan), revert-regular (reason) or revert-premium
+ *                                       every member in ids (comma separated) or matching
+ *                                       q, name, phone, email, location and trainer; all or nothing
+ * - GET  /metrics                      live roster totals from MemberMetrics
+ * - GET  /occupancy                    live check-ins, in-gym estimates and hourly load from OccupancyMonitor
+ * - GET  /audit                        the latest changes from the audit log (limit), narrowed by
+ *                                       member, change, actor and from/to (yyyy-MM-dd)
+ *
+ * Implementation Details:
+ * - Built on the JDK's com.sun.net.httpserver, so no extra libraries are needed
+ * - Requests run on virtual threads when the JDK has them (Java 21+), found by reflection
+ *   so the class still compiles on older JDKs; otherwise on a fixed thread pool
+ * - Parameters come from the query string or a form-encoded body; responses are JSON
+ * - MemberServiceException reasons map to 400, 404, 409 and 422 responses
+ * - Each request is one action in the audit log, made by "api" and the client address
+ * - Binds to 127.0.0.1 only: the API has no authentication
+ *
+ * Usage:
+ * Started by GymMemberGUI when -Dgym.http.port is set, or on its own with
+ * java MemberHttpServer [port], which recovers the roster from the journal first.
+ */
+public class MemberHttpServer {
+    public static final int DEFAULT_PORT = 8080;
+
+    private final MemberService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public MemberHttpServer(MemberService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/members", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        server.createContext("/metrics", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    if (exchange.getRequestMethod().equals("GET")) {
+                        respond(exchange, 200, toJson(service.getMetrics().snapshot()));
+                    } else {
+                        respond(exchange, 404, error("No such resource"));
+                    }
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.createContext("/audit", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    if (exchange.getRequestMethod().equals("GET")) {
+                        respond(exchange, 200, audit(readParams(exchange)));
+                    } else {
+                        respond(exchange, 404, error("No such resource"));
+                    }
+                } catch (MemberServiceException e) {
+                    respond(exchange, statusFor(e.getReason()), error(e.getMessage()));
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.createContext("/occupancy", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    if (exchange.getRequestMethod().equals("GET")) {
+                        respond(exchange, 200, toJson(service.getOccupancy().snapshot()));
+                    } else {
+                        respond(exchange, 404, error("No such resource"));
+                    }
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Virtual threads when available, otherwise enough platform threads to keep the
+    // cores busy while some requests wait on the repository lock.
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String actor = "api " + exchange.getRemoteAddress().getAddress().getHostAddress();
+        MemberAuditLog.Scope action = MemberAuditLog.act(actor);
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            Map<String, String> params = readParams(exchange);
+            String method = exchange.getRequestMethod();
+            if (path.length == 2 && method.equals("GET")) {
+                respond(exchange, 200, listMembers(params));
+            } else if (path.length == 2 && method.equals("POST")) {
+                respond(exchange, 201, toJson(addMember(params)));
+            } else if (path.length == 3 && method.equals("GET")) {
+                respond(exchange, 200, toJson(service.findMember(parseId(path[2]))));
+            } else if (path.length == 4 && method.equals("GET") && path[3].equals("visits")) {
+                respond(exchange, 200, visits(service.findMember(parseId(path[2])).getID(), params));
+            } else if (path.length == 4 && method.equals("POST") && path[2].equals("bulk")) {
+                respond(exchange, 200, bulk(path[3], params));
+            } else if (path.length == 4 && method.equals("POST")) {
+                respond(exchange, 200, act(parseId(path[2]), path[3], params));
+            } else {
+                respond(exchange, 404, error("No such resource"));
+            }
+        } catch (MemberServiceException e) {
+            respond(exchange, statusFor(e.getReason()), error(e.getMessage()));
+        } catch (RuntimeException e) {
+            respond(exchange, 500, error(String.valueOf(e.getMessage())));
+        } finally {
+            action.close();
+            exchange.close();
+        }
+    }
+
+    private String act(int id, String action, Map<String, String> params) throws MemberServiceException {
+        switch (action) {
+            case "attendance":
+                return toJson(service.markAttendance(id));
+            case "activate":
+                service.setMembershipActive(id, true);
+                return toJson(service.findMember(id));
+            case "deactivate":
+                service.setMembershipActive(id, false);
+                return toJson(service.findMember(id));
+            case "payment":
+                return message(service.payDueAmount(id, parseAmount(params.get("amount"))), service.findMember(id));
+            case "discount":
+                return toJson(service.calculateDiscount(id));
+            case "upgrade":
+                return message(service.upgradePlan(id, params.get("plan")), service.findMember(id));
+            case "revert":
+                if (service.findMember(id) instanceof PremiumMember) {
+                    return toJson(service.convertToRegular(id));
+                }
+                return toJson(service.revertRegularMember(id, params.get("reason")));
+            default:
+                throw new MemberServiceException(MemberServiceException.Reason.NOT_FOUND, "Unknown action " + action);
+        }
+    }
+
+    // The plan parameter is the new plan here, so it does not take part in the selection.
+    private String bulk(String action, Map<String, String> params) throws MemberServiceException {
+        BulkOperations.Action bulkAction;
+        String argument = null;
+        switch (action) {
+            case "upgrade":
+                bulkAction = BulkOperations.Action.UPGRADE;
+                argument = params.get("plan");
+                break;
+            case "revert-regular":
+                bulkAction = BulkOperations.Action.REVERT_REGULAR;
+                argument = params.get("reason");
+                break;
+            case "revert-premium":
+                bulkAction = BulkOperations.Action.REVERT_PREMIUM;
+                break;
+            default:
+                throw new MemberServiceException(MemberServiceException.Reason.NOT_FOUND, "Unknown action " + action);
+        }
+        int[] ids;
+        if (params.containsKey("ids")) {
+            String[] parts = params.get("ids").split(",");
+            ids = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                ids[i] = parseId(parts[i].trim());
+            }
+        } else {
+            Map<String, String> selection = new HashMap<>(params);
+            selection.remove("plan");
+            MemberQuery query = searchQuery(selection);
+            if (query == null) {
+                throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT,
+                        "Give ids or search parameters");
+            }
+            ids = BulkOperations.idsOf(service.search(query));
+        }
+        BulkOperations.Result result = service.getBulkOperations().run(ids, bulkAction, argument);
+        StringBuilder json = new StringBuilder("{\"committed\":").append(result.isCommitted());
+        json.append(",\"applied\":").append(result.count(BulkOperations.Status.APPLIED));
+        json.append(",\"results\":[");
+        for (int i = 0; i < result.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(result.getId(i));
+            field(json, "status", result.getStatus(i).name());
+            if (result.getMessage(i) != null) {
+                field(json, "message", result.getMessage(i));
+            }
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private String audit(Map<String, String> params) throws MemberServiceException {
+        MemberAuditLog.Filter filter = MemberAuditLog.Filter.all();
+        if (params.containsKey("member")) {
+            filter = filter.member(parseId(params.get("member")));
+        }
+        if (params.containsKey("change")) {
+            try {
+                filter = filter.changes(MemberChange.valueOf(params.get("change").toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT,
+                        "Unknown change " + params.get("change"));
+            }
+        }
+        if (params.containsKey("actor")) {
+            filter = filter.actor(params.get("actor"));
+        }
+        if (params.containsKey("from") || params.containsKey("to")) {
+            filter = filter.between(parseDate(params.getOrDefault("from", "1900-01-01")).atStartOfDay(),
+                    parseDate(params.getOrDefault("to", "2099-12-31")).plusDays(1).atStartOfDay());
+        }
+        int limit = params.containsKey("limit") ? parseId(params.get("limit")) : 100;
+        List<MemberAuditLog.Event> events;
+        try {
+            events = service.getAuditLog().query(filter, limit);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read the audit log: " + e.getMessage(), e);
+        }
+        StringBuilder json = new StringBuilder("{\"count\":").append(events.size()).append(",\"events\":[");
+        for (int i = 0; i < events.size(); i++) {
+            MemberAuditLog.Event event = events.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"sequence\":").append(event.getSequence());
+            json.append(",\"action\":").append(event.getAction());
+            field(json, "time", event.getTime().toString());
+            field(json, "actor", event.getActor());
+            json.append(",\"member\":").append(event.getMemberId());
+            field(json, "change", event.getChange().name());
+            field(json, "description", event.describe());
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    // Buckets from the start of the day from (default 30 days ago) to the end of the day to (default today).
+    private String visits(int id, Map<String, String> params) throws MemberServiceException {
+        LocalDate today = LocalDate.now();
+        LocalDateTime from = parseDate(params.getOrDefault("from", today.minusDays(29).toString())).atStartOfDay();
+        LocalDateTime to = parseDate(params.getOrDefault("to", today.toString())).plusDays(1).atStartOfDay();
+        AttendanceHistory.Resolution by;
+        try {
+            by = AttendanceHistory.Resolution.valueOf(params.getOrDefault("by", "day").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT,
+                    "by must be hour, day or week");
+        }
+        AttendanceHistory history = service.getAttendanceHistory();
+        int[] buckets = history.rollup(id, from, to, by);
+        LocalDateTime last = history.getLastVisit(id);
+        StringBuilder json = new StringBuilder("{\"id\":").append(id);
+        json.append(",\"visits\":").append(history.countVisits(id, from, to));
+        field(json, "from", by.truncate(from).toString());
+        field(json, "by", by.name().toLowerCase());
+        field(json, "lastVisit", last == null ? "" : last.toString());
+        json.append(",\"buckets\":[");
+        for (int i = 0; i < buckets.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(buckets[i]);
+        }
+        return json.append("]}").toString();
+    }
+
+    private GymMember addMember(Map<String, String> params) throws MemberServiceException {
+        int id = parseId(params.get("id"));
+        String type = params.getOrDefault("type", "regular");
+        if (type.equalsIgnoreCase("premium")) {
+            return service.addPremiumMember(id, params.get("name"), params.get("location"), params.get("phone"),
+                    params.get("email"), params.getOrDefault("gender", ""), params.getOrDefault("dob", ""),
+                    params.getOrDefault("startDate", ""), params.get("trainer"));
+        }
+        return service.addRegularMember(id, params.get("name"), params.get("location"), params.get("phone"),
+                params.get("email"), params.getOrDefault("gender", ""), params.getOrDefault("dob", ""),
+                params.getOrDefault("startDate", ""), params.get("referralSource"));
+    }
+
+    private String listMembers(Map<String, String> params) throws MemberServiceException {
+        int offset = params.containsKey("offset") ? parseId(params.get("offset")) : 0;
+        int limit = params.containsKey("limit") ? parseId(params.get("limit")) : 100;
+        MemberQuery query = searchQuery(params);
+        GymMember[] all;
+        if (params.containsKey("joinedFrom") || params.containsKey("joinedTo")) {
+            all = service.findJoinedBetween(parseDate(params.getOrDefault("joinedFrom", "1900-01-01")),
+                    parseDate(params.getOrDefault("joinedTo", "2099-12-31"))).toArray(new GymMember[0]);
+        } else if (params.containsKey("birthday")) {
+            all = service.findBirthdays(parseDate(params.get("birthday"))).toArray(new GymMember[0]);
+        } else if (query != null) {
+            all = service.search(query).toArray(new GymMember[0]);
+        } else {
+            all = service.getMembers().toArray();
+        }
+        StringBuilder json = new StringBuilder("{\"count\":").append(all.length).append(",\"members\":[");
+        int start = Math.max(0, offset);
+        for (int i = start; i < all.length && i < start + limit; i++) {
+            if (i > start) {
+                json.append(',');
+            }
+            appendMember(json, all[i]);
+        }
+        return json.append("]}").toString();
+    }
+
+    private static int parseId(String text) throws MemberServiceException {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT, "ENTER VALID ID!");
+        }
+    }
+
+    // All search parameters present in the request, combined with and(); null if there are none.
+    private static MemberQuery searchQuery(Map<String, String> params) {
+        MemberQuery query = null;
+        query = and(query, params.get("q") == null ? null : MemberQuery.text(params.get("q")));
+        query = and(query, params.get("name") == null ? null : MemberQuery.namePrefix(params.get("name")));
+        query = and(query, params.get("phone") == null ? null : MemberQuery.phone(params.get("phone")));
+        query = and(query, params.get("email") == null ? null : MemberQuery.email(params.get("email")));
+        query = and(query, params.get("location") == null ? null : MemberQuery.location(params.get("location")));
+        query = and(query, params.get("trainer") == null ? null : MemberQuery.trainer(params.get("trainer")));
+        query = and(query, params.get("plan") == null ? null : MemberQuery.plan(params.get("plan")));
+        return query;
+    }
+
+    private static MemberQuery and(MemberQuery query, MemberQuery next) {
+        if (next == null) {
+            return query;
+        }
+        return query == null ? next : query.and(next);
+    }
+
+    private static LocalDate parseDate(String text) throws MemberServiceException {
+        int day = MemberDates.parse(text);
+        if (day == MemberDates.UNKNOWN) {
+            throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT, "Invalid date: " + text);
+        }
+        return MemberDates.toLocalDate(day);
+    }
+
+    private static double parseAmount(String text) throws MemberServiceException {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT, "Invalid amount!");
+        }
+    }
+
+    private static int statusFor(MemberServiceException.Reason reason) {
+        switch (reason) {
+            case NOT_FOUND: return 404;
+            case DUPLICATE: return 409;
+            case NOT_ALLOWED: return 422;
+            default: return 400;
+        }
+    }
+
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        if (exchange.getRequestMethod().equals("POST")) {
+            InputStream in = exchange.getRequestBody();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                body.write(buffer, 0, read);
+            }
+            parseForm(new String(body.toByteArray(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) throws UnsupportedEncodingException {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                           URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        return json.append('}').toString();
+    }
+
+    private static String message(String message, GymMember member) {
+        StringBuilder json = new StringBuilder("{\"message\":");
+        appendString(json, message);
+        json.append(",\"member\":");
+        appendMember(json, member);
+        return json.append('}').toString();
+    }
+
+    private static String toJson(GymMember member) {
+        StringBuilder json = new StringBuilder(256);
+        appendMember(json, member);
+        return json.toString();
+    }
+
+    private static String toJson(MemberMetrics.Snapshot metrics) {
+        StringBuilder json = new StringBuilder("{\"members\":").append(metrics.getMembers());
+        json.append(",\"activeMembers\":").append(metrics.getActiveMembers());
+        json.append(",\"premiumMembers\":").append(metrics.getPremiumMembers());
+        json.append(",\"regularMembers\":").append(metrics.getRegularMembers());
+        json.append(",\"upgradeEligible\":").append(metrics.getUpgradeEligible());
+        json.append(",\"premiumPaid\":").append(metrics.getPremiumPaid());
+        json.append(",\"outstandingDues\":").append(metrics.getOutstandingDues());
+        json.append(",\"discountsGranted\":").append(metrics.getDiscountsGranted());
+        json.append(",\"plans\":{");
+        boolean first = true;
+        for (Map.Entry<String, Integer> plan : metrics.getPlanDistribution().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, plan.getKey());
+            json.append(':').append(plan.getValue());
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String toJson(OccupancyMonitor.Snapshot occupancy) {
+        StringBuilder json = new StringBuilder("{\"inGym\":").append(occupancy.getInGym());
+        field(json, "time", occupancy.getTime().toString());
+        json.append(",\"lastFiveMinutes\":").append(occupancy.getLastFiveMinutes());
+        json.append(",\"lastHour\":").append(occupancy.getLastHour());
+        json.append(",\"today\":").append(occupancy.getToday());
+        json.append(",\"peakInGymToday\":").append(occupancy.getPeakInGymToday());
+        field(json, "peakTime", occupancy.getPeakTime().toString());
+        json.append(",\"busiestHour\":").append(occupancy.getBusiestHour());
+        json.append(",\"todayByHour\":").append(Arrays.toString(occupancy.getTodayByHour()).replace(" ", ""));
+        json.append(",\"locations\":{");
+        boolean first = true;
+        for (Map.Entry<String, int[]> location : occupancy.getLocations().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, location.getKey());
+            json.append(":{\"inGym\":").append(location.getValue()[0])
+                    .append(",\"today\":").append(location.getValue()[1]).append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void appendMember(StringBuilder json, GymMember member) {
+        json.append("{\"id\":").append(member.getID());
+        json.append(",\"type\":\"").append(member instanceof PremiumMember ? "Premium" : "Regular").append('"');
+        field(json, "name", member.getName());
+        field(json, "location", member.getLocation());
+        field(json, "phone", member.getPhone());
+        field(json, "email", member.getEmail());
+        field(json, "gender", member.getGender());
+        field(json, "dob", member.getDOB());
+        field(json, "startDate", member.getMembershipStartDate());
+        json.append(",\"attendance\":").append(member.getAttendance());
+        json.append(",\"loyaltyPoints\":").append(member.getLoyaltyPoints());
+        json.append(",\"active\":").append(member.getActiveStatus());
+        if (member instanceof RegularMember) {
+            RegularMember r = (RegularMember) member;
+            field(json, "plan", r.getPlan());
+            json.append(",\"price\":").append(r.getPrice());
+            json.append(",\"eligibleForUpgrade\":").append(r.isEligibleForUpgrade());
+            field(json, "referralSource", r.getReferralSource());
+            field(json, "removalReason", r.getRemovalReason());
+        } else if (member instanceof PremiumMember) {
+            PremiumMember p = (PremiumMember) member;
+            field(json, "personalTrainer", p.getPersonalTrainer());
+            json.append(",\"paidAmount\":").append(p.getPaidAmount());
+            json.append(",\"dueAmount\":").append(p.getDueAmount());
+            json.append(",\"fullPayment\":").append(p.isFullPayment());
+            json.append(",\"discountAmount\":").append(p.getDiscountAmount());
+        }
+        json.append('}');
+    }
+
+    private static void field(StringBuilder json, String name, String value) {
+        json.append(",\"").append(name).append("\":");
+        appendString(json, value);
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Runs the API without the GUI. The roster is recovered from the journal in the
+     * GYMGUI directory and every change is journaled, exactly as the GUI does; the
+     * attendance history is read from there, logs each visit as it happens and is
+     * written back on shutdown, and the pricing rules are taken from pricing.properties
+     * there as in the GUI. Changes are added to the audit log there too, and members.dat
+     * there is kept in step with the roster.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final MemberRepository members = new MemberRepository();
+        // The pricing rules are in force before recovery, as in the GUI.
+        final PricingEngine pricing = new PricingEngine(members, new File(MemberFileFormat.DIRECTORY, PricingRules.FILE_NAME));
+        pricing.start();
+        final MemberJournal journal = new MemberJournal(new File(MemberFileFormat.DIRECTORY));
+        journal.recover(members);
+        members.addListener(journal);
+        journal.start();
+        final MappedMemberStore store = MappedMemberStore.mirror(new File(MemberFileFormat.DIRECTORY), members);
+
+        final File attendanceFile = new File(MemberFileFormat.DIRECTORY, AttendanceHistory.FILE_NAME);
+        final MemberService service = new MemberService(members, AttendanceHistory.open(attendanceFile),
+                MemberAuditLog.open(new File(MemberFileFormat.DIRECTORY, MemberAuditLog.DIRECTORY_NAME)));
+        final MemberHttpServer server = new MemberHttpServer(service, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                server.stop();
+                pricing.stop();
+                journal.close();
+                members.removeListener(store);
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    System.err.println("Could not close the binary member store: " + e.getMessage());
+                }
+                service.getAuditLog().close();
+                try {
+                    service.getAttendanceHistory().save(attendanceFile);
+                    service.getAttendanceHistory().close();
+                } catch (IOException e) {
+                    System.err.println("Could not save the attendance history: " + e.getMessage());
+                }
+            }
+        }));
+        server.start();
+        System.out.println("Member API listening on http://127.0.0.1:" + server.getPort() + "/members");
+    }
+}
@@ -0,0 +1,580 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberJournal class is a write-ahead log for the roster. Every change to a member
+ * (attendance, payments, upgrades, reverts, activation) is appended to a binary journal
+ * as it happens, so nothing is lost on a crash even if nobody pressed "Save to File".
+ *
+ * Key Features:
+ * - One small binary record per change, carrying the member's new state
+ * - Group commit: records queued while the disk is busy are written and fsynced together
+ * - A background compactor folds old journal segments into a binary snapshot
+ * - Recovery loads the snapshot and replays the journal segments written after it
+ *
+ * Implementation Details:
+ * - Records are [length][CRC32][change][member ID][payload]; a torn or corrupt record
+ *   ends the replay of its segment, since it was never reported as durable
+ * - A segment starts with [SEGMENT_MAGIC][MemberCodec.FORMAT] and the snapshot with its
+ *   version, so files written before a format change are still read in their own format
+ * - A bulk operation is one BATCH record holding an entry per member, so after a crash
+ *   it is replayed whole or not at all
+ * - Records hold state rather than deltas (for example the new attendance count), so
+ *   replaying a record twice gives the same result
+ * - The journal is split into numbered segment files; compaction rotates to a new segment,
+ *   folds the closed ones into members.snapshot and then deletes them
+ * - Records are encoded on the thread that made the change, under the lock that queues
+ *   them, and written by a single journal-writer thread
+ *
+ * Usage:
+ * recover(members) at startup, then members.addListener(journal) and start();
+ * close() on exit.
+ */
+public class MemberJournal implements MemberListener {
+    private static final int SNAPSHOT_MAGIC = 0x47594D53;
+    // Version 2 holds members in MemberCodec format 2; version 1 in format 1.
+    private static final int SNAPSHOT_VERSION = 2;
+    // Starts every segment written since members carry MemberCodec format 2, followed by
+    // the format; it is larger than any record length, so older segments, which start
+    // with their first record, are told apart and read in format 1.
+    private static final int SEGMENT_MAGIC = 0x47594D4A;
+    private static final String SNAPSHOT_FILE = "members.snapshot";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int MAX_BATCH = 4096;
+    // Large enough for a BATCH record covering a roster of millions of members.
+    private static final int MAX_RECORD_BYTES = 1 << 28;
+    private static final long DEFAULT_COMPACT_BYTES = 8L << 20;
+    private static final Object STOP = new Object();
+
+    private final Path directory;
+    private final long compactThresholdBytes;
+    private final LinkedBlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Object syncLock = new Object();
+    private final Object compactLock = new Object();
+    private final ScheduledExecutorService compactor;
+    private volatile Thread writerThread;
+
+    // Touched only by the writer thread.
+    private FileChannel segment;
+    private long segmentNumber;
+
+    private long submitted;
+    private long durable;
+    private volatile IOException failure;
+
+    public MemberJournal(File directory) {
+        this(directory, DEFAULT_COMPACT_BYTES);
+    }
+
+    public MemberJournal(File directory, long compactThresholdBytes) {
+        this.directory = directory.toPath();
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads the snapshot and replays the journal into the repository.
+     * Must be called before the journal is registered as a listener.
+     * Returns the number of journal records replayed.
+     */
+    public int recover(MemberRepository members) throws IOException {
+        long foldedThrough = readSnapshot(members);
+        int replayed = 0;
+        for (long number : segmentNumbers()) {
+            if (number > foldedThrough) {
+                replayed += replaySegment(segmentPath(number), members);
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * Opens a fresh journal segment and starts the writer and compactor threads.
+     */
+    public synchronized void start() throws IOException {
+        if (writerThread != null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Long> numbers = segmentNumbers();
+        long last = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1);
+        segmentNumber = Math.max(last, readFoldedThrough()) + 1;
+        segment = openSegment(segmentNumber);
+        writerThread = new Thread(this::writeLoop, "journal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        compactor.scheduleWithFixedDelay(this::compactIfLarge, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        // Encoded under the same lock as the enqueue, so two changes to one member are
+        // queued in the order their states were read and replay ends on the newer one.
+        synchronized (syncLock) {
+            try {
+                queue.add(encode(member, change));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not encode journal record", e);
+            }
+            submitted++;
+        }
+    }
+
+    /**
+     * Writes the whole batch as one BATCH record, so replay applies all of it or, if the
+     * record was torn by a crash, none of it.
+     */
+    @Override
+    public void membersChanged(GymMember[] members, MemberChange change) {
+        // Encoded under the same lock as the enqueue, so two changes to one member are
+        // queued in the order their states were read and replay ends on the newer one.
+        synchronized (syncLock) {
+            try {
+                queue.add(encodeBatch(members, change));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not encode journal record", e);
+            }
+            submitted++;
+        }
+    }
+
+    /**
+     * Blocks until every record submitted so far has been fsynced.
+     */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            long target = submitted;
+            while (durable < target && failure == null) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal", e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Folds every closed journal segment into the snapshot.
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            if (writerThread == null) {
+                throw new IOException("Journal has not been started");
+            }
+            compactSegments();
+        }
+    }
+
+    private void compactSegments() throws IOException {
+        CompletableFuture<Long> rotated = new CompletableFuture<>();
+        queue.add((Runnable) () -> {
+            try {
+                rotated.complete(rotate());
+            } catch (IOException e) {
+                rotated.completeExceptionally(e);
+            }
+        });
+        long closedSegment;
+        try {
+            closedSegment = rotated.get();
+        } catch (Exception e) {
+            throw new IOException("Could not rotate journal segment", e);
+        }
+
+        MemberRepository folded = new MemberRepository();
+        long foldedThrough = readSnapshot(folded);
+        List<Long> compacted = new ArrayList<>();
+        for (long number : segmentNumbers()) {
+            if (number <= closedSegment) {
+                if (number > foldedThrough) {
+                    replaySegment(segmentPath(number), folded);
+                }
+                compacted.add(number);
+            }
+        }
+        writeSnapshot(folded, closedSegment);
+        for (long number : compacted) {
+            Files.deleteIfExists(segmentPath(number));
+        }
+    }
+
+    /**
+     * Flushes outstanding records and stops the background threads.
+     */
+    public synchronized void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread != null) {
+            queue.add(STOP);
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writerThread = null;
+        }
+    }
+
+    private void compactIfLarge() {
+        try {
+            long size = 0;
+            for (long number : segmentNumbers()) {
+                size += Files.size(segmentPath(number));
+            }
+            if (size >= compactThresholdBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not compact the journal: " + e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                batch.add(STOP);
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            int records = 0;
+            try {
+                for (Object item : batch) {
+                    if (item instanceof byte[]) {
+                        buffers.add(ByteBuffer.wrap((byte[]) item));
+                        records++;
+                    } else {
+                        flush(buffers);
+                        if (item == STOP) {
+                            running = false;
+                        } else {
+                            ((Runnable) item).run();
+                        }
+                    }
+                }
+                flush(buffers);
+            } catch (IOException e) {
+                failure = e;
+                System.err.println("Could not write the journal: " + e.getMessage());
+                buffers.clear();
+            }
+            batch.clear();
+            synchronized (syncLock) {
+                durable += records;
+                syncLock.notifyAll();
+            }
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            System.err.println("Could not close the journal segment: " + e.getMessage());
+        }
+    }
+
+    private void flush(List<ByteBuffer> buffers) throws IOException {
+        if (buffers.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] array = buffers.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : array) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= segment.write(array);
+        }
+        segment.force(false);
+        buffers.clear();
+    }
+
+    private long rotate() throws IOException {
+        long closed = segmentNumber;
+        segment.close();
+        segmentNumber++;
+        segment = openSegment(segmentNumber);
+        return closed;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(SEGMENT_MAGIC).putInt(MemberCodec.FORMAT).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+        return channel;
+    }
+
+    private static byte[] encode(GymMember member, MemberChange change) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        writeChange(out, member, change);
+        return seal(out, bytes);
+    }
+
+    // A BATCH record: the member count in place of the ID, then one [change][member ID][payload]
+    // entry per member.
+    private static byte[] encodeBatch(GymMember[] members, MemberChange change) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + members.length * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeByte(MemberChange.BATCH.ordinal());
+        out.writeInt(members.length);
+        for (GymMember member : members) {
+            writeChange(out, member, change);
+        }
+        return seal(out, bytes);
+    }
+
+    private static void writeChange(DataOutputStream out, GymMember member, MemberChange change) throws IOException {
+        out.writeByte(change.ordinal());
+        out.writeInt(member.getID());
+        switch (change) {
+            case ADDED:
+                MemberCodec.write(out, member);
+                break;
+            case REMOVED:
+            case ACTIVATED:
+            case DEACTIVATED:
+                break;
+            case ATTENDANCE:
+                out.writeInt(member.getAttendance());
+                out.writeDouble(member.getLoyaltyPoints());
+                out.writeBoolean(member instanceof RegularMember && ((RegularMember) member).isEligibleForUpgrade());
+                break;
+            default:
+                MemberCodec.writeState(out, member);
+        }
+    }
+
+    // Fills in the length and checksum of the record written after the 8-byte header.
+    private static byte[] seal(DataOutputStream out, ByteArrayOutputStream bytes) throws IOException {
+        out.flush();
+        byte[] record = bytes.toByteArray();
+        int payloadLength = record.length - 8;
+        CRC32 crc = new CRC32();
+        crc.update(record, 8, payloadLength);
+        ByteBuffer header = ByteBuffer.wrap(record, 0, 8);
+        header.putInt(payloadLength);
+        header.putInt((int) crc.getValue());
+        return record;
+    }
+
+    private static void apply(DataInputStream in, MemberRepository members, int format) throws IOException {
+        MemberChange change = MemberChange.values()[in.readUnsignedByte()];
+        int id = in.readInt();
+        if (change == MemberChange.BATCH) {
+            for (int i = 0; i < id; i++) {
+                apply(in, members, format);
+            }
+            return;
+        }
+        if (change == MemberChange.ADDED) {
+            members.put(MemberCodec.read(in, format));
+            return;
+        }
+        if (change == MemberChange.REMOVED) {
+            members.remove(id);
+            return;
+        }
+        GymMember member = members.get(id);
+        if (member == null) {
+            return;
+        }
+        switch (change) {
+            case ACTIVATED:
+                member.restoreState(member.getAttendance(), member.getLoyaltyPoints(), true);
+                break;
+            case DEACTIVATED:
+                member.restoreState(member.getAttendance(), member.getLoyaltyPoints(), false);
+                break;
+            case ATTENDANCE:
+                member.restoreState(in.readInt(), in.readDouble(), member.getActiveStatus());
+                boolean eligible = in.readBoolean();
+                if (member instanceof RegularMember) {
+                    RegularMember r = (RegularMember) member;
+                    r.restorePlan(r.getPlan(), r.getPrice(), eligible, r.getRemovalReason());
+                }
+                break;
+            default:
+                MemberCodec.readState(in, member, format);
+        }
+    }
+
+    private static int replaySegment(Path file, MemberRepository members) throws IOException {
+        int replayed = 0;
+        int format = 1;
+        boolean first = true;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    if (first) {
+                        first = false;
+                        if (length == SEGMENT_MAGIC) {
+                            format = in.readInt();
+                            if (format < 1 || format > MemberCodec.FORMAT) {
+                                throw new IOException("Journal segment " + file + " has unknown member format " + format);
+                            }
+                            continue;
+                        }
+                    }
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(new DataInputStream(new ByteArrayInputStream(payload)), members, format);
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    private long readSnapshot(MemberRepository members) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a member snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported member snapshot version " + version + ": " + file);
+            }
+            long foldedThrough = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                members.put(MemberCodec.read(in, version));
+            }
+            return foldedThrough;
+        }
+    }
+
+    private long readFoldedThrough() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            in.readInt();
+            in.readInt();
+            return in.readLong();
+        }
+    }
+
+    private void writeSnapshot(MemberRepository members, long foldedThrough) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    java.nio.channels.Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(foldedThrough);
+            out.writeInt(members.size());
+            for (GymMember member : members) {
+                MemberCodec.write(out, member);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private List<Long> segmentNumbers() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of our segments.
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberListener interface is implemented by anything that has to follow changes
+ * to the roster, such as the write-ahead journal. Listeners are registered on a
+ * MemberRepository and hear about members being added or removed as well as every
+ * mutation of a member stored in it.
+ *
+ * Usage:
+ * Listeners are called synchronously on the thread that made the change, after the
+ * change has been applied, so they should hand any slow work to another thread.
+ */
+public interface MemberListener {
+    void memberChanged(GymMember member, MemberChange change);
+
+    /**
+     * Called once for members that went through the same change together, in a bulk
+     * operation. By default each member is passed to memberChanged in turn.
+     */
+    default void membersChanged(GymMember[] members, MemberChange change) {
+        for (GymMember member : members) {
+            memberChanged(member, change);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * Compares finding a member by ID with the old linear scan over an ArrayList
+ * (as GymMemberGUI.findMemberByActionField() used to do) against MemberRepository.
+ *
+ * Key Features:
+ * - Roster sizes of 1k, 100k and 1M members
+ * - Measures hits, misses (the duplicate-ID check on a new signup) and remove + re-add
+ *
+ * Usage:
+ * java MemberLookupBenchmark
+ * The linear scan is only measured with as many lookups as finish in reasonable time.
+ */
+public class MemberLookupBenchmark {
+    private static final int[] SIZES = {1_000, 100_000, 1_000_000};
+    private static final int LOOKUPS = 1 << 12;
+
+    public static void main(String[] args) {
+        for (int size : SIZES) {
+            benchmark(size);
+        }
+    }
+
+    private static void benchmark(int size) {
+        List<GymMember> list = new ArrayList<>(size);
+        MemberRepository repository = new MemberRepository(size);
+        for (int i = 0; i < size; i++) {
+            RegularMember member = new RegularMember(i + 1, "Member " + i, "Kathmandu", "98000" + i,
+                    "member" + i + "@mail.com", "Male", "1/Jan/1995", "1/Jan/2024", "Walk-in");
+            list.add(member);
+            repository.add(member);
+        }
+
+        Random random = new Random(42);
+        int[] hits = new int[LOOKUPS];
+        int[] misses = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            hits[i] = random.nextInt(size) + 1;
+            misses[i] = size + 1 + random.nextInt(size);
+        }
+        int mask = LOOKUPS - 1;
+        String params = "members=" + size;
+        int scanOps = Math.max(16, 20_000_000 / size);
+
+        Bench.run("scan.findById", params, scanOps, i -> scanFind(list, hits[i & mask]).getID());
+        Bench.run("repository.get", params, 1_000_000, i -> repository.get(hits[i & mask]).getID());
+        Bench.run("scan.isDuplicateId(miss)", params, scanOps, i -> scanFind(list, misses[i & mask]) == null ? 1 : 0);
+        Bench.run("repository.contains(miss)", params, 1_000_000, i -> repository.contains(misses[i & mask]) ? 1 : 0);
+        Bench.run("repository.remove+add", params, 1_000_000, i -> {
+            GymMember member = repository.remove(hits[i & mask]);
+            repository.add(member);
+            return member.getID();
+        });
+    }
+
+    private static GymMember scanFind(List<GymMember> members, int id) {
+        for (GymMember m : members) {
+            if (m.getID() == id) return m;
+        }
+        return null;
+    }
+}
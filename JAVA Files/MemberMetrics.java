@@ -0,0 +1,272 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberMetrics class keeps the roster totals the studio reports on, such as
+ * active members, premium revenue collected, outstanding dues, discounts granted,
+ * the plan distribution and the number of members eligible for an upgrade, up to date
+ * as members change, so reading them never needs a pass over the roster.
+ *
+ * Key Features:
+ * - Implements MemberListener; each event updates the totals in constant time
+ * - snapshot() returns a consistent, immutable copy of every total at once
+ * - Amounts are kept in whole paisa (hundredths) as longs, so adding and taking back
+ *   the same amount many times leaves no rounding error behind
+ *
+ * Implementation Details:
+ * - Events do not say what a member looked like before the change, so the class
+ *   remembers what each member last contributed to the totals; an event takes that
+ *   contribution away and adds the member's current one
+ * - Contributions live in parallel arrays indexed by a slot per member; a removed
+ *   member's slot is filled with the last one so the arrays stay dense
+ * - Events reach listeners after the repository lock is released, so an addition can
+ *   arrive after the removal that followed it; additions and removals are therefore
+ *   checked against the repository, and events for a member that has since been
+ *   removed or replaced are ignored
+ * - All methods synchronize on the metrics; listeners may be called from any thread
+ *
+ * Usage:
+ * MemberMetrics metrics = MemberMetrics.follow(members);
+ * MemberMetrics.Snapshot now = metrics.snapshot();
+ */
+public class MemberMetrics implements MemberListener {
+    private static final byte ACTIVE = 1, PREMIUM = 2, ELIGIBLE = 4;
+
+    private final MemberRepository repository;
+    private final IntIndex slots = new IntIndex();
+    private GymMember[] members = new GymMember[1024];
+    private byte[] flags = new byte[1024];
+    private int[] planCodes = new int[1024];
+    private long[] paid = new long[1024];
+    private long[] due = new long[1024];
+    private long[] discounts = new long[1024];
+    private int size;
+
+    private int activeCount;
+    private int premiumCount;
+    private int eligibleCount;
+    private long paidTotal;
+    private long dueTotal;
+    private long discountTotal;
+    private int[] planCounts = new int[16];
+    private long version;
+
+    private MemberMetrics(MemberRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Counts every member of the repository and follows its later changes.
+     */
+    public static MemberMetrics follow(MemberRepository members) {
+        MemberMetrics metrics = new MemberMetrics(members);
+        members.addListener(metrics);
+        for (GymMember member : members) {
+            metrics.memberChanged(member, MemberChange.ADDED);
+        }
+        return metrics;
+    }
+
+    @Override
+    public synchronized void memberChanged(GymMember member, MemberChange change) {
+        boolean present = repository.get(member.getID()) == member;
+        if (change == MemberChange.ADDED) {
+            if (present) {
+                add(member);
+            }
+        } else if (change == MemberChange.REMOVED) {
+            if (!present) {
+                remove(member);
+            }
+        } else {
+            update(member);
+        }
+    }
+
+    private void add(GymMember member) {
+        int slot = slots.get(member.getID());
+        if (slot >= 0) {
+            subtract(slot);
+        } else {
+            slot = size++;
+            if (slot == members.length) {
+                grow();
+            }
+            slots.put(member.getID(), slot);
+        }
+        members[slot] = member;
+        record(slot, member);
+    }
+
+    private void remove(GymMember member) {
+        int slot = slots.get(member.getID());
+        if (slot < 0 || members[slot] != member) {
+            return;
+        }
+        subtract(slot);
+        slots.remove(member.getID());
+        int last = --size;
+        if (slot != last) {
+            members[slot] = members[last];
+            flags[slot] = flags[last];
+            planCodes[slot] = planCodes[last];
+            paid[slot] = paid[last];
+            due[slot] = due[last];
+            discounts[slot] = discounts[last];
+            slots.put(members[slot].getID(), slot);
+        }
+        members[last] = null;
+        version++;
+    }
+
+    // Recounts one member after it changed.
+    private void update(GymMember member) {
+        int slot = slots.get(member.getID());
+        if (slot < 0 || members[slot] != member) {
+            return;
+        }
+        subtract(slot);
+        record(slot, member);
+    }
+
+    public synchronized Snapshot snapshot() {
+        Map<String, Integer> plans = new LinkedHashMap<>();
+        for (int code = 0; code < planCounts.length; code++) {
+            if (planCounts[code] > 0) {
+                plans.put(StringDictionary.MEMBER_FIELDS.get(code), planCounts[code]);
+            }
+        }
+        return new Snapshot(version, size, activeCount, premiumCount, eligibleCount,
+                paidTotal, dueTotal, discountTotal, plans);
+    }
+
+    // Reads the member's current values into its slot and adds them to the totals.
+    private void record(int slot, GymMember member) {
+        byte flag = 0;
+        int plan = -1;
+        long memberPaid = 0;
+        long memberDue = 0;
+        long memberDiscount = 0;
+        if (member.getActiveStatus()) {
+            flag |= ACTIVE;
+        }
+        if (member instanceof PremiumMember) {
+            PremiumMember premium = (PremiumMember) member;
+            flag |= PREMIUM;
+            memberPaid = toPaisa(premium.getPaidAmount());
+            memberDue = toPaisa(premium.getDueAmount());
+            memberDiscount = toPaisa(premium.getDiscountAmount());
+        } else if (member instanceof RegularMember) {
+            RegularMember regular = (RegularMember) member;
+            if (regular.isEligibleForUpgrade()) {
+                flag |= ELIGIBLE;
+            }
+            plan = regular.getPlanCode();
+        }
+        flags[slot] = flag;
+        planCodes[slot] = plan;
+        paid[slot] = memberPaid;
+        due[slot] = memberDue;
+        discounts[slot] = memberDiscount;
+        apply(slot, 1);
+    }
+
+    private void subtract(int slot) {
+        apply(slot, -1);
+    }
+
+    private void apply(int slot, int sign) {
+        byte flag = flags[slot];
+        activeCount += (flag & ACTIVE) != 0 ? sign : 0;
+        premiumCount += (flag & PREMIUM) != 0 ? sign : 0;
+        eligibleCount += (flag & ELIGIBLE) != 0 ? sign : 0;
+        paidTotal += sign * paid[slot];
+        dueTotal += sign * due[slot];
+        discountTotal += sign * discounts[slot];
+        int plan = planCodes[slot];
+        if (plan >= 0) {
+            if (plan >= planCounts.length) {
+                planCounts = Arrays.copyOf(planCounts, Math.max(plan + 1, planCounts.length << 1));
+            }
+            planCounts[plan] += sign;
+        }
+        version++;
+    }
+
+    private void grow() {
+        int capacity = members.length << 1;
+        members = Arrays.copyOf(members, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        planCodes = Arrays.copyOf(planCodes, capacity);
+        paid = Arrays.copyOf(paid, capacity);
+        due = Arrays.copyOf(due, capacity);
+        discounts = Arrays.copyOf(discounts, capacity);
+    }
+
+    private static long toPaisa(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * The totals at one moment. Amounts are in rupees.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final int members;
+        private final int activeMembers;
+        private final int premiumMembers;
+        private final int upgradeEligible;
+        private final long premiumPaid;
+        private final long outstandingDues;
+        private final long discountsGranted;
+        private final Map<String, Integer> planDistribution;
+
+        Snapshot(long version, int members, int activeMembers, int premiumMembers, int upgradeEligible,
+                 long premiumPaid, long outstandingDues, long discountsGranted,
+                 Map<String, Integer> planDistribution) {
+            this.version = version;
+            this.members = members;
+            this.activeMembers = activeMembers;
+            this.premiumMembers = premiumMembers;
+            this.upgradeEligible = upgradeEligible;
+            this.premiumPaid = premiumPaid;
+            this.outstandingDues = outstandingDues;
+            this.discountsGranted = discountsGranted;
+            this.planDistribution = Collections.unmodifiableMap(planDistribution);
+        }
+
+        /**
+         * Grows with every change counted, so two snapshots with the same version hold
+         * the same totals.
+         */
+        public long getVersion() { return version; }
+        public int getMembers() { return members; }
+        public int getActiveMembers() { return activeMembers; }
+        public int getPremiumMembers() { return premiumMembers; }
+        public int getRegularMembers() { return members - premiumMembers; }
+        public int getUpgradeEligible() { return upgradeEligible; }
+        public double getPremiumPaid() { return premiumPaid / 100.0; }
+        public double getOutstandingDues() { return outstandingDues / 100.0; }
+        public double getDiscountsGranted() { return discountsGranted / 100.0; }
+
+        /**
+         * Regular members per plan.
+         */
+        public Map<String, Integer> getPlanDistribution() { return planDistribution; }
+
+        @Override
+        public String toString() {
+            return "members=" + members + ", active=" + activeMembers + ", premium=" + premiumMembers
+                    + ", upgradeEligible=" + upgradeEligible + ", premiumPaid=" + getPremiumPaid()
+                    + ", outstandingDues=" + getOutstandingDues() + ", discountsGranted=" + getDiscountsGranted()
+                    + ", plans=" + planDistribution;
+        }
+    }
+}
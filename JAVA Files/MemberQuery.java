@@ -0,0 +1,386 @@
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberQuery class describes a member search, such as "name starts with 'ram'
+ * and lives in Kathmandu", that MemberSearchIndex can answer from its secondary
+ * indexes instead of scanning the whole roster.
+ *
+ * Key Features:
+ * - Field queries: name prefix, phone, email, location, personal trainer, plan,
+ *   member type and active status
+ * - Queries combine with and(), or() and not()
+ * - text() matches a name prefix, a phone number or an email, for a single search box
+ * - fragment() matches any part of a name, email or phone number, for search-as-you-type
+ *
+ * Implementation Details:
+ * - Every query can test a single member; queries on indexed fields can also list
+ *   their candidate IDs from the index
+ * - An and() takes the smallest candidate list of its parts and tests the rest of the
+ *   query on those members only; an or() can only use the index if all of its parts can
+ * - Names, phones, emails, locations, trainers and plans are compared after
+ *   normalize*(), the same way the index stores them, so a member found through the
+ *   index always passes matches()
+ *
+ * Usage:
+ * MemberQuery query = MemberQuery.namePrefix("ram").and(MemberQuery.location("Kathmandu"));
+ * List<GymMember> found = service.search(query);
+ */
+public abstract class MemberQuery {
+
+    /**
+     * True if the member satisfies the query.
+     */
+    abstract boolean matches(GymMember member);
+
+    /**
+     * Sorted IDs of every member that may satisfy the query, or null if the query
+     * cannot be answered from the index and the roster has to be scanned.
+     */
+    abstract int[] candidates(MemberSearchIndex index);
+
+    /**
+     * True if every candidate is known to satisfy the query, so search() can skip
+     * matches(). Broad queries such as a one-letter name prefix rely on this to return
+     * tens of thousands of members quickly.
+     */
+    boolean exact() {
+        return false;
+    }
+
+    public MemberQuery and(final MemberQuery other) {
+        final MemberQuery self = this;
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return self.matches(member) && other.matches(member);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                int[] left = self.candidates(index);
+                int[] right = other.candidates(index);
+                if (left == null) {
+                    return right;
+                }
+                if (right == null || left.length <= right.length) {
+                    return left;
+                }
+                return right;
+            }
+        };
+    }
+
+    public MemberQuery or(final MemberQuery other) {
+        final MemberQuery self = this;
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return self.matches(member) || other.matches(member);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                int[] left = self.candidates(index);
+                if (left == null) {
+                    return null;
+                }
+                int[] right = other.candidates(index);
+                return right == null ? null : MemberSearchIndex.union(left, right);
+            }
+
+            boolean exact() {
+                return self.exact() && other.exact();
+            }
+        };
+    }
+
+    public MemberQuery not() {
+        final MemberQuery self = this;
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return !self.matches(member);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return null;
+            }
+        };
+    }
+
+    public static MemberQuery all() {
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return true;
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Members whose full name, or any word of it, starts with the prefix, ignoring case.
+     */
+    public static MemberQuery namePrefix(String prefix) {
+        final String wanted = normalizeName(prefix);
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                String name = normalizeName(member.getName());
+                if (name.startsWith(wanted)) {
+                    return true;
+                }
+                for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+                    if (name.startsWith(wanted, i + 1)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return index.namePrefix(wanted);
+            }
+
+            boolean exact() {
+                return true;
+            }
+        };
+    }
+
+    public static MemberQuery phone(String phone) {
+        final String wanted = normalizePhone(phone);
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return normalizePhone(member.getPhone()).equals(wanted);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return index.phone(wanted);
+            }
+
+            boolean exact() {
+                return true;
+            }
+        };
+    }
+
+    public static MemberQuery email(String email) {
+        final String wanted = normalizeEmail(email);
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return normalizeEmail(member.getEmail()).equals(wanted);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return index.email(wanted);
+            }
+
+            boolean exact() {
+                return true;
+            }
+        };
+    }
+
+    public static MemberQuery location(String location) {
+        final String wanted = normalizeField(location);
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return normalizeField(member.getLocation()).equals(wanted);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return index.location(wanted);
+            }
+
+            boolean exact() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Premium members coached by the trainer.
+     */
+    public static MemberQuery trainer(String trainer) {
+        final String wanted = normalizeField(trainer);
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return member instanceof PremiumMember
+                        && normalizeField(((PremiumMember) member).getPersonalTrainer()).equals(wanted);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return index.trainer(wanted);
+            }
+
+            boolean exact() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Regular members on the plan.
+     */
+    public static MemberQuery plan(String plan) {
+        final String wanted = normalizeField(plan);
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return member instanceof RegularMember
+                        && normalizeField(((RegularMember) member).getPlan()).equals(wanted);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return index.plan(wanted);
+            }
+
+            boolean exact() {
+                return true;
+            }
+        };
+    }
+
+    public static MemberQuery premium() {
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return member instanceof PremiumMember;
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return null;
+            }
+        };
+    }
+
+    public static MemberQuery regular() {
+        return premium().not();
+    }
+
+    public static MemberQuery active() {
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return member.getActiveStatus();
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Free text from a search box: a name prefix, a phone number or an email address.
+     */
+    public static MemberQuery text(String text) {
+        return namePrefix(text).or(phone(text)).or(email(text));
+    }
+
+    /**
+     * Members whose name, email or phone number contains the fragment, ignoring case.
+     * Phone numbers are compared on their digits and only for fragments of at least
+     * three digits, so "9801" finds "980-1234567". A fragment shorter than three
+     * characters is too common to be useful as a substring and is matched as a name
+     * prefix instead.
+     */
+    public static MemberQuery fragment(String text) {
+        final String wanted = normalizeName(text);
+        if (wanted.length() < MemberSearchIndex.GRAM) {
+            return namePrefix(wanted);
+        }
+        final String digits = isPhoneLike(wanted) ? normalizePhone(wanted) : "";
+        final boolean byPhone = digits.length() >= MemberSearchIndex.GRAM;
+        return new MemberQuery() {
+            boolean matches(GymMember member) {
+                return normalizeName(member.getName()).contains(wanted)
+                        || normalizeEmail(member.getEmail()).contains(wanted)
+                        || byPhone && normalizePhone(member.getPhone()).contains(digits);
+            }
+
+            int[] candidates(MemberSearchIndex index) {
+                int[] ids = index.fragment(wanted);
+                if (!byPhone || digits.equals(wanted)) {
+                    return ids;
+                }
+                return MemberSearchIndex.union(ids, index.fragment(digits));
+            }
+
+            // A three-character fragment is a single trigram, and a member holding it in
+            // the name, email or phone digits contains the fragment.
+            boolean exact() {
+                return wanted.length() == MemberSearchIndex.GRAM;
+            }
+        };
+    }
+
+    private static boolean isPhoneLike(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c < '0' || c > '9') && c != ' ' && c != '-' && c != '+' && c != '(' && c != ')') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Lower case, trimmed, with runs of whitespace turned into one space. Names that are
+    // already in that form are returned unchanged; others are rebuilt in one pass, as
+    // this runs for every candidate of a search.
+    static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        int length = name.length();
+        int i = 0;
+        boolean space = true;
+        for (; i < length; i++) {
+            char c = name.charAt(i);
+            boolean whitespace = Character.isWhitespace(c);
+            if (Character.isUpperCase(c) || (whitespace && (space || c != ' '))) {
+                break;
+            }
+            space = whitespace;
+        }
+        if (i == length && !space) {
+            return name;
+        }
+        // The clean part may end in a single space, which the next word will put back.
+        StringBuilder normal = new StringBuilder(length).append(name, 0, space && i > 0 ? i - 1 : i);
+        for (; i < length; i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if (space && normal.length() > 0) {
+                    normal.append(' ');
+                }
+                space = false;
+                normal.append(Character.toLowerCase(c));
+            }
+        }
+        return normal.toString();
+    }
+
+    // Digits only, so "980-1234567" and "9801234567" are the same number.
+    static String normalizePhone(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    // Location, trainer and plan are matched without regard to case.
+    static String normalizeField(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
+    }
+
+    static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase();
+    }
+}
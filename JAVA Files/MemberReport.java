@@ -0,0 +1,386 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberReport class produces the month-end report: member counts, attendance,
+ * loyalty points, revenue and dues grouped by location, plan, gender, personal
+ * trainer and start month. The roster is split across the threads of a ForkJoinPool,
+ * each part is totalled on its own, and the partial totals are merged at the end.
+ *
+ * Key Features:
+ * - Any number of groupings are computed in one pass over the roster
+ * - Runs on a caller-supplied ForkJoinPool, or the common pool
+ * - writeCsv() and writeJson() stream the result straight to a Writer
+ *
+ * Implementation Details:
+ * - Work is split in halves until a part has at most SPLIT_SIZE members; each part
+ *   builds its own Totals, so no thread ever writes to shared state
+ * - Groups are found by int key (a StringDictionary code, or year * 12 + month for
+ *   the start month) through an IntIndex, so the hot loop creates no objects
+ * - Loyalty points and amounts are summed as hundredths in longs, so the result does
+ *   not depend on how the roster was split
+ * - Revenue is the net amount paid (premium payments less discounts); dues are the
+ *   premium charge still unpaid. Regular members count towards neither
+ * - Members are read without locking, so a report taken while members change shows
+ *   each member as it was at some moment during the run
+ *
+ * Usage:
+ * MemberReport report = MemberReport.run(members.toArray(), pool, MemberReport.Dimension.values());
+ * report.writeCsv(writer);
+ */
+public class MemberReport {
+    static final int SPLIT_SIZE = 1 << 14;
+
+    private static final int UNKNOWN_KEY = -1;
+    private static final int NO_TRAINER_KEY = -2;
+    private static final int PREMIUM_PLAN_CODE = StringDictionary.MEMBER_FIELDS.code("Premium");
+
+    public enum Dimension {
+        LOCATION, PLAN, GENDER, TRAINER, START_MONTH;
+
+        // Group key of the member for this dimension.
+        int key(GymMember member) {
+            switch (this) {
+                case LOCATION:
+                    return member.getLocationCode();
+                case PLAN:
+                    return member instanceof RegularMember
+                            ? ((RegularMember) member).getPlanCode() : PREMIUM_PLAN_CODE;
+                case GENDER:
+                    return member.getGenderCode();
+                case TRAINER:
+                    return member instanceof PremiumMember
+                            ? ((PremiumMember) member).getPersonalTrainerCode() : NO_TRAINER_KEY;
+                default:
+                    int day = member.getMembershipStartEpochDay();
+                    if (day == MemberDates.UNKNOWN) {
+                        return UNKNOWN_KEY;
+                    }
+                    LocalDate date = LocalDate.ofEpochDay(day);
+                    return date.getYear() * 12 + date.getMonthValue() - 1;
+            }
+        }
+
+        String label(int key) {
+            if (key == UNKNOWN_KEY) {
+                return "Unknown";
+            }
+            if (key == NO_TRAINER_KEY) {
+                return "No trainer";
+            }
+            if (this == START_MONTH) {
+                int month = key % 12 + 1;
+                return key / 12 + (month < 10 ? "-0" : "-") + month;
+            }
+            String value = StringDictionary.MEMBER_FIELDS.get(key);
+            return value == null || value.isEmpty() ? "Unknown" : value;
+        }
+    }
+
+    /**
+     * Totals of one group.
+     */
+    public static final class Row {
+        private final String group;
+        private final long members;
+        private final long attendance;
+        private final long loyaltyHundredths;
+        private final long revenuePaisa;
+        private final long duesPaisa;
+
+        Row(String group, long members, long attendance, long loyaltyHundredths, long revenuePaisa,
+            long duesPaisa) {
+            this.group = group;
+            this.members = members;
+            this.attendance = attendance;
+            this.loyaltyHundredths = loyaltyHundredths;
+            this.revenuePaisa = revenuePaisa;
+            this.duesPaisa = duesPaisa;
+        }
+
+        public String getGroup() { return group; }
+        public long getMembers() { return members; }
+        public long getAttendance() { return attendance; }
+        public double getLoyaltyPoints() { return loyaltyHundredths / 100.0; }
+        public double getRevenue() { return revenuePaisa / 100.0; }
+        public double getDues() { return duesPaisa / 100.0; }
+    }
+
+    private final Map<Dimension, List<Row>> rows;
+
+    private MemberReport(Map<Dimension, List<Row>> rows) {
+        this.rows = rows;
+    }
+
+    public static MemberReport run(GymMember[] members, Dimension... dimensions) {
+        return run(members, ForkJoinPool.commonPool(), dimensions);
+    }
+
+    /**
+     * Groups the members by each of the dimensions on the threads of the pool.
+     */
+    public static MemberReport run(GymMember[] members, ForkJoinPool pool, Dimension... dimensions) {
+        Totals[] totals = pool.invoke(new Part(members, 0, members.length, dimensions));
+        Map<Dimension, List<Row>> rows = new EnumMap<>(Dimension.class);
+        for (int d = 0; d < dimensions.length; d++) {
+            rows.put(dimensions[d], totals[d].toRows(dimensions[d]));
+        }
+        return new MemberReport(rows);
+    }
+
+    /**
+     * Rows of one dimension, ordered by group name; empty if it was not requested.
+     */
+    public List<Row> getRows(Dimension dimension) {
+        List<Row> result = rows.get(dimension);
+        return result == null ? Collections.<Row>emptyList() : result;
+    }
+
+    public void writeCsv(Writer out) throws IOException {
+        out.write("dimension,group,members,attendance,loyalty_points,revenue,dues\n");
+        for (Map.Entry<Dimension, List<Row>> entry : rows.entrySet()) {
+            String dimension = entry.getKey().name().toLowerCase();
+            for (Row row : entry.getValue()) {
+                out.write(dimension);
+                out.write(',');
+                writeCsvText(out, row.group);
+                out.write(',');
+                out.write(Long.toString(row.members));
+                out.write(',');
+                out.write(Long.toString(row.attendance));
+                out.write(',');
+                writeHundredths(out, row.loyaltyHundredths);
+                out.write(',');
+                writeHundredths(out, row.revenuePaisa);
+                out.write(',');
+                writeHundredths(out, row.duesPaisa);
+                out.write('\n');
+            }
+        }
+    }
+
+    public void writeJson(Writer out) throws IOException {
+        out.write('{');
+        boolean firstDimension = true;
+        for (Map.Entry<Dimension, List<Row>> entry : rows.entrySet()) {
+            if (!firstDimension) {
+                out.write(',');
+            }
+            firstDimension = false;
+            out.write("\n  \"" + entry.getKey().name().toLowerCase() + "\": [");
+            boolean firstRow = true;
+            for (Row row : entry.getValue()) {
+                out.write(firstRow ? "\n    {\"group\": " : ",\n    {\"group\": ");
+                firstRow = false;
+                writeJsonText(out, row.group);
+                out.write(", \"members\": ");
+                out.write(Long.toString(row.members));
+                out.write(", \"attendance\": ");
+                out.write(Long.toString(row.attendance));
+                out.write(", \"loyaltyPoints\": ");
+                writeHundredths(out, row.loyaltyHundredths);
+                out.write(", \"revenue\": ");
+                writeHundredths(out, row.revenuePaisa);
+                out.write(", \"dues\": ");
+                writeHundredths(out, row.duesPaisa);
+                out.write('}');
+            }
+            out.write("\n  ]");
+        }
+        out.write("\n}\n");
+    }
+
+    /**
+     * Writes the report as JSON if the file name ends in .json, otherwise as CSV.
+     */
+    public void writeTo(File file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            if (file.getName().toLowerCase().endsWith(".json")) {
+                writeJson(out);
+            } else {
+                writeCsv(out);
+            }
+        }
+    }
+
+    private static void writeHundredths(Writer out, long value) throws IOException {
+        if (value < 0) {
+            out.write('-');
+            value = -value;
+        }
+        out.write(Long.toString(value / 100));
+        out.write('.');
+        long cents = value % 100;
+        out.write((char) ('0' + cents / 10));
+        out.write((char) ('0' + cents % 10));
+    }
+
+    private static void writeCsvText(Writer out, String text) throws IOException {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private static void writeJsonText(Writer out, String text) throws IOException {
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if (c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+
+    // One slice of the roster; splits itself until it is small enough to total directly.
+    private static final class Part extends RecursiveTask<Totals[]> {
+        private final GymMember[] members;
+        private final int from;
+        private final int to;
+        private final Dimension[] dimensions;
+
+        Part(GymMember[] members, int from, int to, Dimension[] dimensions) {
+            this.members = members;
+            this.from = from;
+            this.to = to;
+            this.dimensions = dimensions;
+        }
+
+        @Override
+        protected Totals[] compute() {
+            if (to - from <= SPLIT_SIZE) {
+                return total();
+            }
+            int middle = (from + to) >>> 1;
+            Part left = new Part(members, from, middle, dimensions);
+            left.fork();
+            Totals[] right = new Part(members, middle, to, dimensions).compute();
+            Totals[] merged = left.join();
+            for (int d = 0; d < merged.length; d++) {
+                merged[d].merge(right[d]);
+            }
+            return merged;
+        }
+
+        private Totals[] total() {
+            Totals[] totals = new Totals[dimensions.length];
+            for (int d = 0; d < totals.length; d++) {
+                totals[d] = new Totals();
+            }
+            for (int i = from; i < to; i++) {
+                GymMember member = members[i];
+                int attendance = member.getAttendance();
+                long loyalty = Math.round(member.getLoyaltyPoints() * 100);
+                long revenue = 0;
+                long dues = 0;
+                if (member instanceof PremiumMember) {
+                    PremiumMember premium = (PremiumMember) member;
+                    revenue = Math.round(premium.getNetAmountPaid() * 100);
+                    dues = Math.round(premium.getDueAmount() * 100);
+                }
+                for (int d = 0; d < totals.length; d++) {
+                    totals[d].add(dimensions[d].key(member), 1, attendance, loyalty, revenue, dues);
+                }
+            }
+            return totals;
+        }
+    }
+
+    // Totals per group key for one dimension, in parallel arrays indexed by group slot.
+    private static final class Totals {
+        private final IntIndex slots = new IntIndex();
+        private int size;
+        private int[] keys = new int[16];
+        private long[] members = new long[16];
+        private long[] attendance = new long[16];
+        private long[] loyalty = new long[16];
+        private long[] revenue = new long[16];
+        private long[] dues = new long[16];
+
+        void add(int key, long memberCount, long visits, long points, long paid, long due) {
+            int slot = slots.get(key);
+            if (slot < 0) {
+                slot = size++;
+                if (slot == keys.length) {
+                    grow();
+                }
+                keys[slot] = key;
+                slots.put(key, slot);
+            }
+            members[slot] += memberCount;
+            attendance[slot] += visits;
+            loyalty[slot] += points;
+            revenue[slot] += paid;
+            dues[slot] += due;
+        }
+
+        void merge(Totals other) {
+            for (int slot = 0; slot < other.size; slot++) {
+                add(other.keys[slot], other.members[slot], other.attendance[slot], other.loyalty[slot],
+                        other.revenue[slot], other.dues[slot]);
+            }
+        }
+
+        // Keys with the same label, such as an empty and a missing trainer, share a row.
+        List<Row> toRows(Dimension dimension) {
+            Totals byLabel = new Totals();
+            List<String> labels = new ArrayList<>();
+            Map<String, Integer> labelKeys = new HashMap<>();
+            for (int slot = 0; slot < size; slot++) {
+                String label = dimension.label(keys[slot]);
+                Integer key = labelKeys.get(label);
+                if (key == null) {
+                    key = labels.size();
+                    labelKeys.put(label, key);
+                    labels.add(label);
+                }
+                byLabel.add(key, members[slot], attendance[slot], loyalty[slot], revenue[slot], dues[slot]);
+            }
+            List<Row> rows = new ArrayList<>(byLabel.size);
+            for (int slot = 0; slot < byLabel.size; slot++) {
+                rows.add(new Row(labels.get(byLabel.keys[slot]), byLabel.members[slot], byLabel.attendance[slot],
+                        byLabel.loyalty[slot], byLabel.revenue[slot], byLabel.dues[slot]));
+            }
+            rows.sort((a, b) -> a.getGroup().compareTo(b.getGroup()));
+            return Collections.unmodifiableList(rows);
+        }
+
+        private void grow() {
+            int capacity = keys.length << 1;
+            keys = Arrays.copyOf(keys, capacity);
+            members = Arrays.copyOf(members, capacity);
+            attendance = Arrays.copyOf(attendance, capacity);
+            loyalty = Arrays.copyOf(loyalty, capacity);
+            revenue = Arrays.copyOf(revenue, capacity);
+            dues = Arrays.copyOf(dues, capacity);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberRepository class holds every registered member of the studio. It replaces
+ * the plain ArrayList that GymMemberGUI used to scan from start to end whenever it had
+ * to find a member by ID.
+ *
+ * Key Features:
+ * - Constant-time lookup, duplicate check and removal by member ID
+ * - Members are kept (and iterated) in the order they were registered
+ * - Positional access for table-style views through getAt(int)
+ * - MemberListeners hear about additions, removals and every change to a stored member
+ *
+ * Implementation Details:
+ * - Members live in a growable array in insertion order
+ * - An IntIndex maps each member ID to its position in that array, so IDs are never boxed
+ * - Removal leaves a hole that is skipped during iteration; the array is compacted once
+ *   the holes outnumber the members, which keeps removal amortised O(1)
+ *
+ * - All methods synchronize on the repository, so the GUI and check-in terminals can
+ *   share one roster; listeners are notified after the lock has been released
+ * - remove() and put() wait while a bulk run holds the member they take off the roster
+ * - Additions and removals are announced under the member's lock, and an ID is not given
+ *   to a new member until the removal of the old one has been announced, so listeners
+ *   (the journal above all) hear about the members under one ID in the order they came
+ * - Iteration walks a copy of the member array taken when the iterator is created
+ *
+ * Usage:
+ * Create one repository per roster and use it instead of a List<GymMember>.
+ */
+public class MemberRepository implements Iterable<GymMember> {
+    private final IntIndex positions;
+    // IDs whose member has been taken off the roster but whose removal is still being
+    // announced; guarded by this.
+    private final IntIndex leaving = new IntIndex();
+    private final CopyOnWriteArrayList<MemberListener> listeners = new CopyOnWriteArrayList<>();
+    private GymMember[] order;
+    private int end;
+    private int size;
+
+    public MemberRepository() {
+        this(16);
+    }
+
+    public MemberRepository(int expectedSize) {
+        positions = new IntIndex(expectedSize);
+        order = new GymMember[Math.max(16, expectedSize)];
+    }
+
+    public void addListener(MemberListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MemberListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized int size() { return size; }
+    public synchronized boolean isEmpty() { return size == 0; }
+
+    public synchronized GymMember get(int id) {
+        int position = positions.get(id);
+        return position < 0 ? null : order[position];
+    }
+
+    public synchronized boolean contains(int id) {
+        return positions.containsKey(id);
+    }
+
+    /**
+     * Adds the member at the end of the roster. Returns false if the ID is already taken.
+     */
+    public boolean add(GymMember member) {
+        // Announced under the member's lock, so a removal of the member is announced after.
+        synchronized (member) {
+            if (!attach(member)) {
+                return false;
+            }
+            fireChanged(member, MemberChange.ADDED);
+        }
+        return true;
+    }
+
+    private synchronized boolean attach(GymMember member) {
+        awaitLeft(member.getID());
+        if (positions.containsKey(member.getID())) {
+            return false;
+        }
+        if (end == order.length) {
+            if (end - size > size) {
+                compact();
+            } else {
+                order = Arrays.copyOf(order, order.length << 1);
+            }
+        }
+        positions.put(member.getID(), end);
+        order[end++] = member;
+        size++;
+        member.setOwner(this);
+        return true;
+    }
+
+    // Waits, with the repository's lock held, until the removal of the member that last
+    // had the ID has been announced, so listeners never hear of a new member under an ID
+    // before the old one has left.
+    private void awaitLeft(int id) {
+        boolean interrupted = false;
+        while (leaving.containsKey(id)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void left(int id) {
+        leaving.remove(id);
+        notifyAll();
+    }
+
+    /**
+     * Stores the member, replacing any member with the same ID in its current position.
+     * Returns the replaced member, or null if the member was added at the end.
+     */
+    public GymMember put(GymMember member) {
+        while (true) {
+            GymMember previous = get(member.getID());
+            if (previous == null) {
+                if (add(member)) {
+                    return null;
+                }
+                continue;
+            }
+            if (previous == member) {
+                return previous;
+            }
+            if (replace(previous, member)) {
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Puts the member in the place of previous if previous is still the one on the roster
+     * under the ID, announcing the removal and the addition. Returns false otherwise.
+     */
+    public boolean replace(GymMember previous, GymMember member) {
+        // A member held by a bulk run is replaced once the run has finished.
+        synchronized (previous) {
+            previous.awaitRelease();
+            synchronized (member) {
+                if (!swap(previous, member)) {
+                    return false;
+                }
+                fireChanged(previous, MemberChange.REMOVED);
+                fireChanged(member, MemberChange.ADDED);
+                return true;
+            }
+        }
+    }
+
+    private synchronized boolean swap(GymMember previous, GymMember member) {
+        int position = positions.get(member.getID());
+        if (position < 0 || order[position] != previous) {
+            return false;
+        }
+        order[position] = member;
+        previous.setOwner(null);
+        member.setOwner(this);
+        return true;
+    }
+
+    public GymMember remove(int id) {
+        while (true) {
+            GymMember member = get(id);
+            if (member == null) {
+                return null;
+            }
+            // A member held by a bulk run is removed once the run has finished.
+            synchronized (member) {
+                member.awaitRelease();
+                if (detach(id, member)) {
+                    announceRemoval(member);
+                    return member;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the member if it is still the one on the roster under its ID.
+     */
+    public boolean remove(GymMember member) {
+        synchronized (member) {
+            member.awaitRelease();
+            if (!detach(member.getID(), member)) {
+                return false;
+            }
+            announceRemoval(member);
+            return true;
+        }
+    }
+
+    private synchronized boolean detach(int id, GymMember member) {
+        int position = positions.get(id);
+        if (position < 0 || order[position] != member) {
+            return false;
+        }
+        positions.remove(id);
+        order[position] = null;
+        size--;
+        if (position == end - 1) {
+            end--;
+        } else if (end - size > size && end - size > 16) {
+            compact();
+        }
+        member.setOwner(null);
+        leaving.put(id, 0);
+        return true;
+    }
+
+    // Called with the member's lock held, after detach(); frees the ID for add().
+    private void announceRemoval(GymMember member) {
+        try {
+            fireChanged(member, MemberChange.REMOVED);
+        } finally {
+            left(member.getID());
+        }
+    }
+
+    /**
+     * Removes every member. Listeners are not told about the individual removals.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < end; i++) {
+            if (order[i] != null) {
+                order[i].setOwner(null);
+            }
+        }
+        positions.clear();
+        Arrays.fill(order, 0, end, null);
+        end = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the member at the given position in registration order.
+     */
+    public synchronized GymMember getAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (end != size) {
+            compact();
+        }
+        return order[index];
+    }
+
+    /**
+     * Returns the position of the member in registration order, or -1 if the ID is unknown.
+     */
+    public synchronized int indexOf(int id) {
+        if (end != size) {
+            compact();
+        }
+        return positions.get(id);
+    }
+
+    public synchronized GymMember[] toArray() {
+        if (end != size) {
+            compact();
+        }
+        return Arrays.copyOf(order, size);
+    }
+
+    @Override
+    public Iterator<GymMember> iterator() {
+        return Arrays.asList(toArray()).iterator();
+    }
+
+    void fireChanged(GymMember member, MemberChange change) {
+        for (MemberListener listener : listeners) {
+            listener.memberChanged(member, change);
+        }
+    }
+
+    // Announces a change made to many members at once, marking each dirty first.
+    void fireBatch(GymMember[] members, MemberChange change) {
+        for (GymMember member : members) {
+            member.markDirty();
+        }
+        for (MemberListener listener : listeners) {
+            listener.membersChanged(members, change);
+        }
+    }
+
+    private void compact() {
+        int write = 0;
+        for (int read = 0; read < end; read++) {
+            GymMember member = order[read];
+            if (member != null) {
+                if (write != read) {
+                    order[write] = member;
+                    positions.put(member.getID(), write);
+                }
+                write++;
+            }
+        }
+        Arrays.fill(order, write, end, null);
+        end = write;
+    }
+}
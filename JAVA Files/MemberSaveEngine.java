@@ -0,0 +1,199 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberSaveEngine class writes the roster to disk without duplicating rows and
+ * without blocking the Swing event thread.
+ *
+ * Key Features:
+ * - MemberDetails.txt is always a complete snapshot with one row per member
+ * - Members changed since the last save are appended to MemberDetails.changes.txt,
+ *   so an ordinary save only writes the changed rows
+ * - Once the change file grows past a quarter of the roster it is folded into a new snapshot
+ * - Snapshots are written to a temporary file and renamed over the old one, so a crash
+ *   never leaves a half-written MemberDetails.txt behind
+ *
+ * Implementation Details:
+ * - Members mark themselves dirty in their mutators (see GymMember.changed())
+ * - The calling thread only copies the member array; finding the dirty members and
+ *   formatting their rows happens on the writer thread
+ * - Rows are formatted into a reused StringBuilder and written in 64 KB chunks
+ * - All file access happens on a single background writer thread, so writes are
+ *   applied in the order they were requested
+ * - If a write fails the affected members are marked dirty again for the next save
+ *
+ * Usage:
+ * Call save(members) from the GUI and react to the returned future; call shutdown()
+ * before the application exits to let queued writes finish.
+ */
+public class MemberSaveEngine {
+    private static final String CHANGES_FILE_NAME = "MemberDetails.changes.txt";
+    private static final int MIN_COMPACT_ROWS = 1000;
+    private static final int WRITE_CHUNK = 64 * 1024;
+
+    private final Path snapshotFile;
+    private final Path changesFile;
+    private final ExecutorService writer;
+    private final AtomicInteger changeRows = new AtomicInteger();
+
+    public MemberSaveEngine(File directory) {
+        this.snapshotFile = directory.toPath().resolve(MemberFileFormat.FILE_NAME);
+        this.changesFile = directory.toPath().resolve(CHANGES_FILE_NAME);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            if (Files.exists(changesFile)) {
+                try (java.util.stream.Stream<String> lines = Files.lines(changesFile, Charset.defaultCharset())) {
+                    changeRows.set((int) Math.max(0, lines.count() - 1));
+                }
+            }
+        } catch (IOException e) {
+            changeRows.set(Integer.MAX_VALUE);
+        }
+    }
+
+    public File getSnapshotFile() { return snapshotFile.toFile(); }
+    public File getChangesFile() { return changesFile.toFile(); }
+
+    /**
+     * Writes the members that changed since the last save. Falls back to a full snapshot
+     * when there is no snapshot yet or the change file has grown too large.
+     * The future completes with the number of rows written.
+     */
+    public CompletableFuture<Integer> save(MemberRepository members) {
+        int compactAt = Math.max(MIN_COMPACT_ROWS, members.size() / 4);
+        if (!Files.exists(snapshotFile) || changeRows.get() >= compactAt) {
+            return saveSnapshot(members);
+        }
+
+        GymMember[] snapshot = members.toArray();
+        List<GymMember> changed = new ArrayList<>();
+        return submit(changed, () -> {
+            StringBuilder rows = new StringBuilder();
+            for (GymMember member : snapshot) {
+                if (member.isDirty()) {
+                    member.clearDirty();
+                    changed.add(member);
+                    MemberFileFormat.appendRow(rows, member);
+                }
+            }
+            if (changed.isEmpty()) {
+                return 0;
+            }
+            boolean newFile = !Files.exists(changesFile);
+            try (BufferedWriter out = Files.newBufferedWriter(changesFile, Charset.defaultCharset(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (newFile) {
+                    out.write(MemberFileFormat.getHeader());
+                }
+                out.append(rows);
+            }
+            changeRows.addAndGet(changed.size());
+            return changed.size();
+        });
+    }
+
+    /**
+     * Rewrites MemberDetails.txt with every member and clears the change file.
+     */
+    public CompletableFuture<Integer> saveSnapshot(MemberRepository members) {
+        GymMember[] snapshot = members.toArray();
+        return submit(Arrays.asList(snapshot), () -> {
+            for (GymMember member : snapshot) {
+                member.clearDirty();
+            }
+            writeSnapshot(snapshot);
+            Files.deleteIfExists(changesFile);
+            changeRows.set(0);
+            return snapshot.length;
+        });
+    }
+
+    /**
+     * Waits for queued writes to finish and stops the writer thread.
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeSnapshot(GymMember[] snapshot) throws IOException {
+        Files.createDirectories(snapshotFile.getParent());
+        Path temp = snapshotFile.resolveSibling(MemberFileFormat.FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, Charset.defaultCharset())) {
+            out.write(MemberFileFormat.getHeader());
+            StringBuilder rows = new StringBuilder(WRITE_CHUNK + 512);
+            char[] chars = new char[WRITE_CHUNK + 512];
+            for (GymMember member : snapshot) {
+                MemberFileFormat.appendRow(rows, member);
+                if (rows.length() >= WRITE_CHUNK) {
+                    chars = flush(rows, chars, out);
+                }
+            }
+            flush(rows, chars, out);
+        }
+        try {
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Copies the rows into the char buffer and writes them, so no String is created per row.
+    private static char[] flush(StringBuilder rows, char[] chars, BufferedWriter out) throws IOException {
+        int length = rows.length();
+        if (length > chars.length) {
+            chars = new char[length];
+        }
+        rows.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        rows.setLength(0);
+        return chars;
+    }
+
+    private interface Write {
+        int run() throws IOException;
+    }
+
+    private CompletableFuture<Integer> submit(List<GymMember> affected, Write write) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        writer.execute(() -> {
+            try {
+                result.complete(write.run());
+            } catch (IOException | RuntimeException e) {
+                for (GymMember member : affected) {
+                    member.markDirty();
+                }
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+}
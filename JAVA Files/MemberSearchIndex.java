@@ -0,0 +1,402 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberSearchIndex class keeps secondary indexes over a MemberRepository so the
+ * front desk can find members by name, phone, email, location, trainer or plan
+ * without scanning the roster. Searches are described with MemberQuery.
+ *
+ * Key Features:
+ * - Sorted name index for prefix search on the full name and on each word of it
+ * - Hash indexes on phone number and email address
+ * - Trigram index over names, emails and phone digits for search-as-you-type, so a
+ *   fragment from anywhere in the text is found without a scan
+ * - Posting lists of member IDs per location, personal trainer and plan
+ * - Implements MemberListener, so additions, removals, plan upgrades and reversions
+ *   update the indexes as they happen
+ *
+ * Implementation Details:
+ * - A posting list is a sorted int array of member IDs; new IDs are appended and
+ *   sorted in before the next read, so loading a roster costs one sort per list
+ * - A fragment's candidates are the members holding every trigram of it: the lists are
+ *   intersected from the shortest up, and MemberQuery.matches() removes the few that
+ *   hold the trigrams but not the whole fragment
+ * - The plan and trainer each member was indexed under are remembered by dictionary
+ *   code, so an upgrade or reversion can take the member out of its old list
+ * - search() reads the candidate IDs of the query from the index, or every member if
+ *   the query has no indexed part, and keeps those that match the whole query; when
+ *   the index answers the query exactly the candidates are returned untested
+ * - Additions and removals are checked against the repository, since an addition's
+ *   event can arrive after the event of the removal that followed it
+ * - All methods synchronize on the index; listeners may be called from any thread
+ *
+ * Usage:
+ * MemberSearchIndex index = MemberSearchIndex.follow(members);
+ * List<GymMember> found = index.search(MemberQuery.phone("9801234567"));
+ */
+public class MemberSearchIndex implements MemberListener {
+    static final int GRAM = 3;
+
+    private static final int[] NONE = new int[0];
+    private static final int CANCEL_CHECK_MASK = 4095;
+
+    private final MemberRepository members;
+    private final TreeMap<String, Postings> names = new TreeMap<>();
+    private final Map<String, Postings> phones = new HashMap<>();
+    private final Map<String, Postings> emails = new HashMap<>();
+    private final Map<String, Postings> locations = new HashMap<>();
+    private final Map<String, Postings> trainers = new HashMap<>();
+    private final Map<String, Postings> plans = new HashMap<>();
+    private final Map<String, Postings> grams = new HashMap<>();
+    private final IntIndex indexedPlan = new IntIndex();
+    private final IntIndex indexedTrainer = new IntIndex();
+
+    private MemberSearchIndex(MemberRepository members) {
+        this.members = members;
+    }
+
+    /**
+     * Indexes every member of the repository and follows its later changes.
+     */
+    public static MemberSearchIndex follow(MemberRepository members) {
+        MemberSearchIndex index = new MemberSearchIndex(members);
+        members.addListener(index);
+        for (GymMember member : members) {
+            index.memberChanged(member, MemberChange.ADDED);
+        }
+        return index;
+    }
+
+    /**
+     * Members matching the query, ordered by ID. If the calling thread is interrupted,
+     * as when the search box cancels a search the user has typed past, the search stops
+     * with a CancellationException.
+     */
+    public List<GymMember> search(MemberQuery query) {
+        int[] ids;
+        synchronized (this) {
+            ids = query.candidates(this);
+        }
+        List<GymMember> found = new ArrayList<>();
+        int checked = 0;
+        boolean exact = ids != null && query.exact();
+        if (ids == null) {
+            for (GymMember member : members) {
+                if ((++checked & CANCEL_CHECK_MASK) == 0) {
+                    checkCancelled();
+                }
+                if (query.matches(member)) {
+                    found.add(member);
+                }
+            }
+            found.sort((a, b) -> Integer.compare(a.getID(), b.getID()));
+            return found;
+        }
+        for (int id : ids) {
+            if ((++checked & CANCEL_CHECK_MASK) == 0) {
+                checkCancelled();
+            }
+            GymMember member = members.get(id);
+            if (member != null && (exact || query.matches(member))) {
+                found.add(member);
+            }
+        }
+        return found;
+    }
+
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Search cancelled");
+        }
+    }
+
+    @Override
+    public synchronized void memberChanged(GymMember member, MemberChange change) {
+        switch (change) {
+            case ADDED:
+                if (members.get(member.getID()) == member) {
+                    add(member);
+                }
+                break;
+            case REMOVED:
+                GymMember current = members.get(member.getID());
+                if (current != member) {
+                    remove(member);
+                    if (current != null) {
+                        // A member under the same ID was added first and may share entries
+                        // with the one removed; adding it again is harmless.
+                        add(current);
+                    }
+                }
+                break;
+            case UPGRADE:
+            case REVERT_REGULAR:
+            case REVERT_PREMIUM:
+            case RESTORED:
+                reindexCoded(member);
+                break;
+            default:
+                break;
+        }
+    }
+
+    synchronized void add(GymMember member) {
+        int id = member.getID();
+        String name = MemberQuery.normalizeName(member.getName());
+        posting(names, name).add(id);
+        for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+            posting(names, name.substring(i + 1)).add(id);
+        }
+        posting(phones, MemberQuery.normalizePhone(member.getPhone())).add(id);
+        posting(emails, MemberQuery.normalizeEmail(member.getEmail())).add(id);
+        posting(locations, MemberQuery.normalizeField(member.getLocation())).add(id);
+        postGrams(name, id);
+        postGrams(MemberQuery.normalizeEmail(member.getEmail()), id);
+        postGrams(MemberQuery.normalizePhone(member.getPhone()), id);
+        indexCoded(member);
+    }
+
+    synchronized void remove(GymMember member) {
+        int id = member.getID();
+        String name = MemberQuery.normalizeName(member.getName());
+        unpost(names, name, id);
+        for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+            unpost(names, name.substring(i + 1), id);
+        }
+        unpost(phones, MemberQuery.normalizePhone(member.getPhone()), id);
+        unpost(emails, MemberQuery.normalizeEmail(member.getEmail()), id);
+        unpost(locations, MemberQuery.normalizeField(member.getLocation()), id);
+        for (String text : new String[] {name, MemberQuery.normalizeEmail(member.getEmail()),
+                MemberQuery.normalizePhone(member.getPhone())}) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                unpost(grams, text.substring(i, i + GRAM), id);
+            }
+        }
+        unindexCoded(id);
+    }
+
+    private void postGrams(String text, int id) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            posting(grams, text.substring(i, i + GRAM)).add(id);
+        }
+    }
+
+    private synchronized void reindexCoded(GymMember member) {
+        if (members.get(member.getID()) != member) {
+            return;
+        }
+        unindexCoded(member.getID());
+        indexCoded(member);
+    }
+
+    private void indexCoded(GymMember member) {
+        int id = member.getID();
+        if (member instanceof RegularMember) {
+            int code = ((RegularMember) member).getPlanCode();
+            indexedPlan.put(id, code);
+            posting(plans, MemberQuery.normalizeField(StringDictionary.MEMBER_FIELDS.get(code))).add(id);
+        } else if (member instanceof PremiumMember) {
+            int code = ((PremiumMember) member).getPersonalTrainerCode();
+            indexedTrainer.put(id, code);
+            posting(trainers, MemberQuery.normalizeField(StringDictionary.MEMBER_FIELDS.get(code))).add(id);
+        }
+    }
+
+    private void unindexCoded(int id) {
+        int code = indexedPlan.remove(id);
+        if (code >= 0) {
+            unpost(plans, MemberQuery.normalizeField(StringDictionary.MEMBER_FIELDS.get(code)), id);
+        }
+        code = indexedTrainer.remove(id);
+        if (code >= 0) {
+            unpost(trainers, MemberQuery.normalizeField(StringDictionary.MEMBER_FIELDS.get(code)), id);
+        }
+    }
+
+    // Lookups used by MemberQuery; called with the index locked.
+
+    // Gathers the lists of every name starting with the prefix and sorts them once; a
+    // short prefix can cover thousands of names.
+    int[] namePrefix(String prefix) {
+        int[] ids = NONE;
+        int size = 0;
+        for (Postings posting : names.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            int[] more = posting.ids();
+            if (size + more.length > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(size + more.length, ids.length << 1));
+            }
+            System.arraycopy(more, 0, ids, size, more.length);
+            size += more.length;
+        }
+        Arrays.sort(ids, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || ids[i] != ids[unique - 1]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return unique == ids.length ? ids : Arrays.copyOf(ids, unique);
+    }
+
+    // Members holding every trigram of the text, which must be at least GRAM long.
+    int[] fragment(String text) {
+        int count = text.length() - GRAM + 1;
+        int[][] lists = new int[count][];
+        for (int i = 0; i < count; i++) {
+            lists[i] = lookup(grams, text.substring(i, i + GRAM));
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] ids = lists[0].clone();
+        int size = ids.length;
+        for (int l = 1; l < count && size > 0; l++) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (Arrays.binarySearch(lists[l], ids[i]) >= 0) {
+                    ids[kept++] = ids[i];
+                }
+            }
+            size = kept;
+        }
+        return size == ids.length ? ids : Arrays.copyOf(ids, size);
+    }
+
+    int[] phone(String phone) {
+        return lookup(phones, phone);
+    }
+
+    int[] email(String email) {
+        return lookup(emails, email);
+    }
+
+    int[] location(String location) {
+        return lookup(locations, location);
+    }
+
+    int[] trainer(String trainer) {
+        return lookup(trainers, trainer);
+    }
+
+    int[] plan(String plan) {
+        return lookup(plans, plan);
+    }
+
+    private static int[] lookup(Map<String, Postings> index, String key) {
+        Postings posting = index.get(key);
+        return posting == null ? NONE : posting.ids();
+    }
+
+    private static Postings posting(Map<String, Postings> index, String key) {
+        Postings posting = index.get(key);
+        if (posting == null) {
+            posting = new Postings();
+            index.put(key, posting);
+        }
+        return posting;
+    }
+
+    private static void unpost(Map<String, Postings> index, String key, int id) {
+        Postings posting = index.get(key);
+        if (posting != null && posting.remove(id) && posting.size == 0) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Sorted union of two sorted ID arrays.
+     */
+    static int[] union(int[] left, int[] right) {
+        if (left.length == 0) {
+            return right;
+        }
+        if (right.length == 0) {
+            return left;
+        }
+        int[] merged = new int[left.length + right.length];
+        int l = 0;
+        int r = 0;
+        int out = 0;
+        while (l < left.length && r < right.length) {
+            if (left[l] < right[r]) {
+                merged[out++] = left[l++];
+            } else if (left[l] > right[r]) {
+                merged[out++] = right[r++];
+            } else {
+                merged[out++] = left[l++];
+                r++;
+            }
+        }
+        while (l < left.length) {
+            merged[out++] = left[l++];
+        }
+        while (r < right.length) {
+            merged[out++] = right[r++];
+        }
+        return out == merged.length ? merged : Arrays.copyOf(merged, out);
+    }
+
+    /**
+     * Member IDs sharing one indexed value. IDs are appended unsorted and sorted in,
+     * with duplicates dropped, before they are next read or removed.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int sorted;
+        private int size;
+        private int[] snapshot;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size << 1);
+            }
+            ids[size++] = id;
+            snapshot = null;
+        }
+
+        boolean remove(int id) {
+            merge();
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            sorted = size;
+            snapshot = null;
+            return true;
+        }
+
+        // A copy that later changes to the list do not touch, reused until the next change.
+        int[] ids() {
+            if (snapshot == null) {
+                merge();
+                snapshot = Arrays.copyOf(ids, size);
+            }
+            return snapshot;
+        }
+
+        private void merge() {
+            if (sorted == size) {
+                return;
+            }
+            Arrays.sort(ids, 0, size);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || ids[i] != ids[unique - 1]) {
+                    ids[unique++] = ids[i];
+                }
+            }
+            size = unique;
+            sorted = size;
+        }
+    }
+}
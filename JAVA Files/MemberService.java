@@ -0,0 +1,396 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberService class holds the membership operations that used to live in the
+ * event handlers of GymMemberGUI, so the same rules apply whether a member is served
+ * at the desk, by a kiosk over MemberHttpServer, or by a script.
+ *
+ * Key Features:
+ * - Registration of Regular and Premium members with the same validation as the form
+ * - Attendance, activation, payments, plan upgrades, discounts and reversions
+ * - importCheckIns() applies a turnstile AttendanceBatch under the same attendance rules
+ * - Refusals are reported as MemberServiceException instead of dialogs
+ * - Date queries: members who joined in a date range (through a StartDateIndex) and
+ *   members whose birthday is on a given day
+ * - search() answers a MemberQuery from the secondary indexes of a MemberSearchIndex
+ * - getMetrics() gives live roster totals kept by MemberMetrics
+ * - getAttendanceHistory() gives the time of every visit, kept by AttendanceHistory
+ * - getOccupancy() gives live check-in counts and in-gym estimates from OccupancyMonitor
+ * - getBulkOperations() upgrades or reverts many members at once, all or nothing
+ * - getAuditLog() records who changed what and when; undo() and redo() take back or
+ *   repeat an actor's latest action
+ *
+ * Implementation Details:
+ * - Works on a shared MemberRepository; the members and the repository are safe for
+ *   concurrent use, so the service needs no locking of its own
+ * - Operations return the member or the message produced by the member class, leaving
+ *   the presentation to the caller; the member class's refusals are checked first, under
+ *   the member's lock, and thrown, so a returned message always reports a change
+ *
+ * Usage:
+ * MemberService service = new MemberService(members);
+ * service.markAttendance(1001);
+ */
+public class MemberService {
+    private final MemberRepository members;
+    private final StartDateIndex startDates;
+    private final MemberSearchIndex searchIndex;
+    private final MemberMetrics metrics;
+    private final AttendanceHistory attendanceHistory;
+    private final OccupancyMonitor occupancy;
+    private final BulkOperations bulkOperations;
+    private final MemberAuditLog auditLog;
+
+    public MemberService(MemberRepository members) {
+        this(members, new AttendanceHistory());
+    }
+
+    /**
+     * Uses the given attendance history, typically one loaded from a file, and records
+     * further visits in it.
+     */
+    public MemberService(MemberRepository members, AttendanceHistory attendanceHistory) {
+        this(members, attendanceHistory, new MemberAuditLog());
+    }
+
+    /**
+     * Also records every change in the given audit log, typically one opened on disk.
+     */
+    public MemberService(MemberRepository members, AttendanceHistory attendanceHistory, MemberAuditLog auditLog) {
+        this.members = members;
+        this.startDates = StartDateIndex.follow(members);
+        this.searchIndex = MemberSearchIndex.follow(members);
+        this.metrics = MemberMetrics.follow(members);
+        this.occupancy = OccupancyMonitor.follow(members);
+        this.bulkOperations = new BulkOperations(members);
+        this.attendanceHistory = attendanceHistory;
+        attendanceHistory.follow(members);
+        this.auditLog = auditLog;
+        auditLog.follow(members);
+    }
+
+    public MemberRepository getMembers() {
+        return members;
+    }
+
+    public MemberMetrics getMetrics() {
+        return metrics;
+    }
+
+    public AttendanceHistory getAttendanceHistory() {
+        return attendanceHistory;
+    }
+
+    public OccupancyMonitor getOccupancy() {
+        return occupancy;
+    }
+
+    public BulkOperations getBulkOperations() {
+        return bulkOperations;
+    }
+
+    public MemberAuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    /**
+     * Takes back the actor's latest action and describes what was undone.
+     */
+    public String undo(String actor) throws MemberServiceException {
+        try {
+            return auditLog.undo(actor);
+        } catch (IllegalStateException e) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED, e.getMessage());
+        }
+    }
+
+    public String redo(String actor) throws MemberServiceException {
+        try {
+            return auditLog.redo(actor);
+        } catch (IllegalStateException e) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED, e.getMessage());
+        }
+    }
+
+    public RegularMember addRegularMember(int id, String name, String location, String phone, String email,
+                                          String gender, String DOB, String membershipStartDate,
+                                          String referralSource) throws MemberServiceException {
+        requireDetails(name, location, phone, email);
+        require(referralSource, "Please input the valid details ");
+        RegularMember member = new RegularMember(id, name, location, phone, email, gender, DOB,
+                membershipStartDate, referralSource);
+        addMember(member);
+        return member;
+    }
+
+    public PremiumMember addPremiumMember(int id, String name, String location, String phone, String email,
+                                          String gender, String DOB, String membershipStartDate,
+                                          String personalTrainer) throws MemberServiceException {
+        requireDetails(name, location, phone, email);
+        require(personalTrainer, "Please input the valid details ");
+        PremiumMember member = new PremiumMember(id, name, location, phone, email, gender, DOB,
+                membershipStartDate, personalTrainer);
+        addMember(member);
+        return member;
+    }
+
+    private void addMember(GymMember member) throws MemberServiceException {
+        if (!members.add(member)) {
+            throw new MemberServiceException(MemberServiceException.Reason.DUPLICATE,
+                    "Member ID already exists!");
+        }
+    }
+
+    public GymMember findMember(int id) throws MemberServiceException {
+        GymMember member = members.get(id);
+        if (member == null) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_FOUND, "Member not found!");
+        }
+        return member;
+    }
+
+    public GymMember markAttendance(int id) throws MemberServiceException {
+        GymMember member = findMember(id);
+        markAttendance(member, 1);
+        return member;
+    }
+
+    /**
+     * Records several visits at once, as delivered by a turnstile batch, and returns
+     * the number recorded.
+     */
+    public int markAttendance(int id, int visits) throws MemberServiceException {
+        if (visits <= 0) {
+            throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT,
+                    "Please enter a valid number of visits.");
+        }
+        return markAttendance(findMember(id), visits);
+    }
+
+    private static int markAttendance(GymMember member, int visits) throws MemberServiceException {
+        synchronized (member) {
+            member.awaitRelease();
+            if (!member.getActiveStatus()) {
+                throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                        "Cannot mark attendance for inactive member: " + member.getName());
+            }
+            return member.markAttendance(visits);
+        }
+    }
+
+    /**
+     * Applies a batch of check-ins through the same checks as markAttendance(), as one
+     * audited action of the thread's current actor.
+     */
+    public AttendanceBatch.Summary importCheckIns(AttendanceBatch batch) {
+        MemberAuditLog.Scope action = MemberAuditLog.act();
+        try {
+            return batch.applyTo(this);
+        } finally {
+            action.close();
+        }
+    }
+
+    /**
+     * Activates or deactivates the membership. Returns false if it already had that status.
+     */
+    public boolean setMembershipActive(int id, boolean active) throws MemberServiceException {
+        GymMember member = findMember(id);
+        if (member.getActiveStatus() == active) {
+            return false;
+        }
+        if (active) {
+            member.activeMembership();
+        } else {
+            member.deactivateMembership();
+        }
+        return true;
+    }
+
+    public String payDueAmount(int id, double amount) throws MemberServiceException {
+        PremiumMember member = findPremiumMember(id);
+        // Checked and paid under the member's lock, so no other payment or re-pricing
+        // comes in between.
+        synchronized (member) {
+            member.awaitRelease();
+            checkPayment(member, amount);
+            return member.payDueAmount(amount);
+        }
+    }
+
+    // The refusals of PremiumMember.payDueAmount, as exceptions.
+    static void checkPayment(PremiumMember member, double amount) throws MemberServiceException {
+        if (member.isFullPayment()) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                    "Full payment has already been made. No further payments required.");
+        }
+        if (!(amount > 0)) {
+            throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT, "Please enter a valid amount.");
+        }
+        if (member.getPaidAmount() + amount > member.getPremiumCharge()) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                    "Payment exceeds the premium charge. Maximum allowed is " + member.getDueAmount());
+        }
+    }
+
+    public PremiumMember calculateDiscount(int id) throws MemberServiceException {
+        PremiumMember member = findPremiumMember(id);
+        if (!member.isFullPayment()) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                    "Full payment has not been made yet. No discount available.");
+        }
+        member.calculateDiscount();
+        return member;
+    }
+
+    public String upgradePlan(int id, String plan) throws MemberServiceException {
+        RegularMember member = findRegularMember(id);
+        synchronized (member) {
+            member.awaitRelease();
+            checkUpgrade(member, plan);
+            return member.upgradePlan(plan);
+        }
+    }
+
+    // The rules for an upgrade, so that a refusal is thrown rather than returned: enough
+    // attendance, eligibility by loyalty points, a different plan and a plan that exists.
+    static void checkUpgrade(RegularMember member, String plan) throws MemberServiceException {
+        if (member.getAttendanceCount() < member.getAttendanceLimit()) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                    "Attendance must be at least " + member.getAttendanceLimit() +
+                    " to upgrade plan.\nCurrent attendance: " + member.getAttendanceCount());
+        }
+        if (!member.isEligibleForUpgrade()) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                    "Member is NOT eligible for upgrade");
+        }
+        if (plan != null && plan.equalsIgnoreCase(member.getPlan())) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                    "Member is already on the " + member.getPlan() + " plan");
+        }
+        if (plan == null || RegularMember.getPlanPrice(plan) == -1) {
+            throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT, "Invalid plan");
+        }
+    }
+
+    public RegularMember revertRegularMember(int id, String removalReason) throws MemberServiceException {
+        RegularMember member = findRegularMember(id);
+        require(removalReason, "Please input the removal reason.");
+        member.revertRegularMember(removalReason);
+        return member;
+    }
+
+    /**
+     * Resets a premium member and replaces it with a Regular member under the same ID.
+     * Throws NOT_FOUND, changing nothing, if the member left the roster in the meantime.
+     */
+    public RegularMember convertToRegular(int id) throws MemberServiceException {
+        PremiumMember premiumMember = findPremiumMember(id);
+        RegularMember regularMember = new RegularMember(
+            premiumMember.getID(),
+            premiumMember.getName(),
+            premiumMember.getLocation(),
+            premiumMember.getPhone(),
+            premiumMember.getEmail(),
+            premiumMember.getGender(),
+            premiumMember.getDOB(),
+            premiumMember.getMembershipStartDate(),
+            "Converted from Premium"
+        );
+        // The reset and the replacement are one action, undone together. Holding the
+        // member's lock keeps anyone from removing or replacing it between the two.
+        MemberAuditLog.Scope action = MemberAuditLog.act();
+        try {
+            synchronized (premiumMember) {
+                // Waiting for a bulk run lets go of the lock, so the roster is checked after.
+                premiumMember.awaitRelease();
+                if (members.get(id) != premiumMember) {
+                    throw new MemberServiceException(MemberServiceException.Reason.NOT_FOUND,
+                            "Member " + id + " was removed or replaced before it could be converted");
+                }
+                premiumMember.revertPremiumMember();
+                if (!members.replace(premiumMember, regularMember)) {
+                    throw new IllegalStateException("Member " + id + " left the roster while it was being converted");
+                }
+            }
+            return regularMember;
+        } finally {
+            action.close();
+        }
+    }
+
+    /**
+     * Members matching the query, ordered by ID.
+     */
+    public List<GymMember> search(MemberQuery query) {
+        return searchIndex.search(query);
+    }
+
+    /**
+     * Members whose membership started between the two dates, both inclusive, in
+     * start-date order.
+     */
+    public List<GymMember> findJoinedBetween(LocalDate from, LocalDate to) {
+        List<GymMember> result = new ArrayList<>();
+        for (int id : startDates.joinedBetween(from, to)) {
+            GymMember member = members.get(id);
+            if (member != null) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    public int countJoinedBetween(LocalDate from, LocalDate to) {
+        return startDates.countJoinedBetween(from, to);
+    }
+
+    public List<GymMember> findBirthdays(LocalDate day) {
+        List<GymMember> result = new ArrayList<>();
+        for (GymMember member : members) {
+            if (MemberDates.isBirthday(member.getDOBEpochDay(), day)) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    private RegularMember findRegularMember(int id) throws MemberServiceException {
+        GymMember member = findMember(id);
+        if (!(member instanceof RegularMember)) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                    "Only Regular members can do this");
+        }
+        return (RegularMember) member;
+    }
+
+    private PremiumMember findPremiumMember(int id) throws MemberServiceException {
+        GymMember member = findMember(id);
+        if (!(member instanceof PremiumMember)) {
+            throw new MemberServiceException(MemberServiceException.Reason.NOT_ALLOWED,
+                    "Only Premium members can do this");
+        }
+        return (PremiumMember) member;
+    }
+
+    private static void requireDetails(String name, String location, String phone, String email)
+            throws MemberServiceException {
+        require(name, "Please input the valid details ");
+        require(location, "Please input the valid details ");
+        require(phone, "Please input the valid details ");
+        require(email, "Please input the valid details ");
+    }
+
+    private static void require(String value, String message) throws MemberServiceException {
+        if (value == null || value.trim().isEmpty()) {
+            throw new MemberServiceException(MemberServiceException.Reason.INVALID_INPUT, message);
+        }
+    }
+}
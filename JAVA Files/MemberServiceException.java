@@ -0,0 +1,32 @@
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberServiceException class is thrown by MemberService when an operation is
+ * refused. The message is meant for the person at the desk or kiosk, and the reason
+ * lets clients such as MemberHttpServer choose a response without parsing the text.
+ *
+ * Usage:
+ * Catch it around MemberService calls and show getMessage() to the user.
+ */
+public class MemberServiceException extends Exception {
+    public enum Reason {
+        INVALID_INPUT,
+        NOT_FOUND,
+        DUPLICATE,
+        NOT_ALLOWED
+    }
+
+    private final Reason reason;
+
+    public MemberServiceException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,428 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberStressTest class runs the member model under contention, the way several
+ * check-in kiosks, the front desk and the pricing watcher use it at once, and fails if
+ * an update is lost or a premium member ends up paying more than the charge.
+ *
+ * Key Features:
+ * - attendance: threads marking visits on the same few members; every visit and its
+ *   loyalty points must be counted
+ * - payments:   threads paying the same premium members; the paid amount must be the sum
+ *   of the payments accepted and never more than the charge
+ * - repricing:  payments while the premium charge is lowered and raised again, starting
+ *   over whenever a member has paid in full; a member must never be seen with more paid
+ *   than the charge
+ * - roster:     threads adding and removing members; the roster and its listeners must
+ *   agree on who is on it
+ * - turnover:   threads adding and removing members under the same few IDs, with a slow
+ *   listener and the journal following; every ID must be announced added and removed in
+ *   turn, and the roster recovered from the journal must have the same IDs as memory
+ * - journal:    threads changing the same members with the journal following; the roster
+ *   recovered from the journal must match the one in memory
+ *
+ * Implementation Details:
+ * - Each check starts its threads behind one latch so they contend from the first operation
+ * - Checks repeat for a number of rounds with fresh members, since a race shows only
+ *   on some runs
+ * - The pricing rules in force are restored to the defaults afterwards
+ *
+ * Usage:
+ * java MemberStressTest [rounds]
+ * Prints one line per check and exits with status 1 if any check failed.
+ */
+public class MemberStressTest {
+    private static final int THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    private static final int SHARED_MEMBERS = 8;
+    private static final int OPS = 20_000;
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        try {
+            check("attendance", rounds, MemberStressTest::attendance);
+            check("payments", rounds, MemberStressTest::payments);
+            check("repricing", rounds, MemberStressTest::repricing);
+            check("roster", rounds, MemberStressTest::roster);
+            check("turnover", Math.max(1, rounds / 5), MemberStressTest::turnover);
+            check("journal", Math.max(1, rounds / 5), MemberStressTest::journal);
+        } finally {
+            PricingRules.install(PricingRules.defaults());
+        }
+        System.out.println(failures == 0 ? "All checks passed" : failures + " check(s) failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private interface Round {
+        // Returns null if the round found nothing wrong, or what went wrong.
+        String run(int round) throws Exception;
+    }
+
+    private static void check(String name, int rounds, Round body) throws Exception {
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            String problem = body.run(round);
+            if (problem != null) {
+                failures++;
+                System.out.printf("FAIL %-12s round %d: %s%n", name, round, problem);
+                return;
+            }
+        }
+        System.out.printf("PASS %-12s %d rounds x %d threads in %d ms%n",
+                name, rounds, THREADS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    // Runs the worker on THREADS threads released together; rethrows the first failure.
+    private static void concurrently(Worker worker) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(thread);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "stress-" + t);
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private static RegularMember regular(int id) {
+        return new RegularMember(id, "Member " + id, "Kathmandu", "98" + (10000000 + id),
+                "member" + id + "@mail.com", "Male", "1/Jan/1995", "1/Jan/2024", "Walk-in");
+    }
+
+    private static PremiumMember premium(int id) {
+        return new PremiumMember(id, "Member " + id, "Pokhara", "98" + (10000000 + id),
+                "member" + id + "@mail.com", "Female", "1/Jan/1995", "1/Jan/2024", "Trainer");
+    }
+
+    private static PricingRules rules(String premiumCharge) {
+        Properties properties = new Properties();
+        properties.setProperty("premium.charge", premiumCharge);
+        return PricingRules.parse(properties);
+    }
+
+    private static String attendance(int round) throws Exception {
+        GymMember[] members = new GymMember[SHARED_MEMBERS];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = (i & 1) == 0 ? regular(i + 1) : premium(i + 1);
+        }
+        concurrently(thread -> {
+            for (int i = 0; i < OPS; i++) {
+                GymMember member = members[(thread + i) % members.length];
+                if ((i & 3) == 0) {
+                    member.markAttendance(2);
+                } else {
+                    member.markAttendance();
+                }
+            }
+        });
+        int visitsPerMember = THREADS * (OPS / 4 * 2 + OPS - OPS / 4) / members.length;
+        PricingRules rules = PricingRules.current();
+        for (GymMember member : members) {
+            double pointsPerVisit = member instanceof PremiumMember
+                    ? rules.getPremiumPointsPerVisit() : rules.getRegularPointsPerVisit();
+            if (member.getAttendance() != visitsPerMember) {
+                return "member " + member.getID() + " has " + member.getAttendance()
+                        + " visits, expected " + visitsPerMember;
+            }
+            if (member.getLoyaltyPoints() != visitsPerMember * pointsPerVisit) {
+                return "member " + member.getID() + " has " + member.getLoyaltyPoints()
+                        + " loyalty points, expected " + visitsPerMember * pointsPerVisit;
+            }
+        }
+        return null;
+    }
+
+    private static String payments(int round) throws Exception {
+        PremiumMember[] members = new PremiumMember[SHARED_MEMBERS];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = premium(i + 1);
+        }
+        double[][] accepted = new double[THREADS][members.length];
+        concurrently(thread -> {
+            Random random = new Random(round * 31L + thread);
+            for (int i = 0; i < OPS / 4; i++) {
+                int index = random.nextInt(members.length);
+                double amount = 50 * (1 + random.nextInt(20));
+                if (members[index].payDueAmount(amount).startsWith("Payment of")) {
+                    accepted[thread][index] += amount;
+                }
+            }
+        });
+        for (int i = 0; i < members.length; i++) {
+            PremiumMember member = members[i];
+            double sum = 0;
+            for (double[] paid : accepted) {
+                sum += paid[i];
+            }
+            if (member.getPaidAmount() != sum) {
+                return "member " + member.getID() + " paid " + member.getPaidAmount() + " but payments of "
+                        + sum + " were accepted";
+            }
+            String problem = paymentProblem(member);
+            if (problem != null) {
+                return problem;
+            }
+        }
+        return null;
+    }
+
+    // Half the threads pay while the others keep moving the charge between two rule sets.
+    private static String repricing(int round) throws Exception {
+        PremiumMember[] members = new PremiumMember[SHARED_MEMBERS];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = premium(i + 1);
+        }
+        PricingRules[] rules = {rules("20000"), rules("50000")};
+        AtomicReference<String> problem = new AtomicReference<>();
+        AtomicInteger payers = new AtomicInteger(THREADS / 2);
+        concurrently(thread -> {
+            Random random = new Random(round * 17L + thread);
+            if (thread < THREADS / 2) {
+                for (int i = 0; i < OPS / 4 && problem.get() == null; i++) {
+                    PremiumMember member = members[random.nextInt(members.length)];
+                    if (member.payDueAmount(1000 * (1 + random.nextInt(4))).startsWith("Payment of")) {
+                        String found = paymentProblem(member);
+                        if (found != null) {
+                            problem.compareAndSet(null, found);
+                        }
+                    }
+                    // Start over once paid in full, so the charge keeps moving under open payments.
+                    if (member.isFullPayment()) {
+                        member.revertPremiumMember();
+                    }
+                }
+                payers.decrementAndGet();
+            } else {
+                for (int i = 0; payers.get() > 0 && problem.get() == null; i++) {
+                    members[random.nextInt(members.length)].applyPricing(rules[i & 1]);
+                }
+            }
+        });
+        if (problem.get() != null) {
+            return problem.get();
+        }
+        for (PremiumMember member : members) {
+            String found = paymentProblem(member);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    // Read under the member's lock, so the charge and the paid amount belong together.
+    private static String paymentProblem(PremiumMember member) {
+        synchronized (member) {
+            double paid = member.getPaidAmount();
+            double charge = member.getPremiumCharge();
+            if (paid > charge) {
+                return "member " + member.getID() + " paid " + paid + " against a charge of " + charge;
+            }
+            if (member.isFullPayment() != (paid == charge)) {
+                return "member " + member.getID() + " paid " + paid + " of " + charge
+                        + " but full payment is " + member.isFullPayment();
+            }
+            return null;
+        }
+    }
+
+    // Each thread adds its own IDs, removes every other one and re-adds some of those.
+    private static String roster(int round) throws Exception {
+        final int perThread = 2_000;
+        MemberRepository members = new MemberRepository();
+        AtomicInteger listed = new AtomicInteger();
+        members.addListener((member, change) -> {
+            if (change == MemberChange.ADDED) {
+                listed.incrementAndGet();
+            } else if (change == MemberChange.REMOVED) {
+                listed.decrementAndGet();
+            }
+        });
+        concurrently(thread -> {
+            int first = thread * perThread + 1;
+            for (int id = first; id < first + perThread; id++) {
+                if (!members.add(regular(id))) {
+                    throw new IllegalStateException("ID " + id + " was refused");
+                }
+            }
+            for (int id = first; id < first + perThread; id += 2) {
+                if (members.remove(id) == null) {
+                    throw new IllegalStateException("ID " + id + " was not found");
+                }
+            }
+            for (int id = first; id < first + perThread; id += 4) {
+                members.add(regular(id));
+            }
+        });
+        int expected = THREADS * (perThread / 2 + perThread / 4);
+        if (members.size() != expected) {
+            return "roster has " + members.size() + " members, expected " + expected;
+        }
+        if (listed.get() != expected) {
+            return "listeners counted " + listed.get() + " members, expected " + expected;
+        }
+        for (int id = 1; id <= THREADS * perThread; id++) {
+            int offset = (id - 1) % perThread;
+            boolean present = offset % 2 == 1 || offset % 4 == 0;
+            if (members.contains(id) != present || (present && members.get(id).getID() != id)) {
+                return "member " + id + (present ? " is missing" : " should have been removed");
+            }
+        }
+        if (members.toArray().length != expected) {
+            return "toArray() has " + members.toArray().length + " members, expected " + expected;
+        }
+        return null;
+    }
+
+    // Additions and removals under one ID must be announced in the order they happened.
+    private static String turnover(int round) throws Exception {
+        File directory = Files.createTempDirectory("member-stress").toFile();
+        try {
+            MemberRepository members = new MemberRepository();
+            final boolean[] listed = new boolean[SHARED_MEMBERS + 1];
+            AtomicReference<String> problem = new AtomicReference<>();
+            members.addListener((member, change) -> {
+                // A slow listener widens the gap between a change and its announcement.
+                Thread.yield();
+                synchronized (listed) {
+                    int id = member.getID();
+                    if (change == MemberChange.ADDED) {
+                        if (listed[id]) {
+                            problem.compareAndSet(null, "member " + id + " was announced added twice in a row");
+                        }
+                        listed[id] = true;
+                    } else if (change == MemberChange.REMOVED) {
+                        if (!listed[id]) {
+                            problem.compareAndSet(null, "member " + id + " was announced removed before it was added");
+                        }
+                        listed[id] = false;
+                    }
+                }
+            });
+            MemberJournal journal = new MemberJournal(directory);
+            members.addListener(journal);
+            journal.start();
+            concurrently(thread -> {
+                Random random = new Random(round * 17L + thread);
+                for (int i = 0; i < OPS / 10; i++) {
+                    int id = 1 + random.nextInt(SHARED_MEMBERS);
+                    if (random.nextBoolean()) {
+                        members.add((id & 1) == 0 ? premium(id) : regular(id));
+                    } else {
+                        members.remove(id);
+                    }
+                }
+            });
+            journal.sync();
+            journal.close();
+            if (problem.get() != null) {
+                return problem.get();
+            }
+
+            MemberRepository recovered = new MemberRepository();
+            new MemberJournal(directory).recover(recovered);
+            for (int id = 1; id <= SHARED_MEMBERS; id++) {
+                if (listed[id] != members.contains(id)) {
+                    return "listeners have member " + id + (listed[id] ? "" : " not") + " on the roster";
+                }
+                if (recovered.contains(id) != members.contains(id)) {
+                    return "member " + id + (members.contains(id) ? " is on the roster but was not recovered"
+                            : " was removed but came back on recovery");
+                }
+            }
+            return null;
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    // Full-state journal records must reach the log in the order of the changes.
+    private static String journal(int round) throws Exception {
+        File directory = Files.createTempDirectory("member-stress").toFile();
+        try {
+            MemberRepository members = new MemberRepository();
+            for (int id = 1; id <= SHARED_MEMBERS; id++) {
+                members.add((id & 1) == 0 ? premium(id) : regular(id));
+            }
+            MemberJournal journal = new MemberJournal(directory);
+            members.addListener(journal);
+            journal.start();
+            for (GymMember member : members) {
+                journal.memberChanged(member, MemberChange.ADDED);
+            }
+            concurrently(thread -> {
+                Random random = new Random(round * 13L + thread);
+                for (int i = 0; i < OPS / 10; i++) {
+                    GymMember member = members.get(1 + random.nextInt(SHARED_MEMBERS));
+                    if (member instanceof PremiumMember && (i & 7) == 0) {
+                        ((PremiumMember) member).payDueAmount(100);
+                    } else {
+                        member.markAttendance();
+                    }
+                }
+            });
+            journal.sync();
+            journal.close();
+
+            MemberRepository recovered = new MemberRepository();
+            new MemberJournal(directory).recover(recovered);
+            for (GymMember member : members) {
+                GymMember copy = recovered.get(member.getID());
+                if (copy == null) {
+                    return "member " + member.getID() + " was not recovered";
+                }
+                if (copy.getAttendance() != member.getAttendance()
+                        || copy.getLoyaltyPoints() != member.getLoyaltyPoints()
+                        || copy.getNetAmountPaid() != member.getNetAmountPaid()) {
+                    return "member " + member.getID() + " was recovered with " + copy.getAttendance()
+                            + " visits and " + copy.getNetAmountPaid() + " paid, but has "
+                            + member.getAttendance() + " visits and " + member.getNetAmountPaid() + " paid";
+                }
+            }
+            return null;
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private static void deleteDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+        Files.deleteIfExists(directory.toPath());
+    }
+}
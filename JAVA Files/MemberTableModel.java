@@ -0,0 +1,181 @@
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The MemberTableModel class lets a JTable show the roster straight from a
+ * MemberRepository. Rows are read lazily, one cell at a time, so only the rows
+ * inside the visible viewport are ever formatted, whatever the size of the roster.
+ *
+ * Key Features:
+ * - One row per member, in registration order
+ * - Typed columns (Integer, Double, String) so a TableRowSorter sorts numbers numerically
+ * - Follows the repository as a MemberListener and repaints changed rows
+ *
+ * Implementation Details:
+ * - The rows are an array of member references owned by the EDT, taken from the
+ *   repository whenever members are added or removed; the members themselves are not
+ *   copied, and sorting and filtering are done by the table's row sorter
+ * - Every change reaches the table on the EDT, whichever thread made it, so the row
+ *   count the table sees only changes together with the table event announcing it and
+ *   a row that was removed meanwhile is never asked for
+ * - Changes are queued and handled together by one pending invokeLater, even when they
+ *   are made on the EDT: additions and removals take a fresh array and refresh the table
+ *   once; other changes update just their rows
+ *
+ * Usage:
+ * JTable table = new JTable(new MemberTableModel(members));
+ * table.setAutoCreateRowSorter(true);
+ */
+public class MemberTableModel extends AbstractTableModel implements MemberListener {
+    private static final String[] COLUMNS = {
+        "ID", "Name", "Type", "Plan", "Location", "Phone", "Email", "Membership Start",
+        "Attendance", "Loyalty", "Status", "Discount", "Net Paid"
+    };
+    private static final Class<?>[] TYPES = {
+        Integer.class, String.class, String.class, String.class, String.class, String.class, String.class,
+        String.class, Integer.class, Double.class, String.class, Double.class, Double.class
+    };
+
+    // Beyond this many queued row updates the whole table is refreshed instead.
+    private static final int MAX_ROW_UPDATES = 256;
+
+    private final MemberRepository members;
+    // Read and replaced on the EDT only.
+    private GymMember[] rows;
+
+    // Guarded by this; filled by any thread, emptied on the EDT.
+    private List<GymMember> updated = new ArrayList<>();
+    private boolean rowsChanged;
+    private boolean drainPending;
+
+    /**
+     * Must be created on the EDT.
+     */
+    public MemberTableModel(MemberRepository members) {
+        this.members = members;
+        this.rows = members.toArray();
+        members.addListener(this);
+    }
+
+    public GymMember getMemberAt(int row) {
+        return rows[row];
+    }
+
+    /**
+     * Takes the roster again and redraws every row. Must be called on the EDT.
+     */
+    public void refresh() {
+        rows = members.toArray();
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return TYPES[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        GymMember m = rows[row];
+        switch (column) {
+            case 0: return m.getID();
+            case 1: return m.getName();
+            case 2: return m instanceof PremiumMember ? "Premium" : "Regular";
+            case 3: return m instanceof RegularMember ? ((RegularMember) m).getPlan() : "Premium";
+            case 4: return m.getLocation();
+            case 5: return m.getPhone();
+            case 6: return m.getEmail();
+            case 7: return m.getMembershipStartDate();
+            case 8: return m.getAttendanceCount();
+            case 9: return m.getLoyaltyPoints();
+            case 10: return m.getActiveStatus() ? "Active" : "Inactive";
+            case 11: return m.getDiscountAmount();
+            case 12: return m.getNetAmountPaid();
+            default: return null;
+        }
+    }
+
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        boolean structural = change == MemberChange.ADDED || change == MemberChange.REMOVED;
+        synchronized (this) {
+            if (structural || updated.size() >= MAX_ROW_UPDATES) {
+                rowsChanged = true;
+            } else if (!rowsChanged) {
+                updated.add(member);
+            }
+        }
+        deliver();
+    }
+
+    // A bulk operation touches too many rows to update them one by one.
+    @Override
+    public void membersChanged(GymMember[] members, MemberChange change) {
+        synchronized (this) {
+            rowsChanged = true;
+        }
+        deliver();
+    }
+
+    // Handles the queue once, as soon as the EDT can. Changes made on the EDT itself wait
+    // too, so a loop adding members there refreshes the table once rather than per member.
+    private void deliver() {
+        synchronized (this) {
+            if (drainPending) {
+                return;
+            }
+            drainPending = true;
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                drain();
+            }
+        });
+    }
+
+    private void drain() {
+        List<GymMember> changed;
+        boolean refresh;
+        synchronized (this) {
+            changed = updated;
+            refresh = rowsChanged;
+            updated = new ArrayList<>();
+            rowsChanged = false;
+            drainPending = false;
+        }
+        if (refresh) {
+            refresh();
+            return;
+        }
+        for (GymMember member : changed) {
+            // The roster may have moved on since the rows were taken; a member that is
+            // not in its row yet is drawn by the refresh already queued for that change.
+            int row = members.indexOf(member.getID());
+            if (row >= 0 && row < rows.length && rows[row] == member) {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The OccupancyMonitor class follows check-ins as they happen and estimates how busy
+ * the studio is right now: check-ins in the last 5 minutes, the last hour and today,
+ * how many people are probably in the gym, the load per member location, and which
+ * hours of the day are the busiest.
+ *
+ * Key Features:
+ * - Implements MemberListener; every ATTENDANCE change is one check-in at the member's
+ *   location (a turnstile batch of several visits is still one person arriving)
+ * - snapshot() returns an immutable Snapshot with every figure at once, for the
+ *   OccupancyPanel, the /occupancy API or a script
+ * - The number in the gym is estimated as the check-ins of the last STAY_MINUTES
+ *
+ * Implementation Details:
+ * - Check-ins are counted per minute in ring buffers of one day's minutes, one ring for
+ *   the whole studio and one per location, all in a single AtomicLongArray
+ * - Each cell packs the minute it counts (high 32 bits) with its count (low 32 bits);
+ *   a check-in either increments the cell or, if the cell still holds a minute from the
+ *   previous day, replaces it with a count of one, in one compare-and-set. Check-ins
+ *   therefore take no lock and allocate nothing, and readers never block them
+ * - Locations are given ring rows the first time they are seen (the only step that
+ *   takes a lock); locations beyond MAX_LOCATIONS share the last row, shown as "Other"
+ * - Minutes are counted in studio time; the zone offset is looked up again at most
+ *   once a minute so a daylight saving change is picked up without a lookup per check-in
+ * - A snapshot reads cells one by one, so it may include a check-in made while it was
+ *   being taken in one figure and not another; every figure is still a real count
+ *
+ * Usage:
+ * OccupancyMonitor occupancy = OccupancyMonitor.follow(members);
+ * OccupancyMonitor.Snapshot now = occupancy.snapshot();
+ */
+public class OccupancyMonitor implements MemberListener {
+    public static final int STAY_MINUTES = 90;
+
+    private static final int RING_MINUTES = 24 * 60;
+    private static final int MAX_LOCATIONS = 32;
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final Clock clock;
+    private final AtomicLongArray cells = new AtomicLongArray((MAX_LOCATIONS + 1) * RING_MINUTES);
+    private final AtomicLongArray hourOfDay = new AtomicLongArray(24);
+    // The ring row of each location code; 0, the studio-wide row, means none yet.
+    private volatile int[] rows = new int[64];
+    private final String[] rowNames = new String[MAX_LOCATIONS + 1];
+    private int rowCount;
+    private volatile long offsetMillis;
+    private volatile long offsetCheckedUntil;
+
+    public OccupancyMonitor() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public OccupancyMonitor(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Counts the check-ins of the repository's members from now on.
+     */
+    public static OccupancyMonitor follow(MemberRepository members) {
+        OccupancyMonitor monitor = new OccupancyMonitor();
+        members.addListener(monitor);
+        return monitor;
+    }
+
+    @Override
+    public void memberChanged(GymMember member, MemberChange change) {
+        if (change == MemberChange.ATTENDANCE) {
+            checkIn(member.getLocationCode());
+        }
+    }
+
+    /**
+     * Counts one check-in at the location with the given StringDictionary.MEMBER_FIELDS code.
+     */
+    public void checkIn(int locationCode) {
+        long minute = minute(clock.millis());
+        int cell = (int) (minute % RING_MINUTES);
+        increment(cell, minute);
+        increment(row(locationCode) * RING_MINUTES + cell, minute);
+        hourOfDay.incrementAndGet((int) (minute / 60 % 24));
+    }
+
+    private void increment(int index, long minute) {
+        while (true) {
+            long current = cells.get(index);
+            long counted = current >>> 32;
+            if (counted > minute) {
+                // The cell already belongs to a later day; the check-in is too old to count.
+                return;
+            }
+            long next = counted == minute ? current + 1 : minute << 32 | 1;
+            if (cells.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    private int row(int locationCode) {
+        int[] current = rows;
+        if (locationCode >= 0 && locationCode < current.length && current[locationCode] != 0) {
+            return current[locationCode];
+        }
+        return addRow(locationCode);
+    }
+
+    private synchronized int addRow(int locationCode) {
+        if (locationCode < 0) {
+            return MAX_LOCATIONS;
+        }
+        int[] current = rows;
+        if (locationCode < current.length && current[locationCode] != 0) {
+            return current[locationCode];
+        }
+        int row;
+        if (rowCount < MAX_LOCATIONS - 1) {
+            row = ++rowCount;
+            rowNames[row] = StringDictionary.MEMBER_FIELDS.get(locationCode);
+        } else {
+            row = MAX_LOCATIONS;
+            rowNames[row] = "Other";
+        }
+        int[] grown = Arrays.copyOf(current, Math.max(current.length, Integer.highestOneBit(locationCode) << 1));
+        grown[locationCode] = row;
+        rows = grown;
+        return row;
+    }
+
+    // Minutes since 1970-01-01 00:00 studio time.
+    private long minute(long millis) {
+        if (millis >= offsetCheckedUntil) {
+            offsetMillis = clock.getZone().getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+            offsetCheckedUntil = (millis / 60_000 + 1) * 60_000;
+        }
+        return Math.floorDiv(millis + offsetMillis, 60_000);
+    }
+
+    // Check-ins counted in the row from the minute first to the minute last, both inclusive.
+    private int sum(int row, long first, long last) {
+        int total = 0;
+        for (long minute = Math.max(first, last - RING_MINUTES + 1); minute <= last; minute++) {
+            long cell = cells.get(row * RING_MINUTES + (int) (minute % RING_MINUTES));
+            if (cell >>> 32 == minute) {
+                total += (int) (cell & COUNT_MASK);
+            }
+        }
+        return total;
+    }
+
+    public Snapshot snapshot() {
+        long now = minute(clock.millis());
+        long midnight = now - now % RING_MINUTES;
+
+        // Today's check-ins per minute, from which the hourly counts and the busiest
+        // stretch of STAY_MINUTES are worked out.
+        int minutesToday = (int) (now - midnight) + 1;
+        int[] perMinute = new int[minutesToday];
+        int[] byHour = new int[24];
+        for (int i = 0; i < minutesToday; i++) {
+            long cell = cells.get((int) ((midnight + i) % RING_MINUTES));
+            if (cell >>> 32 == midnight + i) {
+                perMinute[i] = (int) (cell & COUNT_MASK);
+                byHour[i / 60] += perMinute[i];
+            }
+        }
+        int peak = 0;
+        int peakMinute = 0;
+        int window = 0;
+        for (int i = 0; i < minutesToday; i++) {
+            window += perMinute[i] - (i >= STAY_MINUTES ? perMinute[i - STAY_MINUTES] : 0);
+            if (window > peak) {
+                peak = window;
+                peakMinute = i;
+            }
+        }
+        long[] allTime = new long[24];
+        for (int hour = 0; hour < 24; hour++) {
+            allTime[hour] = hourOfDay.get(hour);
+        }
+
+        Map<String, int[]> locations = new LinkedHashMap<>();
+        int rowsSeen;
+        synchronized (this) {
+            rowsSeen = rowCount;
+        }
+        for (int row = 1; row <= MAX_LOCATIONS; row++) {
+            if (row > rowsSeen && row != MAX_LOCATIONS || rowNames[row] == null) {
+                continue;
+            }
+            locations.put(rowNames[row], new int[] {
+                sum(row, now - STAY_MINUTES + 1, now), sum(row, midnight, now)
+            });
+        }
+        return new Snapshot(toTime(now), sum(0, now - STAY_MINUTES + 1, now), sum(0, now - 4, now),
+                sum(0, now - 59, now), sum(0, midnight, now), peak, toTime(midnight + peakMinute),
+                byHour, allTime, locations);
+    }
+
+    private static LocalDateTime toTime(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * The occupancy figures at one moment.
+     */
+    public static final class Snapshot {
+        private final LocalDateTime time;
+        private final int inGym;
+        private final int lastFiveMinutes;
+        private final int lastHour;
+        private final int today;
+        private final int peakInGymToday;
+        private final LocalDateTime peakTime;
+        private final int[] todayByHour;
+        private final long[] allTimeByHour;
+        private final Map<String, int[]> locations;
+
+        Snapshot(LocalDateTime time, int inGym, int lastFiveMinutes, int lastHour, int today, int peakInGymToday,
+                 LocalDateTime peakTime, int[] todayByHour, long[] allTimeByHour, Map<String, int[]> locations) {
+            this.time = time;
+            this.inGym = inGym;
+            this.lastFiveMinutes = lastFiveMinutes;
+            this.lastHour = lastHour;
+            this.today = today;
+            this.peakInGymToday = peakInGymToday;
+            this.peakTime = peakTime;
+            this.todayByHour = todayByHour;
+            this.allTimeByHour = allTimeByHour;
+            this.locations = Collections.unmodifiableMap(locations);
+        }
+
+        /**
+         * The studio-time minute the snapshot was taken in.
+         */
+        public LocalDateTime getTime() { return time; }
+
+        /**
+         * Estimated people in the gym: the check-ins of the last STAY_MINUTES.
+         */
+        public int getInGym() { return inGym; }
+        public int getLastFiveMinutes() { return lastFiveMinutes; }
+        public int getLastHour() { return lastHour; }
+        public int getToday() { return today; }
+
+        /**
+         * The highest in-gym estimate reached so far today, and when it was reached.
+         */
+        public int getPeakInGymToday() { return peakInGymToday; }
+        public LocalDateTime getPeakTime() { return peakTime; }
+
+        /**
+         * Today's check-ins in each hour of the day, 0-23.
+         */
+        public int[] getTodayByHour() { return todayByHour.clone(); }
+
+        /**
+         * Check-ins in each hour of the day, 0-23, since the monitor started.
+         */
+        public long[] getAllTimeByHour() { return allTimeByHour.clone(); }
+
+        /**
+         * The hour of the day, 0-23, with the most check-ins since the monitor started.
+         */
+        public int getBusiestHour() {
+            int busiest = 0;
+            for (int hour = 1; hour < 24; hour++) {
+                if (allTimeByHour[hour] > allTimeByHour[busiest]) {
+                    busiest = hour;
+                }
+            }
+            return busiest;
+        }
+
+        /**
+         * Per location, in the order first seen: the in-gym estimate and today's check-ins.
+         */
+        public Map<String, int[]> getLocations() { return locations; }
+
+        public int getInGym(String location) {
+            int[] counts = locations.get(location);
+            return counts == null ? 0 : counts[0];
+        }
+
+        public int getToday(String location) {
+            int[] counts = locations.get(location);
+            return counts == null ? 0 : counts[1];
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.Map;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The OccupancyPanel class shows the live figures of an OccupancyMonitor in the GUI:
+ * the estimated number of people in the gym, recent and daily check-ins, today's peak,
+ * the load per location and a bar chart of today's check-ins per hour.
+ *
+ * Key Features:
+ * - Refreshes itself once a second while it is showing
+ * - The chart marks the current hour and the busiest hour since the monitor started
+ *
+ * Implementation Details:
+ * - Each refresh takes one OccupancyMonitor.Snapshot on the Event Dispatch Thread and
+ *   paints only from it, so painting never waits for the check-in path or holds it up
+ *
+ * Usage:
+ * viewTabs.addTab("Occupancy", new OccupancyPanel(service.getOccupancy()));
+ */
+public class OccupancyPanel extends JPanel {
+    private static final int REFRESH_MS = 1000;
+
+    private final OccupancyMonitor monitor;
+    private final JLabel inGymLabel = new JLabel("-");
+    private final JLabel recentLabel = new JLabel("-");
+    private final JLabel todayLabel = new JLabel("-");
+    private final JLabel peakLabel = new JLabel("-");
+    private final JLabel locationsLabel = new JLabel("-");
+    private final HourChart chart = new HourChart();
+    private OccupancyMonitor.Snapshot snapshot;
+
+    public OccupancyPanel(OccupancyMonitor monitor) {
+        super(new BorderLayout(10, 10));
+        this.monitor = monitor;
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JPanel figures = new JPanel(new GridLayout(0, 2, 10, 6));
+        figures.add(new JLabel("In the gym (estimate):"));
+        figures.add(inGymLabel);
+        figures.add(new JLabel("Check-ins, last 5 min / last hour:"));
+        figures.add(recentLabel);
+        figures.add(new JLabel("Check-ins today:"));
+        figures.add(todayLabel);
+        figures.add(new JLabel("Peak today:"));
+        figures.add(peakLabel);
+        figures.add(new JLabel("In the gym by location:"));
+        figures.add(locationsLabel);
+        add(figures, BorderLayout.NORTH);
+        add(chart, BorderLayout.CENTER);
+
+        final Timer timer = new Timer(REFRESH_MS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                if (isShowing()) {
+                    refresh();
+                }
+            }
+        });
+        timer.setInitialDelay(0);
+        timer.start();
+    }
+
+    private void refresh() {
+        snapshot = monitor.snapshot();
+        inGymLabel.setText(String.valueOf(snapshot.getInGym()));
+        recentLabel.setText(snapshot.getLastFiveMinutes() + " / " + snapshot.getLastHour());
+        todayLabel.setText(String.valueOf(snapshot.getToday()));
+        peakLabel.setText(snapshot.getPeakInGymToday() == 0 ? "-"
+                : snapshot.getPeakInGymToday() + " at " + snapshot.getPeakTime().toLocalTime());
+        StringBuilder locations = new StringBuilder();
+        for (Map.Entry<String, int[]> location : snapshot.getLocations().entrySet()) {
+            if (location.getValue()[0] > 0) {
+                locations.append(locations.length() == 0 ? "" : ", ")
+                        .append(location.getKey()).append(' ').append(location.getValue()[0]);
+            }
+        }
+        locationsLabel.setText(locations.length() == 0 ? "-" : locations.toString());
+        chart.repaint();
+    }
+
+    // Today's check-ins per hour; the current hour is drawn darker and the usual busiest hour is marked.
+    private class HourChart extends JComponent {
+        HourChart() {
+            setPreferredSize(new Dimension(600, 160));
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            OccupancyMonitor.Snapshot shown = snapshot;
+            if (shown == null) {
+                return;
+            }
+            int[] hours = shown.getTodayByHour();
+            int max = 1;
+            for (int count : hours) {
+                max = Math.max(max, count);
+            }
+            FontMetrics metrics = g.getFontMetrics();
+            int labelHeight = metrics.getHeight();
+            int width = getWidth() / hours.length;
+            int height = getHeight() - 2 * labelHeight;
+            int currentHour = shown.getTime().getHour();
+            int busiestHour = shown.getBusiestHour();
+            for (int hour = 0; hour < hours.length; hour++) {
+                int x = hour * width;
+                int bar = hours[hour] * height / max;
+                g.setColor(hour == currentHour ? new Color(40, 90, 160) : new Color(120, 160, 210));
+                g.fillRect(x + 2, labelHeight + height - bar, width - 4, bar);
+                g.setColor(hour == busiestHour ? Color.RED : Color.DARK_GRAY);
+                String label = String.valueOf(hour);
+                g.drawString(label, x + (width - metrics.stringWidth(label)) / 2, getHeight() - metrics.getDescent());
+                if (hours[hour] > 0) {
+                    String count = String.valueOf(hours[hour]);
+                    g.drawString(count, x + (width - metrics.stringWidth(count)) / 2,
+                            labelHeight + height - bar - metrics.getDescent());
+                }
+            }
+        }
+    }
+}
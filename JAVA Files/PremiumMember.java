@@ -1,5 +1,3 @@
-
-
 /**
  * Project: VR Fitness Studio - Gym Management System
  * Author: Abhishek Kumar Thakur
@@ -11,12 +9,13 @@
  * extending the base GymMember class with enhanced features and privileges.
  * 
  * Key Features:
- * - Premium membership with fixed charge of NPR 50,000
+ * - Premium membership charge from PricingRules (NPR 50,000 by default)
  * - Personal trainer assignment and management
- * - Full payment tracking with 10% discount eligibility
- * - Advanced attendance tracking with loyalty points (10 points per attendance)
+ * - Full payment tracking with a discount for paying in full (10% by default)
+ * - Advanced attendance tracking with loyalty points (10 points per attendance by default)
  * - Payment processing with due amount calculation
  * - Comprehensive member status reporting
+ * - Personal trainer is stored as a code into StringDictionary.MEMBER_FIELDS
  * 
  * Implementation Details:
  * - Inherits all core member attributes from GymMember
@@ -24,6 +23,10 @@
  * - Provides methods for membership reversion/reset
  * - Includes GUI-compatible methods for integration with management system
  * - Maintains strict encapsulation with proper access modifiers
+ * - The charge is fixed per member once paid in full; until then applyPricing() moves
+ *   it to the charge in force, but never below what the member has already paid
+ * - Everything that writes the charge or the paid amount holds the member's lock, so a
+ *   payment and a re-pricing never interleave
  * 
  * Usage:
  * This class should be instantiated for members opting for premium services.
@@ -40,16 +43,17 @@
  * object-oriented programming principles in Java.
  */
 public class PremiumMember extends GymMember {
-    private final double premiumCharge = 50000;
-    private String personalTrainer;
-    private boolean isFullPayment;
-    private double paidAmount;
-    private double discountAmount;
+    private volatile double premiumCharge;
+    private volatile int personalTrainerCode;
+    private volatile boolean isFullPayment;
+    private volatile double paidAmount;
+    private volatile double discountAmount;
 
     public PremiumMember(int id, String name, String location, String phone, String email, 
                         String gender, String DOB, String membershipStartDate, String personalTrainer) {
         super(id, name, location, phone, email, gender, DOB, membershipStartDate);
-        this.personalTrainer = personalTrainer;
+        this.personalTrainerCode = StringDictionary.MEMBER_FIELDS.code(personalTrainer);
+        this.premiumCharge = PricingRules.current().getPremiumCharge();
         this.isFullPayment = false;
         this.paidAmount = 0;
         this.discountAmount = 0;
@@ -57,20 +61,39 @@ public class PremiumMember extends GymMember {
 
     // Getters
     public double getPremiumCharge() { return premiumCharge; }
-    public String getPersonalTrainer() { return personalTrainer; }
+    public String getPersonalTrainer() { return StringDictionary.MEMBER_FIELDS.get(personalTrainerCode); }
+    public int getPersonalTrainerCode() { return personalTrainerCode; }
     public boolean isFullPayment() { return isFullPayment; }
     public double getPaidAmount() { return paidAmount; }
     public double getDiscountAmount() { return discountAmount; }
 
+    @Override
+    public boolean getFullPayment() { return isFullPayment; }
+
+    @Override
+    public double getNetAmountPaid() { return getPaidAmount() - discountAmount; }
+
     @Override
     public void markAttendance() {
-        if (activeStatus) {
-            attendance++;
-            loyaltyPoints += 10;
+        markAttendance(1);
+    }
+
+    @Override
+    public synchronized int markAttendance(int visits) {
+        awaitRelease();
+        if (!activeStatus || visits <= 0) {
+            return 0;
         }
+        recordVisits(visits, PricingRules.current().getPremiumPointsPerVisit());
+        changed(MemberChange.ATTENDANCE);
+        return visits;
     }
 
-    public String payDueAmount(double amount) {
+    // Synchronized with applyPricing, so the charge cannot be lowered between the check
+    // and the payment; concurrent payments from several terminals can never push the
+    // paid amount past the premium charge.
+    public synchronized String payDueAmount(double amount) {
+        awaitRelease();
         if (isFullPayment) {
             return "Payment is successful. No further payments required.";
         }
@@ -78,46 +101,108 @@ public class PremiumMember extends GymMember {
             return "Please enter a valid amount.";
         }
         if (paidAmount + amount > premiumCharge) {
+            if (paidAmount == premiumCharge) {
+                return "Payment is successful. No further payments required.";
+            }
             return "Payment exceeds the premium charge. Maximum allowed is " + (premiumCharge - paidAmount);
         }
-        
         paidAmount += amount;
-        isFullPayment = (paidAmount == premiumCharge);
-        if (isFullPayment) {
-            calculateDiscount();
+        if (paidAmount == premiumCharge) {
+            isFullPayment = true;
+            applyDiscount();
         }
-        double remaining = premiumCharge - paidAmount;
-        return "Payment of " + amount + " received. Remaining amount: " + remaining;
+        changed(MemberChange.PAYMENT);
+        return "Payment of " + amount + " received. Remaining amount: " + (premiumCharge - paidAmount);
     }
 
     public double getDueAmount() {
         return premiumCharge - paidAmount;
     }
 
-    public void calculateDiscount() {
+    public synchronized void calculateDiscount() {
+        awaitRelease();
+        applyDiscount();
+        changed(MemberChange.DISCOUNT);
+    }
+
+    private void applyDiscount() {
         if (isFullPayment) {
-            discountAmount = premiumCharge * 0.10;
+            discountAmount = PricingRules.current().getFullPaymentDiscount(premiumCharge);
         } else {
             discountAmount = 0;
         }
     }
 
-    public void revertPremiumMember() {
-        super.resetMember();
-        personalTrainer = "";
+    public synchronized void revertPremiumMember() {
+        awaitRelease();
+        clearPayment();
+        changed(MemberChange.REVERT_PREMIUM);
+    }
+
+    // The reset of revertPremiumMember without announcing it.
+    synchronized void clearPayment() {
+        clearProgress();
+        personalTrainerCode = StringDictionary.MEMBER_FIELDS.code("");
         isFullPayment = false;
         paidAmount = 0;
         discountAmount = 0;
+        premiumCharge = PricingRules.current().getPremiumCharge();
+    }
+
+    // Moves the charge of a member who has not paid in full to the one in the rules, or
+    // to the amount already paid if that is higher, which completes the payment.
+    // Returns true, after announcing the change, if the charge was different.
+    synchronized boolean applyPricing(PricingRules rules) {
+        awaitRelease();
+        if (isFullPayment) {
+            return false;
+        }
+        double newCharge = Math.max(rules.getPremiumCharge(), paidAmount);
+        if (newCharge == premiumCharge) {
+            return false;
+        }
+        premiumCharge = newCharge;
+        if (paidAmount == newCharge) {
+            isFullPayment = true;
+            applyDiscount();
+        }
+        changed(MemberChange.REPRICED);
+        return true;
+    }
+
+    // Used when rebuilding a member from saved data; does not count as a change.
+    synchronized void restorePayment(String personalTrainer, double paidAmount, boolean isFullPayment, double discountAmount) {
+        // Without a saved charge, a full payment was the charge at the time, and an open
+        // one is owed at the charge in force.
+        restorePayment(StringDictionary.MEMBER_FIELDS.code(personalTrainer), paidAmount, isFullPayment, discountAmount,
+                isFullPayment ? paidAmount : Math.max(PricingRules.current().getPremiumCharge(), paidAmount));
+    }
+
+    // Puts back the payment exactly as it was, charge included, as saved by MemberCodec
+    // or kept by BulkOperations to roll back a reversion.
+    synchronized void restorePayment(String personalTrainer, double paidAmount, boolean isFullPayment,
+            double discountAmount, double premiumCharge) {
+        restorePayment(StringDictionary.MEMBER_FIELDS.code(personalTrainer), paidAmount, isFullPayment,
+                discountAmount, premiumCharge);
+    }
+
+    synchronized void restorePayment(int personalTrainerCode, double paidAmount, boolean isFullPayment,
+            double discountAmount, double premiumCharge) {
+        this.personalTrainerCode = personalTrainerCode;
+        this.paidAmount = paidAmount;
+        this.isFullPayment = isFullPayment;
+        this.discountAmount = discountAmount;
+        this.premiumCharge = premiumCharge;
     }
     
 
     @Override
     public void display() {
         super.display();
-        System.out.println("Personal Trainer: " + personalTrainer);
-        System.out.println("Paid Amount: " + paidAmount);
+        System.out.println("Personal Trainer: " + getPersonalTrainer());
+        System.out.println("Paid Amount: " + getPaidAmount());
         System.out.println("Is Full Payment: " + isFullPayment);
-        System.out.println("Remaining Amount: " + (premiumCharge - paidAmount));
+        System.out.println("Remaining Amount: " + getDueAmount());
         if (isFullPayment) {
             System.out.println("Discount Amount: " + discountAmount);
         }
@@ -0,0 +1,162 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The PricingEngine class keeps the pricing rules of a running studio in step with
+ * its pricing.properties file. When the file changes the new rules are compiled, put in
+ * force and applied to every member on the roster, without a restart.
+ *
+ * Key Features:
+ * - start() applies the file (if there is one) and then checks it for changes every
+ *   CHECK_INTERVAL_MS on a background thread
+ * - reload() applies the file at once; apply() puts any PricingRules in force
+ * - A file with a mistake in it is reported through getLastError() and changes
+ *   nothing; the rules in force stay as they were
+ * - reprice() brings a roster in line with the rules in force on every core
+ *
+ * Implementation Details:
+ * - The file is checked by its modification time and size, which costs one stat call
+ * - Re-pricing splits the roster in halves until a part has at most SPLIT_SIZE members,
+ *   in the manner of MemberReport, and each member is updated under its own lock
+ * - Members whose price, charge or eligibility changed announce a REPRICED change, so
+ *   the journal, metrics and table see it as for any other operation
+ * - Rules are installed before the roster is re-priced, so members that change during
+ *   the pass are already priced by the new rules
+ *
+ * Usage:
+ * PricingEngine pricing = new PricingEngine(members, new File("GYMGUI", PricingRules.FILE_NAME));
+ * pricing.start();
+ * ...
+ * pricing.stop();
+ */
+public class PricingEngine {
+    public static final long CHECK_INTERVAL_MS = 2000;
+
+    private static final int SPLIT_SIZE = 1 << 14;
+
+    private final MemberRepository members;
+    private final File file;
+    private final ScheduledExecutorService watcher;
+    private long lastModified = -1;
+    private long lastLength = -1;
+    private volatile String lastError;
+
+    public PricingEngine(MemberRepository members, File file) {
+        this.members = members;
+        this.file = file;
+        this.watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pricing-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        check();
+        watcher.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        watcher.shutdownNow();
+    }
+
+    /**
+     * The problem found in the file the last time it was read, or null if it was
+     * applied.
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    private synchronized void check() {
+        long modified = file.lastModified();
+        long length = file.length();
+        if (modified == lastModified && length == lastLength) {
+            return;
+        }
+        lastModified = modified;
+        lastLength = length;
+        if (modified == 0 && !file.exists()) {
+            return;
+        }
+        try {
+            reload();
+        } catch (IOException e) {
+            System.err.println("Pricing rules not changed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the file and applies its rules. Returns the number of members re-priced.
+     */
+    public synchronized int reload() throws IOException {
+        PricingRules rules;
+        try {
+            rules = PricingRules.load(file);
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            throw e;
+        }
+        lastError = null;
+        return apply(rules);
+    }
+
+    /**
+     * Puts the rules in force and re-prices the roster. Returns the number of members
+     * whose price, charge or upgrade eligibility changed.
+     */
+    public int apply(PricingRules rules) {
+        PricingRules.install(rules);
+        return reprice(members.toArray(), ForkJoinPool.commonPool(), rules);
+    }
+
+    public static int reprice(GymMember[] members, ForkJoinPool pool, PricingRules rules) {
+        return pool.invoke(new Part(members, 0, members.length, rules));
+    }
+
+    private static final class Part extends RecursiveTask<Integer> {
+        private final GymMember[] members;
+        private final int from;
+        private final int to;
+        private final PricingRules rules;
+
+        Part(GymMember[] members, int from, int to, PricingRules rules) {
+            this.members = members;
+            this.from = from;
+            this.to = to;
+            this.rules = rules;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= SPLIT_SIZE) {
+                int changed = 0;
+                for (int i = from; i < to; i++) {
+                    GymMember member = members[i];
+                    boolean repriced = member instanceof RegularMember
+                            ? ((RegularMember) member).applyPricing(rules)
+                            : member instanceof PremiumMember && ((PremiumMember) member).applyPricing(rules);
+                    if (repriced) {
+                        changed++;
+                    }
+                }
+                return changed;
+            }
+            int middle = (from + to) >>> 1;
+            Part left = new Part(members, from, middle, rules);
+            left.fork();
+            int right = new Part(members, middle, to, rules).compute();
+            return left.join() + right;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The PricingRules class holds the studio's prices and loyalty rules: the price of each
+ * regular plan, the loyalty points per visit for Regular and Premium members, the points
+ * a Regular member needs to become eligible for an upgrade and the visits the desk asks
+ * for before it upgrades a plan, the premium charge and the discount for paying it in full. They are read from a properties file instead of being
+ * written into the member classes, so the studio can change them without a new release.
+ *
+ * Key Features:
+ * - load() and parse() read rules from a file or a Properties object; missing keys keep
+ *   the defaults, which are the prices and rules the studio has always used
+ * - current() is the rule set the member classes use; install() replaces it at once
+ * - PricingEngine reloads the file when it changes and re-prices the roster
+ *
+ * Implementation Details:
+ * - A PricingRules object is immutable and compiled when it is read: plan prices become
+ *   a table indexed by StringDictionary.MEMBER_FIELDS plan code, and the discount
+ *   ("10%" or a fixed amount such as "5000") becomes a function of the charge, so no
+ *   text is looked at when a rule is used
+ * - current() is a volatile read, so a member operation sees either the old rule set or
+ *   the new one, never a mix of the two
+ * - The plans are fixed (Basic, Standard, Deluxe), since the saved file formats store
+ *   plans by position; only their prices can be configured
+ *
+ * Usage:
+ * PricingRules.install(PricingRules.load(new File("GYMGUI/pricing.properties")));
+ * double price = PricingRules.current().getPlanPrice("Deluxe");
+ *
+ * Example file:
+ * price.basic=6500
+ * price.standard=12500
+ * price.deluxe=18500
+ * regular.pointsPerVisit=5
+ * regular.upgradePoints=30
+ * regular.upgradeVisits=30
+ * premium.pointsPerVisit=10
+ * premium.charge=50000
+ * premium.fullPaymentDiscount=10%
+ */
+public final class PricingRules {
+    public static final String FILE_NAME = "pricing.properties";
+
+    private static final String[] PLANS = MappedMemberStore.PLANS;
+    private static final String[] DEFAULTS = {
+        "price.basic", "6500",
+        "price.standard", "12500",
+        "price.deluxe", "18500",
+        "regular.pointsPerVisit", "5",
+        "regular.upgradePoints", "30",
+        "regular.upgradeVisits", "30",
+        "premium.pointsPerVisit", "10",
+        "premium.charge", "50000",
+        "premium.fullPaymentDiscount", "10%"
+    };
+
+    private static volatile PricingRules current = parse(new Properties());
+
+    private final double[] planPrices;
+    // Indexed by plan code; -1 for codes that are not plans.
+    private final double[] pricesByCode;
+    private final double regularPointsPerVisit;
+    private final int upgradePoints;
+    private final int upgradeVisits;
+    private final double premiumPointsPerVisit;
+    private final double premiumCharge;
+    private final DoubleUnaryOperator discount;
+    private final String discountText;
+
+    private PricingRules(double[] planPrices, double regularPointsPerVisit, int upgradePoints, int upgradeVisits,
+                         double premiumPointsPerVisit, double premiumCharge, String discountText) {
+        this.planPrices = planPrices;
+        this.regularPointsPerVisit = regularPointsPerVisit;
+        this.upgradePoints = upgradePoints;
+        this.upgradeVisits = upgradeVisits;
+        this.premiumPointsPerVisit = premiumPointsPerVisit;
+        this.premiumCharge = premiumCharge;
+        this.discountText = discountText;
+        this.discount = compileDiscount(discountText);
+
+        int maxCode = 0;
+        int[] codes = new int[PLANS.length];
+        for (int i = 0; i < PLANS.length; i++) {
+            codes[i] = StringDictionary.MEMBER_FIELDS.code(PLANS[i]);
+            maxCode = Math.max(maxCode, codes[i]);
+        }
+        this.pricesByCode = new double[maxCode + 1];
+        Arrays.fill(pricesByCode, -1);
+        for (int i = 0; i < PLANS.length; i++) {
+            pricesByCode[codes[i]] = planPrices[i];
+        }
+    }
+
+    /**
+     * The rule set in force.
+     */
+    public static PricingRules current() {
+        return current;
+    }
+
+    /**
+     * Puts the rules in force for every operation from now on. Members already on the
+     * roster keep their prices until they are re-priced (see PricingEngine).
+     */
+    public static void install(PricingRules rules) {
+        current = rules;
+    }
+
+    public static PricingRules defaults() {
+        return parse(new Properties());
+    }
+
+    public static PricingRules load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+        try {
+            return parse(properties);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compiles the rules in the properties, using the defaults for missing keys.
+     * Throws IllegalArgumentException naming the key of the first invalid value.
+     */
+    public static PricingRules parse(Properties properties) {
+        for (Object key : properties.keySet()) {
+            if (!isKnownKey((String) key)) {
+                throw new IllegalArgumentException("Unknown pricing rule " + key);
+            }
+        }
+        double[] prices = new double[PLANS.length];
+        for (int i = 0; i < PLANS.length; i++) {
+            prices[i] = amount(properties, "price." + PLANS[i].toLowerCase());
+        }
+        double charge = amount(properties, "premium.charge");
+        String discount = value(properties, "premium.fullPaymentDiscount");
+        double discountValue = number(discount.endsWith("%") ? discount.substring(0, discount.length() - 1) : discount,
+                "premium.fullPaymentDiscount");
+        if (discountValue < 0 || (discount.endsWith("%") ? discountValue > 100 : discountValue > charge)) {
+            throw new IllegalArgumentException("premium.fullPaymentDiscount must be between 0 and the charge: " + discount);
+        }
+        return new PricingRules(prices, amount(properties, "regular.pointsPerVisit"),
+                wholeNumber(properties, "regular.upgradePoints"), wholeNumber(properties, "regular.upgradeVisits"),
+                amount(properties, "premium.pointsPerVisit"), charge, discount);
+    }
+
+    private static boolean isKnownKey(String key) {
+        for (int i = 0; i < DEFAULTS.length; i += 2) {
+            if (DEFAULTS[i].equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String value(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            for (int i = 0; i < DEFAULTS.length; i += 2) {
+                if (DEFAULTS[i].equals(key)) {
+                    value = DEFAULTS[i + 1];
+                }
+            }
+        }
+        return value.trim();
+    }
+
+    // A number that is not negative.
+    private static double amount(Properties properties, String key) {
+        double value = number(value(properties, key), key);
+        if (value < 0) {
+            throw new IllegalArgumentException(key + " must not be negative: " + value);
+        }
+        return value;
+    }
+
+    private static int wholeNumber(Properties properties, String key) {
+        double value = amount(properties, key);
+        if (value != Math.rint(value) || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(key + " must be a whole number");
+        }
+        return (int) value;
+    }
+
+    private static double number(String text, String key) {
+        try {
+            double value = Double.parseDouble(text.trim());
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new NumberFormatException();
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " is not a number: " + text);
+        }
+    }
+
+    private static DoubleUnaryOperator compileDiscount(String text) {
+        if (text.endsWith("%")) {
+            final double rate = Double.parseDouble(text.substring(0, text.length() - 1).trim()) / 100;
+            return charge -> charge * rate;
+        }
+        final double fixed = Double.parseDouble(text);
+        return charge -> Math.min(fixed, charge);
+    }
+
+    /**
+     * The price of the plan, ignoring case, or -1 if there is no such plan.
+     */
+    public double getPlanPrice(String plan) {
+        for (int i = 0; i < PLANS.length; i++) {
+            if (PLANS[i].equalsIgnoreCase(plan)) {
+                return planPrices[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The price of the plan with the given StringDictionary.MEMBER_FIELDS code, or -1.
+     */
+    public double getPlanPrice(int planCode) {
+        return planCode >= 0 && planCode < pricesByCode.length ? pricesByCode[planCode] : -1;
+    }
+
+    public double getRegularPointsPerVisit() { return regularPointsPerVisit; }
+    public int getUpgradePoints() { return upgradePoints; }
+    public int getUpgradeVisits() { return upgradeVisits; }
+    public double getPremiumPointsPerVisit() { return premiumPointsPerVisit; }
+    public double getPremiumCharge() { return premiumCharge; }
+
+    /**
+     * The full-payment discount as written in the file, for example "10%" or "5000".
+     */
+    public String getFullPaymentDiscountText() { return discountText; }
+
+    /**
+     * The discount for paying the given premium charge in full.
+     */
+    public double getFullPaymentDiscount(double charge) {
+        return discount.applyAsDouble(charge);
+    }
+
+    /**
+     * The rules in the file format, so they can be written back or shown.
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        for (int i = 0; i < PLANS.length; i++) {
+            properties.setProperty("price." + PLANS[i].toLowerCase(), format(planPrices[i]));
+        }
+        properties.setProperty("regular.pointsPerVisit", format(regularPointsPerVisit));
+        properties.setProperty("regular.upgradePoints", String.valueOf(upgradePoints));
+        properties.setProperty("regular.upgradeVisits", String.valueOf(upgradeVisits));
+        properties.setProperty("premium.pointsPerVisit", format(premiumPointsPerVisit));
+        properties.setProperty("premium.charge", format(premiumCharge));
+        properties.setProperty("premium.fullPaymentDiscount", discountText);
+        return properties;
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    @Override
+    public String toString() {
+        return new TreeMap<>(toProperties()).toString();
+    }
+}
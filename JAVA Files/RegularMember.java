@@ -12,14 +12,17 @@
  * Key Features:
  * - Three plan tiers: Basic, Standard, Deluxe
  * - Attendance-based eligibility for plan upgrades
- * - Loyalty point tracking (5 points per attendance)
+ * - Loyalty point tracking (5 points per attendance by default)
  * - Upgrade and revert functionality with price adjustment
  * - Referral source tracking and removal reason documentation
+ * - Plan and referral source are stored as codes into StringDictionary.MEMBER_FIELDS
+ * - Plan prices, points per visit and the upgrade threshold come from PricingRules
  *
  * Implementation Details:
  * - Inherits member identity and tracking from GymMember
  * - Uses loyaltyPoints to determine upgrade eligibility
- * - Contains static utility for plan pricing based on plan type
+ * - Contains static utility for plan pricing based on plan type, read from the rules in force
+ * - applyPricing() brings an existing member in line with new rules (see PricingEngine)
  * - Offers full member reset via revertRegularMember method
  *
  * Usage:
@@ -37,77 +40,136 @@
 
 
 public class RegularMember extends GymMember {
-    private final int attendanceLimit = 30;
-    private boolean isEligibleForUpgrade;
-    private String removalReason;
-    private String referralSource;
-    private String plan;
-    private double price;
+    private static final int BASIC_CODE = StringDictionary.MEMBER_FIELDS.code("Basic");
+
+    private volatile boolean isEligibleForUpgrade;
+    private volatile String removalReason;
+    private int referralSourceCode;
+    private volatile int planCode;
+    private volatile double price;
 
     public RegularMember(int id, String name, String location, String phone, String email, 
                         String gender, String DOB, String membershipStartDate, String referralSource) {
         super(id, name, location, phone, email, gender, DOB, membershipStartDate);
-        this.referralSource = referralSource;
-        this.plan = "Basic";
-        this.price = 6500;
+        this.referralSourceCode = StringDictionary.MEMBER_FIELDS.code(referralSource);
+        this.planCode = BASIC_CODE;
+        this.price = PricingRules.current().getPlanPrice(BASIC_CODE);
         this.removalReason = "";
     }
 
     // Getters
-    public int getAttendanceLimit() { return attendanceLimit; }
+    // The visits the desk asks for before an upgrade; eligibility itself is by loyalty points.
+    public int getAttendanceLimit() { return PricingRules.current().getUpgradeVisits(); }
     public boolean isEligibleForUpgrade() { return isEligibleForUpgrade; }
     public String getRemovalReason() { return removalReason; }
-    public String getReferralSource() { return referralSource; }
-    public String getPlan() { return plan; }
+    public String getReferralSource() { return StringDictionary.MEMBER_FIELDS.get(referralSourceCode); }
+    public String getPlan() { return StringDictionary.MEMBER_FIELDS.get(planCode); }
+    public int getReferralSourceCode() { return referralSourceCode; }
+    public int getPlanCode() { return planCode; }
     public double getPrice() { return price; }
 
     @Override
     public void markAttendance() {
-        if (activeStatus) {
-            attendance++;
-            loyaltyPoints += 5;
-            if (loyaltyPoints >= attendanceLimit) {
-                isEligibleForUpgrade = true;
-            }
+        markAttendance(1);
+    }
+
+    // Eligibility is checked once against the total after all the visits are added.
+    @Override
+    public synchronized int markAttendance(int visits) {
+        awaitRelease();
+        if (!activeStatus || visits <= 0) {
+            return 0;
+        }
+        PricingRules rules = PricingRules.current();
+        double points = recordVisits(visits, rules.getRegularPointsPerVisit());
+        if (points >= rules.getUpgradePoints()) {
+            isEligibleForUpgrade = true;
         }
+        changed(MemberChange.ATTENDANCE);
+        return visits;
     }
 
     public static double getPlanPrice(String plan) {
-        switch(plan.toLowerCase()) {
-            case "basic": return 6500;
-            case "standard": return 12500;
-            case "deluxe": return 18500;
-            default: return -1;
+        return PricingRules.current().getPlanPrice(plan);
+    }
+
+    public synchronized String upgradePlan(String newPlan) {
+        awaitRelease();
+        String refusal = upgradeRefusal(newPlan);
+        if (refusal != null) {
+            return refusal;
         }
+        movePlan(newPlan);
+        changed(MemberChange.UPGRADE);
+        return "Plan upgraded to " + newPlan + " successfully";
     }
 
-    public String upgradePlan(String newPlan) {
+    // Why the member cannot move to the plan, or null if it can.
+    synchronized String upgradeRefusal(String newPlan) {
         if (!isEligibleForUpgrade) {
             return "Member is NOT eligible for upgrade";
         }
+        String plan = getPlan();
         if (newPlan.equalsIgnoreCase(plan)) {
             return "Member is already in the " + plan + " plan.";
         }
-        double newPrice = getPlanPrice(newPlan);
-        if (newPrice == -1) {
+        if (getPlanPrice(newPlan) == -1) {
             return "Invalid plan";
         }
-        plan = newPlan;
-        price = newPrice;
-        return "Plan upgraded to " + newPlan + " successfully";
+        return null;
+    }
+
+    // Moves to the plan without announcing it; upgradePlan and BulkOperations check
+    // upgradeRefusal first and report the change themselves.
+    synchronized void movePlan(String newPlan) {
+        planCode = StringDictionary.MEMBER_FIELDS.code(newPlan);
+        price = getPlanPrice(newPlan);
+    }
+
+    public synchronized void revertRegularMember(String removalReason) {
+        awaitRelease();
+        clearPlan(removalReason);
+        changed(MemberChange.REVERT_REGULAR);
     }
 
-    public void revertRegularMember(String removalReason) {
-        super.resetMember();
+    // The reversion of revertRegularMember without announcing it.
+    synchronized void clearPlan(String removalReason) {
+        clearProgress();
         isEligibleForUpgrade = false;
-        plan = "Basic";
-        price = 6500;
+        planCode = BASIC_CODE;
+        price = PricingRules.current().getPlanPrice(BASIC_CODE);
+        this.removalReason = removalReason;
+    }
+
+    // Sets the price of the current plan and the upgrade eligibility from the rules.
+    // Returns true, after announcing the change, if either was different.
+    synchronized boolean applyPricing(PricingRules rules) {
+        awaitRelease();
+        double newPrice = rules.getPlanPrice(planCode);
+        if (newPrice < 0) {
+            newPrice = price;
+        }
+        boolean eligible = getLoyaltyPoints() >= rules.getUpgradePoints();
+        if (newPrice == price && eligible == isEligibleForUpgrade) {
+            return false;
+        }
+        price = newPrice;
+        isEligibleForUpgrade = eligible;
+        changed(MemberChange.REPRICED);
+        return true;
+    }
+
+    // Used when rebuilding a member from saved data; does not count as a change.
+    synchronized void restorePlan(String plan, double price, boolean isEligibleForUpgrade, String removalReason) {
+        this.planCode = StringDictionary.MEMBER_FIELDS.code(plan);
+        this.price = price;
+        this.isEligibleForUpgrade = isEligibleForUpgrade;
         this.removalReason = removalReason;
     }
 
     public void display() {
         super.display();
-        System.out.println("Plan: " + plan);
+        System.out.println("Plan: " + getPlan());
         System.out.println("Price: " + price);
         if (!removalReason.isEmpty()) {
             System.out.println("Removal Reason: " + removalReason);
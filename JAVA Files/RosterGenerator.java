@@ -0,0 +1,167 @@
+import java.io.File;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The RosterGenerator class creates synthetic but realistic members for capacity
+ * testing: names, contact details, locations, trainers, dates of birth and membership
+ * start, attendance histories that grow with tenure, plan upgrades and partial
+ * premium payments. The same seed always gives the same roster.
+ *
+ * Key Features:
+ * - member(id) builds one RegularMember or PremiumMember from the seed and the ID alone
+ * - fill() adds a range of members to a MemberRepository
+ * - main() writes a generated roster as a MemberDetails.txt snapshot
+ *
+ * Implementation Details:
+ * - Each member gets its own SplittableRandom seeded from the roster seed and the ID,
+ *   so members can be generated in any order or on several threads and still match
+ * - About a third of members are Premium; attendance is drawn around two visits a
+ *   week since the start date, and loyalty points and upgrade eligibility follow from
+ *   it with the same PricingRules as markAttendance()
+ * - State is set through the restore methods used when loading a file, so no change
+ *   events are fired for the history
+ * - Dates are relative to a fixed day, not today, so a seed gives the same roster on
+ *   any date
+ *
+ * Usage:
+ * new RosterGenerator(42).fill(members, 1, 1_000_000);
+ * java RosterGenerator [--members 1000000] [--seed 42] [--dir Generated]
+ */
+public class RosterGenerator {
+    private static final LocalDate REFERENCE_DAY = LocalDate.of(2025, 1, 1);
+    private static final int START_DAY_RANGE = 5 * 365;
+
+    private static final String[] FIRST_NAMES = {
+        "Aarav", "Aayush", "Abhishek", "Anil", "Anjali", "Asmita", "Bibek", "Bikash", "Binita", "Deepak",
+        "Dipesh", "Gita", "Hari", "Kabita", "Kiran", "Krishna", "Laxmi", "Manish", "Nabin", "Nisha",
+        "Pooja", "Prakash", "Pratik", "Rajesh", "Ram", "Ramesh", "Rita", "Roshan", "Sabina", "Sagar",
+        "Sandeep", "Sanjay", "Sarita", "Shristi", "Sita", "Sujan", "Sunita", "Suraj", "Sushma", "Ujjwal"
+    };
+    private static final String[] LAST_NAMES = {
+        "Adhikari", "Bhandari", "Bhattarai", "Basnet", "Chaudhary", "Gautam", "Ghimire", "Gurung",
+        "Karki", "KC", "Khadka", "Lama", "Magar", "Maharjan", "Poudel", "Pandey", "Rai", "Sharma",
+        "Shrestha", "Tamang", "Thakur", "Thapa", "Tiwari", "Yadav"
+    };
+    private static final String[] LOCATIONS = {
+        "Kathmandu", "Lalitpur", "Bhaktapur", "Pokhara", "Kirtipur", "Butwal", "Biratnagar",
+        "Dharan", "Chitwan", "Hetauda"
+    };
+    private static final String[] TRAINERS = {
+        "Bikram", "Sunil", "Asha", "Prabin", "Ritu", "Dawa", "Nirmala", "Suman"
+    };
+    private static final String[] REFERRAL_SOURCES = {
+        "Walk-in", "Friend", "Facebook", "Instagram", "Website", "Flyer", "Corporate"
+    };
+    private static final String[] EMAIL_DOMAINS = {"gmail.com", "yahoo.com", "outlook.com", "mail.com"};
+    private static final String[] GENDERS = {"Male", "Female", "Other"};
+
+    private final long seed;
+
+    public RosterGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Builds the member with the given ID. Calling it twice with the same ID gives two
+     * equal members.
+     */
+    public GymMember member(int id) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + id);
+        String first = pick(random, FIRST_NAMES);
+        String last = pick(random, LAST_NAMES);
+        String name = first + " " + last;
+        String location = pick(random, LOCATIONS);
+        String phone = "98" + (10_000_000 + random.nextInt(90_000_000));
+        String email = first.toLowerCase() + "." + last.toLowerCase() + id + "@" + pick(random, EMAIL_DOMAINS);
+        int genderRoll = random.nextInt(100);
+        String gender = GENDERS[genderRoll < 52 ? 0 : genderRoll < 98 ? 1 : 2];
+        LocalDate start = REFERENCE_DAY.minusDays(random.nextInt(START_DAY_RANGE));
+        LocalDate dob = start.minusYears(16 + random.nextInt(45)).minusDays(random.nextInt(365));
+        String dobText = MemberDates.format((int) dob.toEpochDay());
+        String startText = MemberDates.format((int) start.toEpochDay());
+
+        // Around two visits a week since joining, with some members far more regular than others.
+        long weeks = (REFERENCE_DAY.toEpochDay() - start.toEpochDay()) / 7;
+        int attendance = (int) (weeks * random.nextDouble(0.2, 3.5));
+        boolean active = random.nextInt(100) < 88;
+        PricingRules rules = PricingRules.current();
+
+        if (random.nextInt(100) < 35) {
+            PremiumMember member = new PremiumMember(id, name, location, phone, email, gender, dobText, startText,
+                    pick(random, TRAINERS));
+            member.restoreState(attendance, attendance * rules.getPremiumPointsPerVisit(), active);
+            int roll = random.nextInt(100);
+            double paid = roll < 40 ? member.getPremiumCharge()
+                    : roll < 85 ? 500.0 * random.nextInt(1, (int) (member.getPremiumCharge() / 500)) : 0;
+            boolean full = paid == member.getPremiumCharge();
+            member.restorePayment(member.getPersonalTrainer(), paid, full,
+                    full ? rules.getFullPaymentDiscount(member.getPremiumCharge()) : 0);
+            return member;
+        }
+        RegularMember member = new RegularMember(id, name, location, phone, email, gender, dobText, startText,
+                pick(random, REFERRAL_SOURCES));
+        double points = attendance * rules.getRegularPointsPerVisit();
+        member.restoreState(attendance, points, active);
+        boolean eligible = points >= rules.getUpgradePoints();
+        String plan = "Basic";
+        if (eligible) {
+            int roll = random.nextInt(100);
+            plan = roll < 25 ? "Standard" : roll < 35 ? "Deluxe" : "Basic";
+        }
+        member.restorePlan(plan, RegularMember.getPlanPrice(plan), eligible, "");
+        return member;
+    }
+
+    /**
+     * Adds count members with consecutive IDs starting at firstId.
+     */
+    public void fill(MemberRepository members, int firstId, int count) {
+        for (int i = 0; i < count; i++) {
+            members.add(member(firstId + i));
+        }
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = 1_000_000;
+        long seed = 42;
+        File directory = new File("Generated");
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--members":
+                    count = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "--dir":
+                    directory = new File(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        MemberRepository members = new MemberRepository(count);
+        new RosterGenerator(seed).fill(members, 1, count);
+        long generated = System.nanoTime();
+        MemberSaveEngine engine = new MemberSaveEngine(directory);
+        try {
+            engine.saveSnapshot(members).get();
+        } finally {
+            engine.shutdown();
+        }
+        System.out.printf("Generated %d members in %d ms, wrote %s in %d ms%n", count,
+                (generated - start) / 1_000_000, engine.getSnapshotFile().getAbsolutePath(),
+                (System.nanoTime() - generated) / 1_000_000);
+    }
+}
@@ -0,0 +1,168 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The StartDateIndex class keeps the members of a MemberRepository sorted by
+ * membership start date, so questions such as "who joined this month" are answered
+ * with two binary searches instead of a scan of the whole roster.
+ *
+ * Key Features:
+ * - joinedBetween() returns the IDs of members who started in a date range
+ * - countJoinedBetween() counts them without building a result
+ * - Implements MemberListener, so it stays in step with the repository it follows
+ *
+ * Implementation Details:
+ * - Each entry is one long: the epoch day in the high 32 bits and the member ID in the
+ *   low 32 bits, so sorting the longs sorts by day and then by ID
+ * - New entries are appended unsorted and merged into the sorted part before the next
+ *   query or removal, so loading a large roster costs one sort instead of one insert
+ *   per member
+ * - Members without a readable start date are not indexed
+ * - When following a repository, additions and removals are checked against it, since
+ *   an addition's event can arrive after the event of the removal that followed it;
+ *   adding an entry twice is harmless, as duplicates are dropped when merging
+ * - All methods synchronize on the index; listeners may be called from any thread
+ *
+ * Usage:
+ * StartDateIndex index = StartDateIndex.follow(members);
+ * int[] ids = index.joinedBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+ */
+public class StartDateIndex implements MemberListener {
+    private long[] keys = new long[1024];
+    private int sorted;
+    private int size;
+    private MemberRepository repository;
+
+    /**
+     * Indexes every member of the repository and follows its later changes.
+     */
+    public static StartDateIndex follow(MemberRepository members) {
+        StartDateIndex index = new StartDateIndex();
+        index.repository = members;
+        members.addListener(index);
+        for (GymMember member : members) {
+            index.memberChanged(member, MemberChange.ADDED);
+        }
+        return index;
+    }
+
+    public synchronized void add(GymMember member) {
+        int day = member.getMembershipStartEpochDay();
+        if (day == MemberDates.UNKNOWN) {
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+        }
+        keys[size++] = key(day, member.getID());
+    }
+
+    public synchronized void remove(GymMember member) {
+        int day = member.getMembershipStartEpochDay();
+        if (day == MemberDates.UNKNOWN) {
+            return;
+        }
+        int position = find(key(day, member.getID()));
+        if (position >= 0) {
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            size--;
+            sorted--;
+        }
+    }
+
+    @Override
+    public synchronized void memberChanged(GymMember member, MemberChange change) {
+        GymMember current = repository == null ? null : repository.get(member.getID());
+        if (change == MemberChange.ADDED && (repository == null || current == member)) {
+            add(member);
+        } else if (change == MemberChange.REMOVED && current != member) {
+            remove(member);
+            if (current != null) {
+                // A member under the same ID was added first; its entry may be the one removed.
+                add(current);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * IDs of the members who started between the two dates, both inclusive, ordered
+     * by start date.
+     */
+    public synchronized int[] joinedBetween(LocalDate from, LocalDate to) {
+        int start = lowerBound(from);
+        int end = lowerBound(to.plusDays(1));
+        int[] ids = new int[Math.max(0, end - start)];
+        for (int i = start; i < end; i++) {
+            ids[i - start] = (int) keys[i];
+        }
+        return ids;
+    }
+
+    public synchronized int countJoinedBetween(LocalDate from, LocalDate to) {
+        return Math.max(0, lowerBound(to.plusDays(1)) - lowerBound(from));
+    }
+
+    public int[] joinedInMonth(LocalDate anyDayOfMonth) {
+        LocalDate first = anyDayOfMonth.withDayOfMonth(1);
+        return joinedBetween(first, first.plusMonths(1).minusDays(1));
+    }
+
+    private static long key(int day, int id) {
+        return ((long) day << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    // First position whose day is on or after the date.
+    private int lowerBound(LocalDate date) {
+        merge();
+        int position = Arrays.binarySearch(keys, 0, size, date.toEpochDay() << 32);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    private int find(long key) {
+        merge();
+        int position = Arrays.binarySearch(keys, 0, size, key);
+        return position >= 0 ? position : -1;
+    }
+
+    // Sorts the appended tail, merges it into the sorted prefix and drops entries that
+    // were added twice.
+    private void merge() {
+        if (sorted == size) {
+            return;
+        }
+        Arrays.sort(keys, sorted, size);
+        if (sorted > 0 && keys[sorted - 1] > keys[sorted]) {
+            long[] merged = new long[keys.length];
+            int left = 0;
+            int right = sorted;
+            int out = 0;
+            while (left < sorted && right < size) {
+                merged[out++] = keys[left] <= keys[right] ? keys[left++] : keys[right++];
+            }
+            while (left < sorted) {
+                merged[out++] = keys[left++];
+            }
+            while (right < size) {
+                merged[out++] = keys[right++];
+            }
+            keys = merged;
+        }
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || keys[i] != keys[unique - 1]) {
+                keys[unique++] = keys[i];
+            }
+        }
+        size = unique;
+        sorted = size;
+    }
+}
@@ -0,0 +1,117 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Project: VR Fitness Studio - Gym Management System
+ * Author: Abhishek Kumar Thakur
+ * Institution: Islington College
+ *
+ * Description:
+ * The StringDictionary class maps repeating text values to small int codes and back.
+ * Members keep their location, gender, plan, referral source and personal trainer as
+ * codes into the shared MEMBER_FIELDS dictionary, so a roster of a million members
+ * holds each distinct value once, and grouping members by one of those fields compares
+ * ints instead of calling equals().
+ *
+ * Key Features:
+ * - code(String) returns the existing code of a value or assigns the next one
+ * - get(int) turns a code back into the one shared String instance
+ * - countBy() groups members by a coded field using an array indexed by code
+ * - Code 0 always stands for null, so a null field survives the round trip
+ *
+ * Implementation Details:
+ * - Lookups by code read a plain array and take no lock
+ * - New values are added under a lock; the array is published only after the value is
+ *   stored in it, so every code a thread can see is already readable
+ * - Codes are never reused; values stay in the dictionary for the life of the program
+ *
+ * Usage:
+ * int code = StringDictionary.MEMBER_FIELDS.code("Kathmandu");
+ * String location = StringDictionary.MEMBER_FIELDS.get(code);
+ */
+public final class StringDictionary {
+    public static final StringDictionary MEMBER_FIELDS = new StringDictionary();
+
+    public static final int NULL_CODE = 0;
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[64];
+    private int size = 1;
+
+    public StringDictionary() {
+    }
+
+    /**
+     * Returns the code for the value, adding the value if it is new.
+     */
+    public int code(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size << 1);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the code of the value, or -1 if the value has never been coded.
+     */
+    public int find(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public String get(int code) {
+        return values[code];
+    }
+
+    /**
+     * Number of codes handed out so far, including the null code.
+     */
+    public int size() {
+        return codes.size() + 1;
+    }
+
+    /**
+     * Counts members per value of a coded field, e.g.
+     * countBy(members, GymMember::getLocationCode). Values keep the order of their codes.
+     */
+    public Map<String, Integer> countBy(Iterable<? extends GymMember> members, ToIntFunction<GymMember> field) {
+        int[] counts = new int[size()];
+        for (GymMember member : members) {
+            int code = field.applyAsInt(member);
+            if (code >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(code + 1, counts.length << 1));
+            }
+            counts[code]++;
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(get(code), counts[code]);
+            }
+        }
+        return result;
+    }
+}